@@ -0,0 +1,102 @@
+package benchmarks;
+
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Synthetic flight network. Airport popularity follows a Zipf distribution with exponent
+ * {@code hubSkew}: 0 spreads traffic evenly, values around 1 concentrate it on a few hubs the
+ * way real schedules do. Output is deterministic for a given seed.
+ */
+public class FlightNetworkGenerator {
+    public static final LocalDateTime FIRST_DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private final int airports;
+    private final int flightsPerDay;
+    private final double hubSkew;
+    private final int days;
+    private final long seed;
+
+    public FlightNetworkGenerator(int airports, int flightsPerDay, double hubSkew, int days, long seed) {
+        if (airports < 2) {
+            throw new IllegalArgumentException("Need at least two airports: " + airports);
+        }
+        this.airports = airports;
+        this.flightsPerDay = flightsPerDay;
+        this.hubSkew = hubSkew;
+        this.days = days;
+        this.seed = seed;
+    }
+
+    /** "City 7 (AAH)" style name for airport {@code index}; index 0 is the busiest hub. */
+    public static String airportName(int index) {
+        return "City " + index + " (" + airportCode(index) + ")";
+    }
+
+    public static String airportCode(int index) {
+        char[] code = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            code[i] = (char) ('A' + index % 26);
+            index /= 26;
+        }
+        return new String(code);
+    }
+
+    public Map<AirlineTable, List<FlightInterface>> generate() {
+        Random random = new Random(seed);
+        double[] cumulative = zipfCumulative();
+
+        Map<AirlineTable, List<FlightInterface>> byTable = new EnumMap<>(AirlineTable.class);
+        for (AirlineTable table : AirlineTable.values()) {
+            byTable.put(table, new ArrayList<>());
+        }
+
+        AirlineTable[] tables = AirlineTable.values();
+        int[] nextId = new int[tables.length];
+        for (int day = 0; day < days; day++) {
+            LocalDateTime midnight = FIRST_DAY.plusDays(day);
+            for (int n = 0; n < flightsPerDay; n++) {
+                int from = pick(cumulative, random);
+                int to = pick(cumulative, random);
+                while (to == from) {
+                    to = pick(cumulative, random);
+                }
+
+                LocalDateTime depart = midnight.plusMinutes(random.nextInt(24 * 60));
+                LocalDateTime arrive = depart.plusMinutes(45 + random.nextInt(6 * 60));
+                AirlineTable table = tables[random.nextInt(tables.length)];
+                int id = ++nextId[table.ordinal()];
+
+                byTable.get(table).add(new Flight(id,
+                        table.name().charAt(0) + String.valueOf(1000 + random.nextInt(9000)),
+                        airportName(from), airportName(to),
+                        Timestamp.valueOf(depart), Timestamp.valueOf(arrive),
+                        table.getTableName()));
+            }
+        }
+        return byTable;
+    }
+
+    private double[] zipfCumulative() {
+        double[] cumulative = new double[airports];
+        double total = 0;
+        for (int i = 0; i < airports; i++) {
+            total += 1.0 / Math.pow(i + 1, hubSkew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < airports; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, Random random) {
+        int at = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, at >= 0 ? at : -at - 1);
+    }
+}
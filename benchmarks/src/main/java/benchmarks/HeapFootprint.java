@@ -0,0 +1,70 @@
+package benchmarks;
+
+import backend.classes.database.CompactFlightStore;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retained heap per million flights, held as Flight objects the way they come out of a ResultSet
+ * versus as rows of a {@link CompactFlightStore}. Not a JMH benchmark; run it on its own with a
+ * heap large enough for the Flight list:
+ *
+ * java -Xmx4g -cp benchmarks/target/benchmarks.jar benchmarks.HeapFootprint [flights]
+ */
+public class HeapFootprint {
+    public static void main(String[] args) {
+        int flights = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int days = 10;
+
+        long baseline = usedHeap();
+        List<FlightInterface> objects = generate(flights, days);
+        long asObjects = usedHeap() - baseline;
+        System.out.printf("Flight objects:      %,d flights, %,d bytes (%.1f MB per million)%n",
+                objects.size(), asObjects, perMillion(asObjects, objects.size()));
+        objects = null;
+
+        baseline = usedHeap();
+        CompactFlightStore store = compact(generate(flights, days));
+        long asStore = usedHeap() - baseline;
+        System.out.printf("CompactFlightStore:  %,d flights, %,d bytes (%.1f MB per million)%n",
+                store.size(), asStore, perMillion(asStore, store.size()));
+        System.out.printf("Reduction: %.1fx%n", (double) asObjects / asStore);
+    }
+
+    private static List<FlightInterface> generate(int flights, int days) {
+        Map<AirlineTable, List<FlightInterface>> byTable =
+                new FlightNetworkGenerator(300, flights / days, 1.1, days, 509L).generate();
+        List<FlightInterface> all = new ArrayList<>(flights);
+        byTable.values().forEach(all::addAll);
+        return all;
+    }
+
+    private static CompactFlightStore compact(List<FlightInterface> flights) {
+        CompactFlightStore store = new CompactFlightStore();
+        for (FlightInterface flight : flights) {
+            store.add(flight);
+        }
+        return store;
+    }
+
+    private static double perMillion(long bytes, int flights) {
+        return bytes / 1e6 * (1_000_000.0 / flights);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
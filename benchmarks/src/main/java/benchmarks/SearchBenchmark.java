@@ -0,0 +1,125 @@
+package benchmarks;
+
+import backend.classes.database.InMemoryDatabase;
+import backend.classes.search.BoundedRouteSearch;
+import backend.classes.search.ParallelRouteSearch;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency against a generated network held in {@link InMemoryDatabase}. Each
+ * benchmark asks for one page of results the way FlightService does. Connection benchmarks use an
+ * airport pair with no direct flight on the searched day, so they always reach the route search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    private static final List<AirlineTable> TABLES = List.of(AirlineTable.values());
+    private static final int PAGE = 20;
+
+    @Param({"50", "300"})
+    public int airports;
+
+    @Param({"2000", "10000"})
+    public int flightsPerDay;
+
+    @Param({"0.0", "1.1"})
+    public double hubSkew;
+
+    @Param({"serial", "parallel"})
+    public String engine;
+
+    @Param("7")
+    public int days;
+
+    private InMemoryDatabase database;
+    private List<Object> directParams;
+    private List<Object> oneStopParams;
+    private List<Object> twoStopParams;
+    private List<Object> roundTripParams;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new InMemoryDatabase();
+        database.load(new FlightNetworkGenerator(airports, flightsPerDay, hubSkew, days, 509L).generate());
+        if (engine.equals("parallel")) {
+            database.setRouteSearchEngine(new ParallelRouteSearch(new BoundedRouteSearch(),
+                    Runtime.getRuntime().availableProcessors()));
+        }
+
+        Timestamp dayStart = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY.plusDays(1));
+        Timestamp dayEnd = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY.plusDays(2).minusNanos(1_000_000));
+        Timestamp returnStart = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY.plusDays(3));
+        Timestamp returnEnd = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY.plusDays(4).minusNanos(1_000_000));
+
+        directParams = params(0, 1, dayStart, dayEnd, 0);
+        oneStopParams = connectingPair(dayStart, dayEnd, 1);
+        twoStopParams = connectingPair(dayStart, dayEnd, 2);
+
+        roundTripParams = new ArrayList<>(params(0, 1, dayStart, dayEnd, 1));
+        roundTripParams.add(returnStart);
+        roundTripParams.add(returnEnd);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<FlightInterface> directSearch() {
+        return database.selectFlights(TABLES, "departdatetime", directParams, PAGE + 1);
+    }
+
+    @Benchmark
+    public List<FlightInterface> oneStopSearch() {
+        return database.selectFlights(TABLES, "departdatetime", oneStopParams, PAGE + 1);
+    }
+
+    @Benchmark
+    public List<FlightInterface> twoStopSearch() {
+        return database.selectFlights(TABLES, "traveltime", twoStopParams, PAGE + 1);
+    }
+
+    @Benchmark
+    public List<FlightInterface> roundTripAssembly() {
+        return database.selectRoundTrip(TABLES, "departdatetime", roundTripParams, PAGE + 1);
+    }
+
+    private static List<Object> params(int from, int to, Timestamp start, Timestamp end, int maxStops) {
+        return List.of(FlightNetworkGenerator.airportCode(from), FlightNetworkGenerator.airportCode(to),
+                start, end, maxStops, "any");
+    }
+
+    /**
+     * First pair, walking down from the hubs, with no direct flight that day but with itineraries of
+     * exactly {@code maxStops} stops, so the benchmark exercises the full search depth.
+     */
+    private List<Object> connectingPair(Timestamp start, Timestamp end, int maxStops) {
+        for (int to = airports - 1; to > 0; to--) {
+            for (int from = 0; from < to; from++) {
+                if (!database.selectFlights(TABLES, "departdatetime", params(from, to, start, end, 0), 1).isEmpty()) {
+                    continue;
+                }
+                if (maxStops > 1 && !database.selectFlights(TABLES, "departdatetime", params(from, to, start, end, maxStops - 1), 1).isEmpty()) {
+                    continue;
+                }
+                List<Object> candidate = params(from, to, start, end, maxStops);
+                if (!database.selectFlights(TABLES, "departdatetime", candidate, 1).isEmpty()) {
+                    return candidate;
+                }
+            }
+        }
+        throw new IllegalStateException("No " + maxStops + "-stop pair in a network of " + airports + " airports");
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import backend.classes.database.InMemoryDatabase;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Time to serve a burst of concurrent search requests on platform threads versus virtual threads.
+ * Each request blocks for {@code queryMillis} to stand in for a JDBC round trip, then runs a direct
+ * search against {@link InMemoryDatabase}. The platform executor is sized like Tomcat's default
+ * worker pool. The {@code guard} parameter holds the simulated query under a ReentrantLock or under
+ * synchronized; on Java 21 the latter pins the virtual thread to its carrier for the whole wait.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadModelBenchmark {
+    private static final List<AirlineTable> TABLES = List.of(AirlineTable.values());
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int PAGE = 20;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "2000", "10000"})
+    public int concurrency;
+
+    @Param("5")
+    public int queryMillis;
+
+    @Param({"lock", "synchronized"})
+    public String guard;
+
+    private InMemoryDatabase database;
+    private ExecutorService executor;
+    private List<Object> params;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new InMemoryDatabase();
+        database.load(new FlightNetworkGenerator(50, 2000, 1.1, 2, 509L).generate());
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+        Timestamp dayStart = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY);
+        Timestamp dayEnd = Timestamp.valueOf(FlightNetworkGenerator.FIRST_DAY.plusDays(1).minusNanos(1_000_000));
+        params = List.of(FlightNetworkGenerator.airportCode(0), FlightNetworkGenerator.airportCode(1),
+                dayStart, dayEnd, 0, "any");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        database.close();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<List<FlightInterface>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            responses.add(executor.submit(this::request));
+        }
+        int results = 0;
+        for (Future<List<FlightInterface>> response : responses) {
+            results += response.get().size();
+        }
+        return results;
+    }
+
+    private List<FlightInterface> request() throws InterruptedException {
+        if (guard.equals("synchronized")) {
+            Object monitor = new Object();
+            synchronized (monitor) {
+                Thread.sleep(queryMillis);
+            }
+        } else {
+            ReentrantLock lock = new ReentrantLock();
+            lock.lock();
+            try {
+                Thread.sleep(queryMillis);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return database.selectFlights(TABLES, "departdatetime", params, PAGE + 1);
+    }
+}
@@ -0,0 +1,14 @@
+package backend.classes.cache;
+
+public record CacheStats(long hits,
+                         long misses,
+                         long evictions,
+                         long invalidations,
+                         int entries,
+                         long bytes) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,155 @@
+package backend.classes.cache;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets identical searches that run at the same time share one computation. The first caller for a
+ * key starts the search on a virtual thread; callers that arrive while it runs wait for the same
+ * result instead of querying again. Every caller waits with its own timeout and can give up on its
+ * own; the search itself is cancelled only once all of its callers have left. Nothing is kept once
+ * the search finishes, repeat requests are {@link SearchResultCache}'s job.
+ */
+public class SearchCoalescer implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Search<V> {
+        V run() throws SQLException;
+    }
+
+    public record Stats(long started, long joined, long timeouts, long cancelled, int inFlight) {
+        /** Share of callers that were served by a search another caller had already started. */
+        public double hitRate() {
+            long requests = started + joined;
+            return requests == 0 ? 0.0 : (double) joined / requests;
+        }
+    }
+
+    private final class InFlight<V> extends FutureTask<V> {
+        private final Object key;
+        private int waiters;
+
+        InFlight(Object key, Search<V> search) {
+            super(search::run);
+            this.key = key;
+        }
+
+        /** False if every earlier caller already gave up and the search was cancelled. */
+        synchronized boolean enter() {
+            if (isCancelled()) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        synchronized void leave() {
+            if (--waiters == 0 && !isDone() && cancel(true)) {
+                cancelled.increment();
+            }
+        }
+
+        @Override
+        protected void done() {
+            inFlight.remove(key, this);
+        }
+    }
+
+    private final long timeoutMillis;
+    private final Map<Object, InFlight<?>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /** {@code timeoutMillis} is how long each caller waits for a result; 0 waits indefinitely. */
+    public SearchCoalescer(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Rows to compute for a caller that needs {@code rows}: the next power of two, so callers asking
+     * for similar page sizes share one search and each takes its own slice.
+     */
+    public static int window(int rows) {
+        if (rows <= 1) return 1;
+        int window = Integer.highestOneBit(rows - 1) << 1;
+        return window > 0 ? window : rows;
+    }
+
+    /**
+     * Result of {@code search} for {@code key}, joining the search already running for an equal key
+     * if there is one. Keys must identify everything the result depends on, including its type.
+     * Throws SQLTimeoutException if this caller's wait runs out; the search keeps going for the others.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V join(Object key, Search<V> search) throws SQLException {
+        InFlight<V> flight;
+        while (true) {
+            InFlight<V> created = new InFlight<>(key, search);
+            InFlight<?> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                created.enter();
+                try {
+                    executor.execute(created);
+                } catch (RejectedExecutionException e) {
+                    inFlight.remove(key, created);
+                    throw new SQLException("Flight search is shutting down", e);
+                }
+                started.increment();
+                flight = created;
+                break;
+            }
+            if (((InFlight<V>) existing).enter()) {
+                joined.increment();
+                flight = (InFlight<V>) existing;
+                break;
+            }
+            // Cancelled and on its way out of the map; start over with a fresh search
+            inFlight.remove(key, existing);
+        }
+
+        try {
+            return timeoutMillis > 0 ? flight.get(timeoutMillis, TimeUnit.MILLISECONDS) : flight.get();
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new SQLTimeoutException("Timed out after " + timeoutMillis + " ms waiting for flight search");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for flight search", e);
+        } catch (CancellationException e) {
+            throw new SQLException("Flight search was cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Flight search failed", e.getCause());
+        } finally {
+            flight.leave();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(started.sum(), joined.sum(), timeouts.sum(), cancelled.sum(), inFlight.size());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,68 @@
+package backend.classes.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Normalized search parameters. Open-ended windows (empty strings from the controller) are kept as
+ * null so the key can be built without touching the database.
+ */
+public record SearchKey(String origin,
+                        String destination,
+                        LocalDateTime start,
+                        LocalDateTime end,
+                        int maxStops,
+                        String airline,
+                        String sortBy,
+                        boolean roundTrip,
+                        LocalDateTime returnStart,
+                        LocalDateTime returnEnd,
+                        int minStayMinutes) {
+
+    public static SearchKey oneWay(String origin, String destination, String start, String end,
+                                   Integer maxStops, String airline, String sortBy) {
+        return new SearchKey(airport(origin), airport(destination), time(start), time(end),
+                maxStops == null ? 0 : maxStops, lower(airline), lower(sortBy), false, null, null, 0);
+    }
+
+    public static SearchKey roundTrip(String origin, String destination, String start, String end,
+                                      Integer maxStops, String airline, String returnStart, String returnEnd,
+                                      String sortBy, int minStayMinutes) {
+        return new SearchKey(airport(origin), airport(destination), time(start), time(end),
+                maxStops == null ? 0 : maxStops, lower(airline), lower(sortBy), true,
+                time(returnStart), time(returnEnd), minStayMinutes);
+    }
+
+    /** Whether a flight between these airports departing on {@code date} could appear in this search. */
+    boolean covers(String departAirport, String arriveAirport, LocalDate date, boolean anyAirport) {
+        boolean outbound = within(date, start, end)
+                && (anyAirport || (matches(departAirport, origin) && matches(arriveAirport, destination)));
+        if (outbound || !roundTrip) {
+            return outbound;
+        }
+        return within(date, returnStart, returnEnd)
+                && (anyAirport || (matches(departAirport, destination) && matches(arriveAirport, origin)));
+    }
+
+    private static boolean within(LocalDate date, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !date.isBefore(from.toLocalDate()))
+                && (to == null || !date.isAfter(to.toLocalDate()));
+    }
+
+    private static boolean matches(String airport, String query) {
+        return query.isEmpty() || airport == null || airport.toUpperCase().contains(query);
+    }
+
+    private static String airport(String s) {
+        return s == null ? "" : s.trim().toUpperCase();
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.trim().toLowerCase();
+    }
+
+    private static LocalDateTime time(String s) {
+        return s == null || s.isEmpty() ? null : LocalDateTime.parse(s, DateTimeFormatter.ISO_DATE_TIME);
+    }
+}
@@ -0,0 +1,148 @@
+package backend.classes.cache;
+
+import backend.interfaces.FlightInterface;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of search response pages, bounded by entry count and by an estimate of retained bytes.
+ * Writes to the flight tables invalidate only the entries whose airports and date windows could
+ * include the changed flight; searches that were answered with connections are invalidated by
+ * date alone, since any new leg in their window can change the result.
+ */
+public class SearchResultCache {
+    /** The page key, map entry and response map with its few boxed fields. */
+    static final long ENTRY_OVERHEAD_BYTES = 256;
+    /**
+     * One leg as read from SQL, on a 64-bit JVM with compressed oops: the Flight object (56 bytes),
+     * two Timestamps (32 each), a flight number (about 48) and two airport names of about twenty
+     * characters (about 64 each), so roughly 300 bytes. Graph-backed legs are views over shared
+     * rows and retain far less, so the estimate errs on the side of evicting early.
+     */
+    static final long LEG_BYTES = 320;
+
+    private record PageKey(SearchKey search, String position, int pageSize) {
+    }
+
+    private record Entry(Map<String, Object> response, long bytes, boolean connecting) {
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<PageKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public Map<String, Object> get(SearchKey search, String position, int pageSize) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(new PageKey(search, position, pageSize));
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.response();
+    }
+
+    /** Read before computing a result and pass to {@link #put} so results racing a write are not cached. */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(SearchKey search, String position, int pageSize, Map<String, Object> response, long generation) {
+        List<?> flights = (List<?>) response.getOrDefault("flights", List.of());
+        long size = ENTRY_OVERHEAD_BYTES;
+        boolean connecting = search.maxStops() > 0 && flights.isEmpty();
+        for (Object o : flights) {
+            FlightInterface flight = (FlightInterface) o;
+            size += legCount(flight) * LEG_BYTES;
+            connecting |= flight.getNextFlight() != null
+                    || (flight.getReturnTrip() != null && flight.getReturnTrip().getNextFlight() != null);
+        }
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry entry = new Entry(Collections.unmodifiableMap(new HashMap<>(response)), size, connecting);
+        synchronized (this) {
+            if (generation != this.generation.get()) {
+                return;
+            }
+            Entry previous = entries.put(new PageKey(search, position, pageSize), entry);
+            if (previous != null) {
+                bytes -= previous.bytes();
+            }
+            bytes += size;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** Drops every entry that a flight between these airports, departing at {@code departure}, could affect. */
+    public void invalidate(String departAirport, String arriveAirport, Timestamp departure) {
+        if (departure == null) {
+            invalidateAll();
+            return;
+        }
+        var date = departure.toLocalDateTime().toLocalDate();
+        synchronized (this) {
+            generation.incrementAndGet();
+            Iterator<Map.Entry<PageKey, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<PageKey, Entry> e = it.next();
+                if (e.getKey().search().covers(departAirport, arriveAirport, date, e.getValue().connecting())) {
+                    bytes -= e.getValue().bytes();
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void invalidate(FlightInterface flight) {
+        if (flight != null) {
+            invalidate(flight.getDepartureAirport(), flight.getArrivalAirport(), flight.getDepartureTime());
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size(), bytes);
+    }
+
+    private static int legCount(FlightInterface flight) {
+        int legs = 0;
+        for (FlightInterface f = flight; f != null; f = f.getNextFlight()) {
+            legs++;
+        }
+        for (FlightInterface f = flight.getReturnTrip(); f != null; f = f.getNextFlight()) {
+            legs++;
+        }
+        return legs;
+    }
+}
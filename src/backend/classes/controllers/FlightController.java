@@ -1,16 +1,39 @@
 package backend.classes.controllers;
 
+import backend.classes.cache.CacheStats;
+import backend.classes.holds.SeatHold;
+import backend.classes.imports.ChangeReport;
+import backend.classes.imports.ImportReport;
+import backend.classes.imports.ScheduleImporter;
+import backend.classes.imports.ScheduleRow;
 import backend.classes.records.Flight;
+import backend.classes.records.FlightKey;
+import backend.classes.serialization.SearchResponse;
+import backend.classes.serialization.SearchResponseConverter;
+import backend.classes.serialization.SearchResponseWriter;
 import backend.classes.services.FlightService;
 import backend.exceptions.NoSeatsAvailableException;
 import backend.interfaces.FlightInterface;
-import enums.AirlineTable;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -18,16 +41,24 @@ import java.util.NoSuchElementException;
 @RequestMapping("/flights")
 @CrossOrigin(origins = "*")
 public class FlightController {
+    private static final Logger log = LoggerFactory.getLogger(FlightController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final FlightService flightService;
+    private final ObjectMapper objectMapper;
 
-    public FlightController(FlightService flightService) {
+    public FlightController(FlightService flightService, ObjectMapper objectMapper) {
         this.flightService = flightService;
+        this.objectMapper = objectMapper;
     }
 
-    // flights?departureAirport=...&arriveAirport=...&startTime=...&endTime=...&sortBy=...&page=...&pageSize=...
+    // flights?departureAirport=...&arriveAirport=...&startTime=...&endTime=...&sortBy=...&page=...&pageSize=...&cursor=...
+    // Round trips (oneWay=false) are ranked by the same sortBy; minStayMinutes overrides the configured minimum stay.
+    // format=compact (or Accept: application/vnd.flights.compact+json) sends airports and airlines once, legs by index.
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getFlights(
+    public ResponseEntity<?> getFlights(
             HttpServletRequest request,
+            @RequestHeader(value = "Accept", required = false) String accept,
             @RequestParam String departureAirport,
             @RequestParam String arriveAirport,
             @RequestParam String startTime,
@@ -37,58 +68,202 @@ public class FlightController {
             @RequestParam String returnDateEnd,
             @RequestParam Integer maxStops,
             @RequestParam String airline,
+            @RequestParam(required = false) Integer minStayMinutes,
             @RequestParam(defaultValue = "traveltime") String sortBy,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "5") int pageSize) {
+            @RequestParam(defaultValue = "5") int pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String format) {
         try {
-            request.getParameterMap().forEach((k, v) ->
-                    System.out.println(k + " = " + Arrays.toString(v))
-            );
+            if (log.isDebugEnabled()) {
+                request.getParameterMap().forEach((k, v) -> log.debug("{} = {}", k, Arrays.toString(v)));
+            }
             Map<String, Object> result;
             if (!oneWay) {
                 result = this.flightService.searchRoundTrip(
                         departureAirport, arriveAirport,
                         startTime, endTime, maxStops, airline,
-                        returnDateStart, returnDateEnd,
-                        sortBy, page, pageSize
+                        returnDateStart, returnDateEnd, minStayMinutes,
+                        sortBy, page, pageSize, cursor
                 );
             } else {
-                System.out.println("oneWay");
                 result = this.flightService.searchFlights(
                         departureAirport, arriveAirport,
                         startTime, endTime, maxStops, airline,
-                        sortBy, page, pageSize
+                        sortBy, page, pageSize, cursor
                 );
             }
-            System.out.println("Received request: page=" + page + ", pageSize=" + pageSize);
-            return ResponseEntity.ok(result);
+            boolean compact = SearchResponseWriter.FORMAT_COMPACT.equalsIgnoreCase(format)
+                    || (accept != null && accept.contains(SearchResponseConverter.COMPACT_JSON.toString()));
+            return ResponseEntity.ok()
+                    .contentType(compact ? SearchResponseConverter.COMPACT_JSON : MediaType.APPLICATION_JSON)
+                    .body(new SearchResponse(result, compact));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         }
     }
 
-    // Add Flight
-    // Currently utilizing Deltas table as a placeholder
+    // flights/stream?departureAirport=...&arriveAirport=...&startTime=...&endTime=...&maxStops=...&airline=...&limit=...
+    // One-way results written as they are found: NDJSON, or Server-Sent Events with Accept: text/event-stream.
+    // Writes block while the client is behind, pausing the search; it stops at limit or on disconnect.
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamFlights(
+            @RequestHeader(value = "Accept", required = false) String accept,
+            @RequestParam String departureAirport,
+            @RequestParam String arriveAirport,
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam Integer maxStops,
+            @RequestParam String airline,
+            @RequestParam(defaultValue = "traveltime") String sortBy,
+            @RequestParam(defaultValue = "50") int limit) throws JsonProcessingException {
+        if (limit < 1) {
+            byte[] error = objectMapper.writeValueAsBytes(Map.of("error", "limit must be at least 1: " + limit));
+            return ResponseEntity.status(400).contentType(MediaType.APPLICATION_JSON).body(out -> out.write(error));
+        }
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        StreamingResponseBody body = out -> {
+            int[] sent = {0};
+            try {
+                flightService.streamFlights(departureAirport, arriveAirport, startTime, endTime, maxStops,
+                        airline, sortBy, limit, flight -> emit(out, sse, "flight", flight) && ++sent[0] < limit);
+                if (sse) {
+                    emit(out, true, "end", Map.of("count", sent[0]));
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Streaming search failed after {} flights: {}", sent[0], e.getMessage());
+                emit(out, sse, "error", Map.of("error", e.getMessage() == null ? e.toString() : e.getMessage()));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : NDJSON)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    // Writes one record and flushes it; false once the client has gone away. Flights are written
+    // like the items of GET /flights, whatever FlightInterface the search produced.
+    private boolean emit(OutputStream out, boolean sse, String event, Object value) {
+        try {
+            byte[] json = value instanceof FlightInterface flight ? toJson(flight) : objectMapper.writeValueAsBytes(value);
+            if (sse) {
+                out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+                out.write(json);
+                out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write(json);
+                out.write('\n');
+            }
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            log.debug("Client stopped reading the stream: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private byte[] toJson(FlightInterface flight) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(bytes)) {
+            SearchResponseWriter.writeFlight(gen, flight);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Search result cache hit/miss/eviction counters
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        CacheStats stats = flightService.getCacheStats();
+        return ResponseEntity.ok(Map.of(
+                "hits", stats.hits(),
+                "misses", stats.misses(),
+                "hitRate", stats.hitRate(),
+                "evictions", stats.evictions(),
+                "invalidations", stats.invalidations(),
+                "entries", stats.entries(),
+                "bytes", stats.bytes()
+        ));
+    }
+
+    // Add Flight to the table named by "airline"
     @PostMapping
-    public ResponseEntity<?> addFlight(@RequestBody Flight flight) {
+    public ResponseEntity<?> addFlight(@RequestBody Map<String, Object> body) {
         try {
-            int newId = flightService.addFlight(flight, AirlineTable.DELTAS);
+            Map<String, String> fields = new HashMap<>();
+            body.forEach((k, v) -> {
+                if (v != null) fields.put(ScheduleRow.field(k), v.toString());
+            });
+            int newId = flightService.addFlight(ScheduleRow.parse(fields));
             return ResponseEntity.ok(Map.of("id", newId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
+
+    // Bulk import a schedule streamed as CSV (header row required) or NDJSON
+    // flights/import?format=csv|ndjson, otherwise taken from the Content-Type
+    @PostMapping("/import")
+    public ResponseEntity<?> importSchedule(HttpServletRequest request,
+                                            @RequestParam(required = false) String format) {
+        try {
+            ScheduleImporter.Format importFormat = ScheduleImporter.Format.of(
+                    format != null ? format : request.getContentType());
+            ImportReport report = flightService.importSchedule(request.getInputStream(), importFormat);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "Could not read schedule: " + e.getMessage()));
+        }
+    }
+
+    // Load flights another writer inserted since startup (e.g. the ImportSchedule CLI)
+    @PostMapping("/reload")
+    public ResponseEntity<?> loadNewFlights() {
+        try {
+            return ResponseEntity.ok(Map.of("added", flightService.loadNewFlights()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
+
+    // Apply many schedule changes at once, in one transaction, with an outcome per item
+    // Body: {"updates": [{"id": 12, "airline": "Delta", "flightNumber": ..., "departureTime": ..., ...}],
+    //        "deletes": [{"id": 40, "airline": "Southwest"}]}
+    @PostMapping("/changes")
+    public ResponseEntity<?> applyChanges(@RequestBody Map<String, List<Map<String, Object>>> body) {
+        try {
+            ChangeReport report = flightService.applyChanges(body.get("updates"), body.get("deletes"));
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         }
     }
 
     //  Update flight by ID
+    // Ids are only unique per airline: ?airline=Delta picks the table, otherwise the first that has the id
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateFlight(@PathVariable int id, @RequestBody Flight flight) {
+    public ResponseEntity<?> updateFlight(@PathVariable int id, @RequestParam(required = false) String airline,
+                                          @RequestBody Flight flight) {
         try {
-            boolean updated = flightService.updateFlight(id, flight);
+            boolean updated = flightService.updateFlight(id, airline, flight);
             if (updated) {
                 return ResponseEntity.ok(Map.of("message", "Flight updated"));
             } else {
                 return ResponseEntity.status(404).body(Map.of("error", "Flight not found"));
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         }
@@ -96,27 +271,31 @@ public class FlightController {
 
     // Delete flight by id
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteFlight(@PathVariable int id) {
+    public ResponseEntity<?> deleteFlight(@PathVariable int id, @RequestParam(required = false) String airline) {
         try {
-            boolean deleted = flightService.deleteFlight(id);
+            boolean deleted = flightService.deleteFlight(id, airline);
             if (deleted) {
                 return ResponseEntity.ok(Map.of("message", "Flight deleted"));
             } else {
                 return ResponseEntity.status(404).body(Map.of("error", "Flight not found"));
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         }
     }
 
-    // Get flight by id
+    // Get flight by id; ?airline= picks the table as for update and delete
     @GetMapping("/{id}")
-    public ResponseEntity<?> getFlightById(@PathVariable int id) {
+    public ResponseEntity<?> getFlightById(@PathVariable int id, @RequestParam(required = false) String airline) {
         try {
-            FlightInterface flight = flightService.getFlightById(id);
+            FlightInterface flight = flightService.getFlightById(id, airline);
             return ResponseEntity.ok(flight);
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         }
@@ -124,14 +303,15 @@ public class FlightController {
 
     // Reserve a seat on a flight if available
     @PostMapping("/{id}/reserve")
-    public ResponseEntity<?> reserveSeat(@PathVariable int id) {
-        System.out.println("reserveSeat called with id: " + id);
-        System.out.println("reserveSeat in FlightController");
+    public ResponseEntity<?> reserveSeat(@PathVariable int id, @RequestParam(required = false) String airline) {
+        log.debug("reserveSeat called with id: {}", id);
         try {
-            FlightInterface flight = flightService.decreaseSeatsAvailable(id);
+            FlightInterface flight = flightService.decreaseSeatsAvailable(id, airline);
             return ResponseEntity.ok(flight);
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (SQLException e) {
             return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
         } catch (NoSeatsAvailableException e) {
@@ -140,4 +320,65 @@ public class FlightController {
                     .body(Map.of("error", e.getMessage()));
         }
     }
+
+    // Reserve a seat on every leg of an itinerary in one transaction
+    // Body: [{"id": 12, "airline": "Delta"}, {"id": 40, "airline": "Southwest"}]
+    @PostMapping("/itineraries/reserve")
+    public ResponseEntity<?> reserveItinerary(@RequestBody List<FlightKey> legs) {
+        try {
+            List<FlightInterface> flights = flightService.reserveItinerary(legs);
+            return ResponseEntity.ok(Map.of("flights", flights));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (NoSeatsAvailableException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
+
+    // Hold a seat on every leg for ttlSeconds (server default if omitted)
+    // Body: [{"id": 12, "airline": "Delta"}, ...]
+    @PostMapping("/holds")
+    public ResponseEntity<?> createHold(@RequestBody List<FlightKey> legs,
+                                        @RequestParam(required = false) Long ttlSeconds) {
+        try {
+            SeatHold hold = flightService.createHold(legs, ttlSeconds);
+            return ResponseEntity.status(201).body(hold);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (NoSeatsAvailableException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
+
+    // Keep the held seats
+    @PostMapping("/holds/{holdId}/confirm")
+    public ResponseEntity<?> confirmHold(@PathVariable String holdId) {
+        try {
+            return ResponseEntity.ok(flightService.confirmHold(holdId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
+
+    // Give the held seats back
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<?> releaseHold(@PathVariable String holdId) {
+        try {
+            return ResponseEntity.ok(flightService.releaseHold(holdId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        } catch (SQLException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Database error: " + e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package backend.classes.database;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Known airports by code, built from the flight tables. Resolves what a user typed into the set of
+ * codes it refers to, so queries can match the indexed code columns exactly.
+ */
+public class AirportDictionary {
+    private final Map<String, String> namesByCode = new ConcurrentHashMap<>();
+
+    public void register(String airport) {
+        if (airport == null || airport.isBlank()) return;
+        namesByCode.putIfAbsent(FlightGraph.airportCode(airport), airport);
+    }
+
+    public int size() {
+        return namesByCode.size();
+    }
+
+    /**
+     * Codes matching {@code input}: null for blank input (no airport filter), the code itself for an
+     * exact code, otherwise every airport whose name or code contains the input, ignoring case.
+     */
+    public Set<String> resolve(String input) {
+        if (input == null || input.isBlank()) return null;
+
+        String query = input.trim().toUpperCase();
+        if (namesByCode.containsKey(query)) {
+            return Set.of(query);
+        }
+
+        Set<String> codes = new TreeSet<>();
+        for (Map.Entry<String, String> e : namesByCode.entrySet()) {
+            if (e.getKey().contains(query) || e.getValue().toUpperCase().contains(query)) {
+                codes.add(e.getKey());
+            }
+        }
+        return codes;
+    }
+}
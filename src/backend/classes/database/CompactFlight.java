@@ -0,0 +1,121 @@
+package backend.classes.database;
+
+import backend.interfaces.FlightInterface;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.sql.Timestamp;
+
+/**
+ * One row of a {@link CompactFlightStore}, read through to its columns. The search-only getters
+ * are hidden from Jackson so a CompactFlight serializes like a Flight.
+ */
+public final class CompactFlight implements FlightInterface {
+    private final CompactFlightStore store;
+    private final int row;
+
+    CompactFlight(CompactFlightStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    CompactFlightStore store() {
+        return store;
+    }
+
+    int row() {
+        return row;
+    }
+
+    @JsonIgnore
+    public int getDepartureMinute() {
+        return store.departMinute(row);
+    }
+
+    @JsonIgnore
+    public int getArrivalMinute() {
+        return store.arriveMinute(row);
+    }
+
+    @JsonIgnore
+    public int getDurationMinutes() {
+        return store.durationMinutes(row);
+    }
+
+    @JsonIgnore
+    public String getDepartureCode() {
+        return store.departureCode(row);
+    }
+
+    @JsonIgnore
+    public String getArrivalCode() {
+        return store.arrivalCode(row);
+    }
+
+    @Override
+    public int getId() {
+        return store.id(row);
+    }
+
+    @Override
+    public String getFlightNumber() {
+        return store.flightNumber(row);
+    }
+
+    @Override
+    public String getDepartureAirport() {
+        return store.departureAirport(row);
+    }
+
+    @Override
+    public String getArrivalAirport() {
+        return store.arrivalAirport(row);
+    }
+
+    @Override
+    public Timestamp getDepartureTime() {
+        return CompactFlightStore.timestamp(store.departMinute(row));
+    }
+
+    @Override
+    public Timestamp getArrivalTime() {
+        return CompactFlightStore.timestamp(store.arriveMinute(row));
+    }
+
+    @Override
+    public String getAirline() {
+        return store.airline(row);
+    }
+
+    @Override
+    public int getSeatsFree() {
+        return store.seats(row);
+    }
+
+    @Override
+    public void reserved() {
+        store.addSeats(row, -1);
+    }
+
+    @Override
+    public void released() {
+        store.addSeats(row, 1);
+    }
+
+    @Override
+    public FlightInterface getNextFlight() {
+        return null;
+    }
+
+    @Override
+    public FlightInterface getReturnTrip() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactFlight{id=" + getId() + ", flightNumber='" + getFlightNumber() + "', departureAirport='"
+                + getDepartureAirport() + "', arrivalAirport='" + getArrivalAirport() + "', departureTime="
+                + getDepartureTime() + ", arrivalTime=" + getArrivalTime() + ", airline=" + getAirline()
+                + ", seatsFree=" + getSeatsFree() + "}";
+    }
+}
@@ -0,0 +1,185 @@
+package backend.classes.database;
+
+import backend.interfaces.FlightInterface;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Column store behind the in-memory flight indexes. Times are epoch minutes (see
+ * {@link FlightGraph#toEpochMinute}) with the duration precomputed, and airports, airlines and
+ * flight numbers are interned to int ids, so a flight is eight ints plus one small
+ * {@link CompactFlight} handle instead of a Flight with two Timestamps and four Strings.
+ *
+ * Rows are append-only and never move: columns grow by whole segments, so readers index into them
+ * without locking while a writer appends. Seat counts are the only column that changes after a
+ * row is written, atomically, since seats are taken and returned from many threads at once. Rows
+ * dropped from an index stay allocated until {@link FlightGraph} copies the live rows into a new
+ * store.
+ */
+public final class CompactFlightStore {
+    private static final int SEGMENT_BITS = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final class Segment {
+        private final int[] ids = new int[SEGMENT_SIZE];
+        private final int[] departMinutes = new int[SEGMENT_SIZE];
+        private final int[] durations = new int[SEGMENT_SIZE];
+        private final int[] departAirports = new int[SEGMENT_SIZE];
+        private final int[] arriveAirports = new int[SEGMENT_SIZE];
+        private final int[] flightNumbers = new int[SEGMENT_SIZE];
+        private final int[] airlines = new int[SEGMENT_SIZE];
+        private final AtomicIntegerArray seats = new AtomicIntegerArray(SEGMENT_SIZE);
+        private final CompactFlight[] flights = new CompactFlight[SEGMENT_SIZE];
+    }
+
+    /** Strings by id; ids are handed out in order and never reused. */
+    private static final class Interner {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int count;
+
+        private int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count] = value;
+            ids.put(value, count);
+            return count++;
+        }
+
+        private String get(int id) {
+            return values[id];
+        }
+
+        private int size() {
+            return count;
+        }
+    }
+
+    private final Interner airports = new Interner();
+    private final Interner airportCodes = new Interner();
+    private final Interner airlines = new Interner();
+    private final Interner flightNumbers = new Interner();
+    // Airport id to the id of its code, filled in as airports are interned
+    private volatile int[] codeOfAirport = new int[16];
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int size;
+
+    /** Appends a copy of {@code flight} and returns its handle. */
+    public synchronized CompactFlight add(FlightInterface flight) {
+        int row = size;
+        int segmentIndex = row >>> SEGMENT_BITS;
+        if (segmentIndex == segments.length) {
+            Segment[] grown = Arrays.copyOf(segments, segmentIndex + 1);
+            grown[segmentIndex] = new Segment();
+            segments = grown;
+        }
+        Segment segment = segments[segmentIndex];
+        int i = row & SEGMENT_MASK;
+
+        int depart = (int) FlightGraph.toEpochMinute(flight.getDepartureTime());
+        segment.ids[i] = flight.getId();
+        segment.departMinutes[i] = depart;
+        segment.durations[i] = (int) FlightGraph.toEpochMinute(flight.getArrivalTime()) - depart;
+        segment.departAirports[i] = airport(flight.getDepartureAirport());
+        segment.arriveAirports[i] = airport(flight.getArrivalAirport());
+        segment.flightNumbers[i] = flightNumbers.intern(flight.getFlightNumber());
+        segment.airlines[i] = airlines.intern(flight.getAirline());
+        segment.seats.set(i, flight.getSeatsFree());
+        CompactFlight handle = new CompactFlight(this, row);
+        segment.flights[i] = handle;
+        size = row + 1;
+        return handle;
+    }
+
+    private int airport(String name) {
+        int before = airports.size();
+        int id = airports.intern(name);
+        if (id == before) {
+            int[] codes = codeOfAirport;
+            if (id == codes.length) {
+                codes = Arrays.copyOf(codes, id * 2);
+            }
+            codes[id] = airportCodes.intern(FlightGraph.airportCode(name));
+            codeOfAirport = codes;
+        }
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Handle for {@code row}; the same object every time. */
+    public CompactFlight flight(int row) {
+        return segment(row).flights[row & SEGMENT_MASK];
+    }
+
+    private Segment segment(int row) {
+        return segments[row >>> SEGMENT_BITS];
+    }
+
+    int id(int row) {
+        return segment(row).ids[row & SEGMENT_MASK];
+    }
+
+    int departMinute(int row) {
+        return segment(row).departMinutes[row & SEGMENT_MASK];
+    }
+
+    int arriveMinute(int row) {
+        Segment s = segment(row);
+        int i = row & SEGMENT_MASK;
+        return s.departMinutes[i] + s.durations[i];
+    }
+
+    int durationMinutes(int row) {
+        return segment(row).durations[row & SEGMENT_MASK];
+    }
+
+    String departureAirport(int row) {
+        return airports.get(segment(row).departAirports[row & SEGMENT_MASK]);
+    }
+
+    String arrivalAirport(int row) {
+        return airports.get(segment(row).arriveAirports[row & SEGMENT_MASK]);
+    }
+
+    String departureCode(int row) {
+        return airportCodes.get(codeOfAirport[segment(row).departAirports[row & SEGMENT_MASK]]);
+    }
+
+    String arrivalCode(int row) {
+        return airportCodes.get(codeOfAirport[segment(row).arriveAirports[row & SEGMENT_MASK]]);
+    }
+
+    String flightNumber(int row) {
+        return flightNumbers.get(segment(row).flightNumbers[row & SEGMENT_MASK]);
+    }
+
+    String airline(int row) {
+        return airlines.get(segment(row).airlines[row & SEGMENT_MASK]);
+    }
+
+    int seats(int row) {
+        return segment(row).seats.get(row & SEGMENT_MASK);
+    }
+
+    void addSeats(int row, int delta) {
+        segment(row).seats.getAndAdd(row & SEGMENT_MASK, delta);
+    }
+
+    static Timestamp timestamp(int epochMinute) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC));
+    }
+}
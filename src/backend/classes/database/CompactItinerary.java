@@ -0,0 +1,108 @@
+package backend.classes.database;
+
+import backend.interfaces.FlightInterface;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * A connecting itinerary as an array of store rows. It reads as a chain of legs through
+ * getNextFlight(), but the legs are never copied; each step is a view of the same array.
+ */
+public final class CompactItinerary implements FlightInterface {
+    private final CompactFlightStore store;
+    private final int[] rows;
+    private final int at;
+
+    private CompactItinerary(CompactFlightStore store, int[] rows, int at) {
+        this.store = store;
+        this.rows = rows;
+        this.at = at;
+    }
+
+    /** The legs as one itinerary, or null unless every leg is a row of the same store. */
+    public static CompactItinerary of(List<FlightInterface> legs) {
+        if (legs.isEmpty() || !(legs.get(0) instanceof CompactFlight first)) return null;
+        int[] rows = new int[legs.size()];
+        for (int i = 0; i < rows.length; i++) {
+            if (!(legs.get(i) instanceof CompactFlight leg) || leg.store() != first.store()) return null;
+            rows[i] = leg.row();
+        }
+        return new CompactItinerary(first.store(), rows, 0);
+    }
+
+    @JsonIgnore
+    public int getLegCount() {
+        return rows.length - at;
+    }
+
+    private int row() {
+        return rows[at];
+    }
+
+    @Override
+    public int getId() {
+        return store.id(row());
+    }
+
+    @Override
+    public String getFlightNumber() {
+        return store.flightNumber(row());
+    }
+
+    @Override
+    public String getDepartureAirport() {
+        return store.departureAirport(row());
+    }
+
+    @Override
+    public String getArrivalAirport() {
+        return store.arrivalAirport(row());
+    }
+
+    @Override
+    public Timestamp getDepartureTime() {
+        return CompactFlightStore.timestamp(store.departMinute(row()));
+    }
+
+    @Override
+    public Timestamp getArrivalTime() {
+        return CompactFlightStore.timestamp(store.arriveMinute(row()));
+    }
+
+    @Override
+    public String getAirline() {
+        return store.airline(row());
+    }
+
+    @Override
+    public int getSeatsFree() {
+        return store.seats(row());
+    }
+
+    @Override
+    public void reserved() {
+        store.addSeats(row(), -1);
+    }
+
+    @Override
+    public void released() {
+        store.addSeats(row(), 1);
+    }
+
+    @Override
+    public FlightInterface getNextFlight() {
+        return at + 1 < rows.length ? new CompactItinerary(store, rows, at + 1) : null;
+    }
+
+    @Override
+    public FlightInterface getReturnTrip() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactItinerary{legs=" + getLegCount() + ", first=" + store.flight(row()) + "}";
+    }
+}
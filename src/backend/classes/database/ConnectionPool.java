@@ -0,0 +1,358 @@
+package backend.classes.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections. Borrowed connections are proxies whose close() hands the
+ * underlying connection back to the pool instead of closing it, so callers can keep using
+ * try-with-resources exactly as they would with a plain connection.
+ *
+ * With a statement cache size above zero, MySQL connections are opened with server-side prepared
+ * statements and a per-connection statement cache of that size. The driver keeps no statistics for
+ * that cache, so the pool mirrors its rule: a prepare is a hit when the same SQL, no longer than the
+ * driver's cacheable limit, was prepared on the same physical connection among its last
+ * {@code statementCacheSize} distinct statements. Other URLs get no such cache, and nothing is counted.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30_000;
+    public static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 5;
+    public static final long DEFAULT_LEAK_DETECTION_THRESHOLD_MILLIS = 60_000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 250;
+    /** Longest SQL the MySQL driver will cache; the multi-table search UNIONs run to a few KB. */
+    private static final int STATEMENT_CACHE_SQL_LIMIT = 8192;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMillis;
+    private final int statementCacheSize;
+    private final boolean cachingStatements;
+    private final Properties driverProperties;
+
+    private final Semaphore permits;
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Map<Connection, Map<String, Boolean>> preparedByConnection = new ConcurrentHashMap<>();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final ScheduledExecutorService leakDetector;
+    private volatile boolean closed;
+
+    private static final class Lease {
+        private final Connection raw;
+        private final long borrowedAt;
+        private final String threadName;
+        /** Where the connection was borrowed, or null when leak detection is off and nobody would log it. */
+        private final Exception origin;
+        private volatile boolean reported;
+
+        private Lease(Connection raw, boolean traced) {
+            this.raw = raw;
+            this.borrowedAt = System.currentTimeMillis();
+            this.threadName = Thread.currentThread().getName();
+            this.origin = traced ? new Exception("Connection borrowed here") : null;
+        }
+    }
+
+    public ConnectionPool(String url, String user, String password) {
+        this(url, user, password, DEFAULT_MAX_SIZE, DEFAULT_ACQUIRE_TIMEOUT_MILLIS,
+                DEFAULT_VALIDATION_TIMEOUT_SECONDS, DEFAULT_LEAK_DETECTION_THRESHOLD_MILLIS, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public ConnectionPool(String url, String user, String password,
+                          int maxSize,
+                          long acquireTimeoutMillis,
+                          int validationTimeoutSeconds,
+                          long leakDetectionThresholdMillis) {
+        this(url, user, password, maxSize, acquireTimeoutMillis, validationTimeoutSeconds,
+                leakDetectionThresholdMillis, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public ConnectionPool(String url, String user, String password,
+                          int maxSize,
+                          long acquireTimeoutMillis,
+                          int validationTimeoutSeconds,
+                          long leakDetectionThresholdMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.cachingStatements = this.statementCacheSize > 0 && isMySql(url);
+        this.driverProperties = driverProperties(url, user, password, this.statementCacheSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        if (leakDetectionThresholdMillis > 0) {
+            this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "connection-pool-leak-detector");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1_000, leakDetectionThresholdMillis / 2);
+            this.leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.leakDetector = null;
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection (active=" + getActiveCount()
+                        + ", idle=" + getIdleCount() + ", waiting=" + getWaitingCount() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            Connection raw = takeValidIdle();
+            if (raw == null) {
+                raw = DriverManager.getConnection(url, driverProperties);
+            }
+            Lease lease = new Lease(raw, leakDetector != null);
+            Connection proxy = (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new PooledConnectionHandler(lease));
+            leases.put(proxy, lease);
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private static boolean isMySql(String url) {
+        return url != null && url.startsWith("jdbc:mysql:");
+    }
+
+    private static Properties driverProperties(String url, String user, String password, int statementCacheSize) {
+        Properties properties = new Properties();
+        if (user != null) properties.setProperty("user", user);
+        if (password != null) properties.setProperty("password", password);
+        if (isMySql(url)) {
+            // Lets a JDBC batch go to the server as one round trip instead of one per statement
+            properties.setProperty("rewriteBatchedStatements", "true");
+        }
+        if (statementCacheSize > 0 && isMySql(url)) {
+            properties.setProperty("useServerPrepStmts", "true");
+            properties.setProperty("cachePrepStmts", "true");
+            properties.setProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            properties.setProperty("prepStmtCacheSqlLimit", String.valueOf(STATEMENT_CACHE_SQL_LIMIT));
+        }
+        return properties;
+    }
+
+    /** Counts a prepare of {@code sql} on {@code raw} as a hit or miss of the driver's statement cache. */
+    private void recordPrepare(Connection raw, String sql) {
+        if (sql.length() > STATEMENT_CACHE_SQL_LIMIT) {
+            // The driver prepares it afresh every time
+            statementMisses.increment();
+            return;
+        }
+        // Only the thread holding the lease touches a connection's map, so it needs no lock
+        Map<String, Boolean> prepared = preparedByConnection.computeIfAbsent(raw, c ->
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > statementCacheSize;
+                    }
+                });
+        if (prepared.put(sql, Boolean.TRUE) != null) {
+            statementHits.increment();
+        } else {
+            statementMisses.increment();
+        }
+    }
+
+    private Connection takeValidIdle() {
+        Connection raw;
+        while ((raw = idle.pollFirst()) != null) {
+            try {
+                if (raw.isValid(validationTimeoutSeconds)) {
+                    return raw;
+                }
+            } catch (SQLException ignored) {
+                // treated as invalid below
+            }
+            closeQuietly(raw);
+        }
+        return null;
+    }
+
+    private void release(Connection proxy) {
+        Lease lease = leases.remove(proxy);
+        if (lease == null) {
+            return;
+        }
+
+        Connection raw = lease.raw;
+        boolean reusable = !closed;
+        try {
+            if (raw.isClosed()) {
+                reusable = false;
+            } else if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            idle.offerFirst(raw);
+        } else {
+            closeQuietly(raw);
+        }
+        permits.release();
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases.values()) {
+            long held = now - lease.borrowedAt;
+            if (!lease.reported && held > leakDetectionThresholdMillis) {
+                lease.reported = true;
+                log.warn("Possible connection leak: connection held for {} ms by thread {}",
+                        held, lease.threadName, lease.origin);
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return leases.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /** Whether connections cache prepared statements, and so whether the statement cache counts mean anything. */
+    public boolean isCachingStatements() {
+        return cachingStatements;
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    public double getStatementCacheHitRate() {
+        long hits = statementHits.sum();
+        long requests = hits + statementMisses.sum();
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        Connection raw;
+        while ((raw = idle.pollFirst()) != null) {
+            closeQuietly(raw);
+        }
+    }
+
+    private void closeQuietly(Connection raw) {
+        preparedByConnection.remove(raw);
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+            // nothing useful to do with a connection we are discarding
+        }
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Lease lease;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private PooledConnectionHandler(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release((Connection) proxy);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || lease.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + lease.raw;
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (cachingStatements && args != null && args.length > 0 && args[0] instanceof String sql
+                            && (method.getName().equals("prepareStatement") || method.getName().equals("prepareCall"))) {
+                        recordPrepare(lease.raw, sql);
+                    }
+                    try {
+                        return method.invoke(lease.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,200 +1,476 @@
 package backend.classes.database;
 
+import backend.classes.holds.SeatHold;
+import backend.classes.metrics.SearchMetrics;
+import backend.classes.metrics.SearchMetrics.Stage;
+import backend.classes.records.ChangeOutcome;
 import backend.classes.records.Flight;
+import backend.classes.records.FlightKey;
+import backend.classes.records.FlightPage;
+import backend.classes.records.FlightUpdate;
+import backend.classes.records.RoundTripPage;
+import backend.classes.search.BoundedRouteSearch;
+import backend.classes.search.RoundTripAssembler;
+import backend.classes.search.RouteQuery;
+import backend.classes.search.RouteSearchResult;
+import backend.classes.search.SearchCursor;
+import backend.exceptions.NoSeatsAvailableException;
+import backend.interfaces.AsyncDatabaseInterface;
 import backend.interfaces.DatabaseInterface;
 import backend.interfaces.FlightInterface;
+import backend.interfaces.RouteSearchEngine;
 import enums.AirlineTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public class Database implements DatabaseInterface, AsyncDatabaseInterface {
+    private static final Logger log = LoggerFactory.getLogger(Database.class);
+    /** Statements sent per JDBC batch when applying schedule changes. */
+    private static final int CHANGE_BATCH_SIZE = 1000;
+
+    private final ConnectionPool pool;
+    private final FlightGraph flightGraph = new FlightGraph();
+    private final FlightDirectory flightDirectory = new FlightDirectory();
+    private final DepartureBounds departureBounds = new DepartureBounds();
+    private final AirportDictionary airports = new AirportDictionary();
+    private volatile boolean flightGraphLoaded;
+    // A lock rather than synchronized: the load runs queries, and a virtual thread blocked on I/O
+    // inside a synchronized block stays pinned to its carrier thread.
+    private final ReentrantLock flightGraphLock = new ReentrantLock();
+    private final QueryTemplates queryTemplates = new QueryTemplates();
+    private RouteSearchEngine routeSearchEngine = new BoundedRouteSearch();
+    private SeatInventory seatInventory;
+    private SearchMetrics metrics = SearchMetrics.noop();
+    // Async searches mostly wait on the pool or on MySQL, so each query gets its own virtual thread;
+    // the pool size is what bounds how many run at once.
+    private final ExecutorService queryExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-public class Database implements DatabaseInterface {
+    public Database(String url, String user, String password) throws SQLException {
+        this(new ConnectionPool(url, user, password));
+    }
 
-    private final Connection connection;
+    public Database(ConnectionPool pool) {
+        this.pool = pool;
+    }
 
-    public Database(String url, String user, String password) throws SQLException {
-        this.connection = DriverManager.getConnection(url, user, password);
+    public ConnectionPool getPool() {
+        return pool;
     }
 
-    public int insertFlight(AirlineTable table, List<Object> params) throws SQLException {
-        String sql = "INSERT INTO " + table.getTableName() +
-                " (DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber) " +
-                "VALUES (?, ?, ?, ?, ?)";
+    public QueryTemplates.Stats getQueryTemplateStats() {
+        return queryTemplates.getStats();
+    }
+
+    public FlightGraph getFlightGraph() {
+        return flightGraph;
+    }
+
+    public AirportDictionary getAirports() {
+        return airports;
+    }
+
+    public void setRouteSearchEngine(RouteSearchEngine routeSearchEngine) {
+        this.routeSearchEngine = routeSearchEngine;
+    }
+
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SeatInventory getSeatInventory() {
+        return seatInventory;
+    }
+
+    /** Routes reservations through an in-memory inventory that group-commits them to the tables. */
+    public void enableSeatInventory(int maxBatchSize, long maxDelayMillis) throws SQLException {
+        SeatInventory inventory = new SeatInventory(pool, maxBatchSize, maxDelayMillis);
+        inventory.load();
+        seatInventory = inventory;
+    }
+
+    public void loadFlightGraph() throws SQLException {
+        flightGraphLock.lock();
+        try {
+            Map<AirlineTable, List<FlightInterface>> flightsByTable = new EnumMap<>(AirlineTable.class);
+
+            try (Connection connection = pool.getConnection()) {
+                for (AirlineTable table : AirlineTable.values()) {
+                    String sql = queryTemplates.allFlights(table);
+                    List<FlightInterface> flights = new ArrayList<>();
+                    long start = System.nanoTime();
+                    try (PreparedStatement pstmt = connection.prepareStatement(sql);
+                         ResultSet rs = pstmt.executeQuery()) {
+                        metrics.record(Stage.SQL, start);
+                        start = System.nanoTime();
+                        while (rs.next()) {
+                            Flight flight = new Flight(rs);
+                            airports.register(flight.getDepartureAirport());
+                            airports.register(flight.getArrivalAirport());
+                            flights.add(flight);
+                        }
+                        metrics.record(Stage.MAPPING, start);
+                    }
+                    flightsByTable.put(table, flights);
+                }
+            }
+
+            long start = System.nanoTime();
+            flightGraph.load(flightsByTable);
+            flightDirectory.load(flightsByTable);
+            metrics.record(Stage.INDEX_BUILD, start);
+            flightGraphLoaded = true;
+            refreshDepartureBounds(List.of(AirlineTable.values()));
+            log.info("Loaded flight graph with {} flights.", flightGraph.size());
+        } finally {
+            flightGraphLock.unlock();
+        }
+    }
+
+    private void ensureFlightGraphLoaded() throws SQLException {
+        if (!flightGraphLoaded) {
+            flightGraphLock.lock();
+            try {
+                if (!flightGraphLoaded) {
+                    loadFlightGraph();
+                }
+            } finally {
+                flightGraphLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Whether the in-memory structures have to follow a write that just committed. Until the graph
+     * is first loaded they need not, as the import CLI never loads it: holding the load lock means
+     * no load is reading the tables, so the next one sees the committed rows.
+     */
+    private boolean flightGraphFollowsWrites() {
+        if (flightGraphLoaded) return true;
+        flightGraphLock.lock();
+        try {
+            return flightGraphLoaded;
+        } finally {
+            flightGraphLock.unlock();
+        }
+    }
+
+    /**
+     * Adds flights other writers inserted since the graph was loaded, such as a run of the import
+     * CLI: every row above the highest id the graph holds per table. Updates and deletes made
+     * elsewhere are not picked up. Returns how many flights were added.
+     */
+    public int loadNewFlights() throws SQLException {
+        ensureFlightGraphLoaded();
+        int added = 0;
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : AirlineTable.values()) {
+                List<FlightInterface> flights = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(queryTemplates.flightsAfter(table))) {
+                    pstmt.setInt(1, flightGraph.maxId(table));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            flights.add(new Flight(rs));
+                        }
+                    }
+                }
+                follow(table, flights);
+                added += flights.size();
+            }
+        }
+        if (added > 0) {
+            log.info("Loaded {} flights written elsewhere.", added);
+        }
+        return added;
+    }
+
+    /** Brings the graph, directory, airports, bounds and seat counters up to date with new rows. */
+    private void follow(AirlineTable table, List<FlightInterface> flights) {
+        for (FlightInterface flight : flights) {
+            flightDirectory.add(table, flight.getId());
+            airports.register(flight.getDepartureAirport());
+            airports.register(flight.getArrivalAirport());
+            departureBounds.added(table, flight.getDepartureTime());
+            // A counter this instance already has may be ahead of the table
+            if (seatInventory != null && seatInventory.available(table, flight.getId()) < 0) {
+                seatInventory.track(table, flight.getId(), flight.getSeatsFree());
+            }
+        }
+        flightGraph.putAll(table, flights);
+    }
+
+    private FlightInterface selectFromTable(Connection connection, AirlineTable table, int id) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(queryTemplates.flightById(table))) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Flight(rs) : null;
+            }
+        }
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    public int insertFlight(AirlineTable table, List<Object> params) throws SQLException {
+        String sql = queryTemplates.insertFlight(table);
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             for (int i = 0; i < 5; i++) {
                 pstmt.setObject(i + 1, params.get(i));
             }
+            pstmt.setString(6, FlightGraph.airportCode((String) params.get(2)));
+            pstmt.setString(7, FlightGraph.airportCode((String) params.get(3)));
+            airports.register((String) params.get(2));
+            airports.register((String) params.get(3));
             pstmt.executeUpdate();
 
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
-                    return rs.getInt(1);
+                    int id = rs.getInt(1);
+                    flightDirectory.add(table, id);
+                    FlightInterface inserted = selectFromTable(connection, table, id);
+                    if (inserted != null) {
+                        flightGraph.put(table, inserted);
+                        if (seatInventory != null) {
+                            seatInventory.track(table, id, inserted.getSeatsFree());
+                        }
+                        departureBounds.added(table, inserted.getDepartureTime());
+                    }
+                    return id;
                 }
             }
         }
         return -1;
     }
 
-    private List<FlightInterface> getAllFlightsFromTables(List<AirlineTable> tables, List<Object> params) throws SQLException
-    {
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < tables.size(); i++)
-        {
-            sb.append("SELECT id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, '")
-                    .append(tables.get(i).getTableName()).append("' AS airline ")
-                    .append("FROM ").append(tables.get(i).getTableName()).append(" ")
-                    .append("WHERE DepartDateTime BETWEEN ? AND ? ")
-                    .append("AND DepartDateTime < ArriveDateTime ");
+    @Override
+    public Map<AirlineTable, List<Integer>> insertFlights(Map<AirlineTable, List<List<Object>>> rowsByTable) throws SQLException {
+        Map<AirlineTable, List<Integer>> ids = new EnumMap<>(AirlineTable.class);
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<AirlineTable, List<List<Object>>> e : rowsByTable.entrySet()) {
+                    if (!e.getValue().isEmpty()) {
+                        ids.put(e.getKey(), insertRows(connection, e.getKey(), e.getValue()));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
 
-            if (i < tables.size() - 1)
-            {
-                sb.append(" UNION ");
+            // The import CLI never loads the graph, so it skips reading the rows back
+            if (!flightGraphFollowsWrites()) {
+                return ids;
             }
+            for (Map.Entry<AirlineTable, List<Integer>> e : ids.entrySet()) {
+                follow(e.getKey(), selectFromTable(connection, e.getKey(), e.getValue()));
+            }
+        }
+        return ids;
+    }
+
+    /** One multi-row INSERT; rows without a seat count take the column default. */
+    private List<Integer> insertRows(Connection connection, AirlineTable table, List<List<Object>> rows) throws SQLException {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(table.getTableName())
+                .append(" (DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, DepartCode, ArriveCode, SeatsAvailable) VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(rows.get(i).get(5) == null ? "(?, ?, ?, ?, ?, ?, ?, DEFAULT)" : "(?, ?, ?, ?, ?, ?, ?, ?)");
         }
 
-        List<FlightInterface> flights = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sb.toString()))
-        {
+        List<Integer> ids = new ArrayList<>(rows.size());
+        try (PreparedStatement pstmt = connection.prepareStatement(sb.toString(), Statement.RETURN_GENERATED_KEYS)) {
             int paramIndex = 1;
-            for (int i = 0; i < tables.size(); i++)
-            {
-                pstmt.setObject(paramIndex++, params.get(2));
-                pstmt.setObject(paramIndex++, params.get(3));
+            for (List<Object> row : rows) {
+                for (int i = 0; i < 5; i++) {
+                    pstmt.setObject(paramIndex++, row.get(i));
+                }
+                pstmt.setString(paramIndex++, FlightGraph.airportCode((String) row.get(2)));
+                pstmt.setString(paramIndex++, FlightGraph.airportCode((String) row.get(3)));
+                if (row.get(5) != null) {
+                    pstmt.setObject(paramIndex++, row.get(5));
+                }
             }
-
-            try (ResultSet rs = pstmt.executeQuery())
-            {
-                while (rs.next())
-                {
-                    Timestamp depart = rs.getTimestamp("DepartDateTime");
-                    Timestamp arrive = rs.getTimestamp("ArriveDateTime");
-
-                    if (arrive.after(depart))
-                    {
-                        flights.add(new Flight(rs));
-                    }
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
                 }
             }
         }
+        return ids;
+    }
 
+    private List<FlightInterface> selectFromTable(Connection connection, AirlineTable table, List<Integer> ids) throws SQLException {
+        List<FlightInterface> flights = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) return flights;
+
+        String sql = "SELECT id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, '" +
+                table.getTableName() + "' AS airline FROM " + table.getTableName() + " WHERE id IN (" + placeholders(ids.size()) + ")";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    flights.add(new Flight(rs));
+                }
+            }
+        }
         return flights;
     }
 
     @Override
     public ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params) throws SQLException {
-        List<Object> firstParams = new ArrayList<>();
-        List<Object> secondParams = new ArrayList<>();
-
-        System.out.println("In round trip");
-        System.out.println("Params are " + params);
-        System.out.println("Tables are " + tables);
-        System.out.println("Sort by is " + sortBy);
-
-        // outbound
-        firstParams.add(params.get(0)); // depart
-        firstParams.add(params.get(1)); // arrive
-        firstParams.add(params.get(2)); // outbound window start
-        firstParams.add(params.get(3)); // outbound window end
-        firstParams.add(params.get(4)); // maxStops
-        firstParams.add(params.get(5)); // airlinePref
-
-        // return
-        secondParams.add(params.get(1)); // depart = original arrive
-        secondParams.add(params.get(0)); // arrive = original depart
-        secondParams.add(params.get(6)); // return window start
-        secondParams.add(params.get(7)); // return window end
-        secondParams.add(params.get(4)); // maxStops
-        secondParams.add(params.get(5)); // airlinePref
-
-        ArrayList<FlightInterface> flightsTo = selectFlights(tables, sortBy, firstParams);
-        ArrayList<FlightInterface> flightsReturned = selectFlights(tables, sortBy, secondParams);
-
-        ArrayList<FlightInterface> roundTrips = new ArrayList<>();
-
-        int n = Math.min(flightsTo.size(), flightsReturned.size());
-        for (int i = 0; i < n; i++) {
-            FlightInterface inOrig = flightsReturned.get(i);
-            List<FlightInterface> inLegs = new ArrayList<>();
-            while (inOrig != null) {
-                inLegs.add(inOrig);
-                inOrig = inOrig.getNextFlight();
-            }
-            FlightInterface inHeadCopy = null;
-            for (int j = inLegs.size() - 1; j >= 0; j--) {
-                inHeadCopy = new Flight(inLegs.get(j), inHeadCopy);
-            }
-
-            FlightInterface outOrig = flightsTo.get(i);
-            List<FlightInterface> outLegs = new ArrayList<>();
-            while (outOrig != null) {
-                outLegs.add(outOrig);
-                outOrig = outOrig.getNextFlight();
-            }
-
-            FlightInterface chain = null;
-            for (int j = outLegs.size() - 1; j >= 0; j--) {
-                if (j == 0) {
-                    chain = new Flight(outLegs.get(0), chain, inHeadCopy);
-                } else {
-                    chain = new Flight(outLegs.get(j), chain);
-                }
-            }
+        return selectRoundTrip(tables, sortBy, params, Integer.MAX_VALUE);
+    }
 
-            roundTrips.add(chain);
-        }
+    @Override
+    public ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) throws SQLException {
+        return selectRoundTripPage(tables, sortBy, params, limit).roundTrips();
+    }
 
-        return roundTrips;
+    @Override
+    public RoundTripPage selectRoundTripPage(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) throws SQLException {
+        return await(selectRoundTripAsync(tables, sortBy, params, limit));
     }
 
-    private void dfsConnections(String target,
-                                List<FlightInterface> path,
-                                List<List<FlightInterface>> results,
-                                Map<String, NavigableMap<LocalDateTime, List<FlightInterface>>> departuresByTime,
-                                int maxStops) {
-        FlightInterface last = path.get(path.size() - 1);
-        String lastCode = code(last.getArrivalAirport()).toUpperCase();
-        LocalDateTime arr = last.getArrivalTime().toLocalDateTime();
+    @Override
+    public CompletableFuture<RoundTripPage> selectRoundTripAsync(List<AirlineTable> tables, String sortBy,
+                                                                 List<Object> params, int limit) {
+        log.debug("Round trip search: params={}, tables={}, sortBy={}", params, tables, sortBy);
+        return pairRoundTrips(tables, sortBy, params, limit, RoundTripAssembler.firstBatch(limit), null, null);
+    }
 
-        if (code(last.getArrivalAirport()).equals(target)) {
-            results.add(new ArrayList<>(path));
-            return;
-        }
-        if (path.size() > maxStops + 1) return;
+    /**
+     * Searches the first {@code batch} itineraries of both legs at once and pairs them; while pairs
+     * past either batch could still rank on the page, searches again for a larger batch. A leg
+     * that already returned all of its results is not searched again.
+     */
+    private CompletableFuture<RoundTripPage> pairRoundTrips(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                                            int limit, int batch, ArrayList<FlightInterface> completeTo,
+                                                            ArrayList<FlightInterface> completeReturned) {
+        CompletableFuture<ArrayList<FlightInterface>> flightsTo = completeTo != null
+                ? CompletableFuture.completedFuture(completeTo)
+                : selectFlightsAsync(tables, sortBy, RoundTripAssembler.outboundParams(params), batch);
+        CompletableFuture<ArrayList<FlightInterface>> flightsReturned = completeReturned != null
+                ? CompletableFuture.completedFuture(completeReturned)
+                : selectFlightsAsync(tables, sortBy, RoundTripAssembler.returnParams(params), batch);
+
+        return flightsTo.thenCombine(flightsReturned, (to, back) -> {
+            RoundTripPage page = RoundTripAssembler.pair(to, back, batch, sortBy, params, limit);
+            if (page != null) {
+                return CompletableFuture.completedFuture(page);
+            }
+            log.debug("Round trip page undecided after {} itineraries per leg", batch);
+            return pairRoundTrips(tables, sortBy, params, limit, RoundTripAssembler.nextBatch(to, back, batch),
+                    RoundTripAssembler.complete(to, batch) ? to : null,
+                    RoundTripAssembler.complete(back, batch) ? back : null);
+        }).thenCompose(Function.identity());
+    }
 
-        LocalDateTime windowStart = arr.plusMinutes(30);
-        LocalDateTime windowEnd   = arr.plusMinutes(359);
+    /**
+     * Same results as {@link #selectFlights}, but each table is queried on its own connection at the
+     * same time and the rows are merged back into (sort value, table, id) order.
+     */
+    @Override
+    public CompletableFuture<ArrayList<FlightInterface>> selectFlightsAsync(List<AirlineTable> tables, String sortBy,
+                                                                            List<Object> params, int limit) {
+        log.debug("Async flight search: params={}, tables={}, sortBy={}", params, tables, sortBy);
+        List<Object> dayParams = ensureFullDayRange(params);
+
+        int maxStops = (int) dayParams.get(4);
+        List<AirlineTable> filteredTables = filterTables(tables, dayParams.get(5));
+
+        return supplyAsync(() -> resolveAirports(dayParams))
+                .thenCompose(match -> {
+                    List<CompletableFuture<List<DirectRow>>> perTable = new ArrayList<>();
+                    for (AirlineTable table : filteredTables) {
+                        perTable.add(supplyAsync(() ->
+                                queryDirectFlights(List.of(table), sortBy, dayParams, match, null, 0, limit)));
+                    }
+                    return CompletableFuture.allOf(perTable.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(done -> mergeDirectRows(perTable, limit))
+                            .thenCompose(flights -> {
+                                if (!flights.isEmpty()) {
+                                    log.debug("Found {} direct flights", flights.size());
+                                    return CompletableFuture.completedFuture(flights);
+                                }
+                                log.debug("No direct flights found");
+                                if (maxStops < 1) return CompletableFuture.completedFuture(flights);
+
+                                return supplyAsync(() -> searchConnections(tables, sortBy, dayParams, match, maxStops, limit));
+                            });
+                });
+    }
 
-        NavigableMap<LocalDateTime, List<FlightInterface>> tm =
-                departuresByTime.getOrDefault(lastCode, new TreeMap<>());
+    /** First {@code limit} rows of the per-table results, in the order the UNION query would return. */
+    private static ArrayList<FlightInterface> mergeDirectRows(List<CompletableFuture<List<DirectRow>>> perTable, int limit) {
+        List<DirectRow> rows = new ArrayList<>();
+        for (CompletableFuture<List<DirectRow>> table : perTable) {
+            rows.addAll(table.join());
+        }
+        rows.sort(Comparator.comparingLong((DirectRow row) -> row.position().sortValue())
+                .thenComparing(row -> row.position().table())
+                .thenComparingInt(row -> row.position().id()));
+
+        ArrayList<FlightInterface> flights = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+            flights.add(rows.get(i).flight());
+        }
+        return flights;
+    }
 
-        for (var entry : tm.subMap(windowStart, true, windowEnd, true).entrySet()) {
-            for (FlightInterface next : entry.getValue()) {
-                if (path.contains(next)) continue;
+    @FunctionalInterface
+    private interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
 
-                path.add(next);
-                dfsConnections(target, path, results, departuresByTime, maxStops);
-                path.remove(path.size() - 1);
+    private <T> CompletableFuture<T> supplyAsync(SqlSupplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return query.get();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
             }
-        }
+        }, queryExecutor);
     }
 
-    private String code(String airportWithParen) {
-        int p0 = airportWithParen.indexOf('(');
-        int p1 = airportWithParen.indexOf(')');
-        if (p0 >= 0 && p1 > p0) {
-            return airportWithParen.substring(p0 + 1, p1);
+    /** Waits for an async search, rethrowing whatever it failed with. */
+    private static <T> T await(CompletableFuture<T> search) throws SQLException {
+        try {
+            return search.get();
+        } catch (InterruptedException e) {
+            search.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for flight search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Flight search failed", e.getCause());
         }
-        return airportWithParen.length() >= 3
-                ? airportWithParen.substring(airportWithParen.length() - 3)
-                : airportWithParen;
     }
 
-    private List<Object> ensureFullDayRange(List<Object> params) {
+    static List<Object> ensureFullDayRange(List<Object> params) {
         params = new ArrayList<>(params);
 
         if (params.get(2) instanceof Timestamp && params.get(3) instanceof Timestamp) {
@@ -216,236 +492,933 @@ public class Database implements DatabaseInterface {
     }
 
 
-    public ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables, String sortBy, List<Object> params) throws SQLException {
-        System.out.println("In Database.java");
-        System.out.println("Params are " + params);
-        System.out.println("Tables are " + tables);
-        System.out.println("Sort by is " + sortBy);
-        params = ensureFullDayRange(params);
-
-        int maxStops = (int) params.get(4);
-        String airlinePref = ((String) params.get(5)).toLowerCase();
+    private record DirectRow(FlightInterface flight, SearchCursor position) {
+    }
 
-        List<AirlineTable> filteredTables = switch (airlinePref) {
+    static List<AirlineTable> filterTables(List<AirlineTable> tables, Object airlinePref) {
+        return switch (((String) airlinePref).toLowerCase()) {
             case "southwests" -> List.of(AirlineTable.SOUTHWESTS);
             case "deltas" -> List.of(AirlineTable.DELTAS);
             default -> tables;
         };
+    }
 
-        StringBuilder sb = new StringBuilder();
-        String orderByClause = switch (sortBy.toLowerCase()) {
-            case "arrivedatetime" -> "ORDER BY ArriveDateTime ASC";
-            case "traveltime" -> "ORDER BY TIMESTAMPDIFF(MINUTE, DepartDateTime, ArriveDateTime) ASC";
-            default -> "ORDER BY DepartDateTime ASC";
-        };
+    private boolean sortsByTimestamp(String sortBy) {
+        return !"traveltime".equalsIgnoreCase(sortBy);
+    }
+
+    /** Resolved airport codes for one search; null means no filter, an empty set means no airport matched. */
+    private record AirportMatch(Set<String> depart, Set<String> arrive) {
+        boolean matchesNothing() {
+            return (depart != null && depart.isEmpty()) || (arrive != null && arrive.isEmpty());
+        }
+
+        /** Codes bound for each end, or -1 where that end is not filtered. */
+        int departCodes() {
+            return depart == null ? -1 : depart.size();
+        }
+
+        int arriveCodes() {
+            return arrive == null ? -1 : arrive.size();
+        }
+    }
 
-        for (int i = 0; i < filteredTables.size(); i++) {
-            String tableName = filteredTables.get(i).getTableName();
-            sb.append("SELECT id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, '")
-                    .append(tableName).append("' AS airline ")
-                    .append(" FROM ").append(tableName)
-                    .append(" WHERE DepartAirport LIKE ? ")
-                    .append(" AND ArriveAirport LIKE ? ")
-                    .append(" AND DepartDateTime BETWEEN ? AND ? ")
-                    .append(" AND DepartDateTime < ArriveDateTime ");
+    private AirportMatch resolveAirports(List<Object> params) throws SQLException {
+        ensureFlightGraphLoaded();
+        return new AirportMatch(resolveAirport((String) params.get(0)), resolveAirport((String) params.get(1)));
+    }
 
-            if (i < filteredTables.size() - 1) {
-                sb.append(" UNION ");
+    /**
+     * Codes for one end of a search. The dictionary only knows airports this instance loaded or
+     * wrote itself, so on a miss it is refilled from every airport the tables hold, picking up
+     * those written elsewhere (the importer, another instance, plain SQL), before resolving again.
+     */
+    private Set<String> resolveAirport(String input) throws SQLException {
+        Set<String> codes = airports.resolve(input);
+        if (codes == null || !codes.isEmpty()) return codes;
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(
+                     queryTemplates.allAirports(List.of(AirlineTable.values())));
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                airports.register(rs.getString(1));
             }
         }
+        return airports.resolve(input);
+    }
 
-        sb.append(" ").append(orderByClause);
-        ArrayList<FlightInterface> flights = new ArrayList<>();
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sb.toString(), Statement.RETURN_GENERATED_KEYS)) {
+    private int bindDirectFlightFilter(PreparedStatement pstmt, int paramIndex, List<Object> params, AirportMatch match) throws SQLException {
+        pstmt.setObject(paramIndex++, params.get(2));
+        pstmt.setObject(paramIndex++, params.get(3));
+        if (match.depart() != null) {
+            for (String code : match.depart()) {
+                pstmt.setString(paramIndex++, code);
+            }
+        }
+        if (match.arrive() != null) {
+            for (String code : match.arrive()) {
+                pstmt.setString(paramIndex++, code);
+            }
+        }
+        return paramIndex;
+    }
+
+    private int countDirectFlights(List<AirlineTable> tables, List<Object> params, AirportMatch match) throws SQLException {
+        if (match.matchesNothing()) return 0;
+
+        String sql = queryTemplates.countDirectFlights(tables, match.departCodes(), match.arriveCodes());
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             int paramIndex = 1;
-            for (int i = 0; i < filteredTables.size(); i++) {
-                pstmt.setObject(paramIndex++, "".equals(params.get(0)) ? "%" : "%" + params.get(0) + "%");
-                pstmt.setObject(paramIndex++, "".equals(params.get(1)) ? "%" : "%" + params.get(1) + "%");
-                pstmt.setObject(paramIndex++, params.get(2));
-                pstmt.setObject(paramIndex++, params.get(3));
+            for (int i = 0; i < tables.size(); i++) {
+                paramIndex = bindDirectFlightFilter(pstmt, paramIndex, params, match);
+            }
+            long start = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                metrics.record(Stage.SQL, start);
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Direct flights ordered by (sort value, table, id). With {@code after} set, each branch of the
+     * UNION seeks past that position on its own, so only {@code limit} rows per table are read.
+     */
+    private List<DirectRow> queryDirectFlights(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                               AirportMatch match, SearchCursor after, int offset, int limit) throws SQLException {
+        if (match.matchesNothing()) return new ArrayList<>();
+
+        boolean bounded = limit != Integer.MAX_VALUE;
+        String sql = queryTemplates.directFlights(tables, sortBy, match.departCodes(), match.arriveCodes(),
+                after == null ? null : after.table(), bounded);
+
+        boolean timestampSort = sortsByTimestamp(sortBy);
+        List<DirectRow> rows = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
+            boolean union = tables.size() > 1;
+            for (AirlineTable table : tables) {
+                paramIndex = bindDirectFlightFilter(pstmt, paramIndex, params, match);
+                if (after != null) {
+                    Object sortValue = timestampSort ? new Timestamp(after.sortValue()) : after.sortValue();
+                    pstmt.setObject(paramIndex++, sortValue);
+                    if (table.getTableName().equals(after.table())) {
+                        pstmt.setObject(paramIndex++, sortValue);
+                        pstmt.setInt(paramIndex++, after.id());
+                    }
+                }
+                if (bounded && union) {
+                    pstmt.setLong(paramIndex++, (long) offset + limit);
+                }
+            }
+            if (bounded) {
+                pstmt.setInt(paramIndex++, limit);
+                pstmt.setInt(paramIndex++, offset);
             }
 
+            long start = System.nanoTime();
             try (ResultSet rs = pstmt.executeQuery()) {
+                metrics.record(Stage.SQL, start);
+                start = System.nanoTime();
                 while (rs.next()) {
-                    flights.add(new Flight(rs));
+                    long sortValue = timestampSort ? rs.getTimestamp("sortKey").getTime() : rs.getLong("sortKey");
+                    SearchCursor position = SearchCursor.keyset(sortValue, rs.getString("airline"), rs.getInt("id"));
+                    rows.add(new DirectRow(new Flight(rs), position));
                 }
+                metrics.record(Stage.MAPPING, start);
             }
         }
+        return rows;
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables, String sortBy, List<Object> params) throws SQLException {
+        return selectFlights(tables, sortBy, params, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) throws SQLException {
+        log.debug("Flight search: params={}, tables={}, sortBy={}", params, tables, sortBy);
+        params = ensureFullDayRange(params);
+
+        int maxStops = (int) params.get(4);
+        List<AirlineTable> filteredTables = filterTables(tables, params.get(5));
+
+        ArrayList<FlightInterface> flights = new ArrayList<>();
+        AirportMatch match = resolveAirports(params);
+        for (DirectRow row : queryDirectFlights(filteredTables, sortBy, params, match, null, 0, limit)) {
+            flights.add(row.flight());
+        }
 
         if (!flights.isEmpty()) {
-            System.out.println("Found direct flights: " + flights.size());
+            log.debug("Found {} direct flights", flights.size());
             return flights;
         }
 
-        System.out.println("No direct flights found.");
+        log.debug("No direct flights found");
         if (maxStops < 1) return flights;
 
-        System.out.println("Searching for connecting flights...");
-        List<FlightInterface> allFlights = getAllFlightsFromTables(tables, params);
+        return searchConnections(tables, sortBy, params, match, maxStops, limit);
+    }
+
+    @Override
+    public void streamFlights(List<AirlineTable> tables, String sortBy, List<Object> params, int limit,
+                              Predicate<FlightInterface> sink) throws SQLException {
+        params = ensureFullDayRange(params);
+        int maxStops = (int) params.get(4);
+        List<AirlineTable> filteredTables = filterTables(tables, params.get(5));
 
-        Map<String, NavigableMap<LocalDateTime, List<FlightInterface>>> departuresByTime = new HashMap<>();
+        AirportMatch match = resolveAirports(params);
+        List<DirectRow> rows = queryDirectFlights(filteredTables, sortBy, params, match, null, 0, limit);
+        if (!rows.isEmpty()) {
+            for (DirectRow row : rows) {
+                if (!sink.test(row.flight())) return;
+            }
+            return;
+        }
+        if (maxStops < 1 || limit < 1) return;
 
-        for (FlightInterface f : allFlights) {
-            String depCode = code(f.getDepartureAirport()).toUpperCase();
-            LocalDateTime depTime = f.getDepartureTime().toLocalDateTime();
+        routeSearchEngine.search(flightGraph, routeQuery(tables, sortBy, params, match, maxStops, limit),
+                legs -> sink.test(chain(legs)));
+    }
 
-            departuresByTime
-                    .computeIfAbsent(depCode, k -> new TreeMap<>())
-                    .computeIfAbsent(depTime,   k -> new ArrayList<>())
-                    .add(f);
+    @Override
+    public FlightPage selectFlightPage(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                       String cursor, int pageSize) throws SQLException {
+        params = ensureFullDayRange(params);
+        SearchCursor after = SearchCursor.decode(cursor);
+        int offset = after != null && !after.keyset() ? after.offset() : 0;
+
+        int maxStops = (int) params.get(4);
+        List<AirlineTable> filteredTables = filterTables(tables, params.get(5));
+
+        AirportMatch match = resolveAirports(params);
+        int total = countDirectFlights(filteredTables, params, match);
+        if (total > 0) {
+            SearchCursor seek = after != null && after.keyset() ? after : null;
+            List<DirectRow> rows = queryDirectFlights(filteredTables, sortBy, params, match, seek, offset, pageSize + 1);
+            long start = System.nanoTime();
+            boolean hasMore = rows.size() > pageSize;
+
+            List<FlightInterface> flights = new ArrayList<>();
+            List<String> cursors = new ArrayList<>();
+            for (int i = 0; i < Math.min(pageSize, rows.size()); i++) {
+                flights.add(rows.get(i).flight());
+                cursors.add(rows.get(i).position().encode());
+            }
+            String nextCursor = hasMore ? cursors.get(pageSize - 1) : null;
+            metrics.record(Stage.PAGINATION, start);
+            return new FlightPage(flights, total, true, hasMore, nextCursor, cursors);
         }
 
-        Map<String, List<FlightInterface>> flightsFrom = new HashMap<>();
-        for (FlightInterface f : allFlights) {
-            String depCode = code(f.getDepartureAirport()).toUpperCase();
-            flightsFrom
-                    .computeIfAbsent(depCode, k -> new ArrayList<>())
-                    .add(f);
+        if (maxStops < 1) {
+            return new FlightPage(new ArrayList<>(), 0, true, false, null, List.of());
         }
 
-        String origin = params.get(0).toString().toUpperCase();
-        String dest   = params.get(1).toString().toUpperCase();
+        int limit = offset + pageSize + 1;
+        RouteSearchResult result = searchRoutes(tables, sortBy, params, match, maxStops, limit);
+        ArrayList<FlightInterface> connecting = chainItineraries(result);
+        long start = System.nanoTime();
+        int toIndex = Math.min(offset + pageSize, connecting.size());
+        List<FlightInterface> flights = offset < connecting.size()
+                ? new ArrayList<>(connecting.subList(offset, toIndex))
+                : new ArrayList<>();
+        boolean hasMore = connecting.size() > offset + pageSize;
+        String nextCursor = hasMore ? SearchCursor.offset(offset + pageSize).encode() : null;
+        metrics.record(Stage.PAGINATION, start);
+        boolean exhausted = connecting.size() < limit && !result.truncated();
+        return new FlightPage(flights, connecting.size(), exhausted, hasMore, nextCursor,
+                offsetCursors(offset, flights.size()));
+    }
+
+    /** Offset cursors resuming after each of count results that start at offset. */
+    static List<String> offsetCursors(int offset, int count) {
+        List<String> cursors = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            cursors.add(SearchCursor.offset(offset + i).encode());
+        }
+        return cursors;
+    }
+
+    private ArrayList<FlightInterface> searchConnections(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                                         AirportMatch match, int maxStops, int limit) {
+        ArrayList<FlightInterface> connecting = chainItineraries(searchRoutes(tables, sortBy, params, match, maxStops, limit));
+        log.trace("Connecting flights are {}", connecting);
+        return connecting;
+    }
+
+    private RouteSearchResult searchRoutes(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                           AirportMatch match, int maxStops, int limit) {
+        RouteSearchResult result = routeSearchEngine.search(flightGraph, routeQuery(tables, sortBy, params, match, maxStops, limit));
 
-        System.out.println("origin key   : '" + origin + "'");
-        System.out.println("available keys: " + flightsFrom.keySet());
+        log.debug("Found {} connections with max {} stop(s) after expanding {} nodes{}",
+                result.itineraries().size(), maxStops, result.expandedNodes(),
+                result.truncated() ? " (search budget exhausted)" : "");
+        return result;
+    }
+
+    /** A route search between every code {@code match} resolved; the graph is loaded by then. */
+    private static RouteQuery routeQuery(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                         AirportMatch match, int maxStops, int limit) {
+        long windowStart = FlightGraph.toEpochMinute((Timestamp) params.get(2));
+        long windowEnd   = FlightGraph.toEpochMinute((Timestamp) params.get(3));
+        return new RouteQuery(codesOrNone(match.depart()), codesOrNone(match.arrive()), windowStart, windowEnd,
+                EnumSet.copyOf(tables), maxStops, sortBy, limit);
+    }
 
+    /** A route has to start and end somewhere, so an unfiltered end matches no airport. */
+    private static Set<String> codesOrNone(Set<String> codes) {
+        return codes == null ? Set.of() : codes;
+    }
+
+    /** Links each itinerary's legs through getNextFlight(), first leg first. */
+    static ArrayList<FlightInterface> chainItineraries(RouteSearchResult result) {
         ArrayList<FlightInterface> connecting = new ArrayList<>();
-        List<List<FlightInterface>> raw = new ArrayList<>();
+        for (List<FlightInterface> legs : result.itineraries()) {
+            connecting.add(chain(legs));
+        }
+        return connecting;
+    }
+
+    /**
+     * One itinerary as its first leg, with the later legs linked through getNextFlight(). Legs from
+     * the flight graph become a {@link CompactItinerary} over their rows rather than copies.
+     */
+    static FlightInterface chain(List<FlightInterface> legs) {
+        CompactItinerary itinerary = CompactItinerary.of(legs);
+        if (itinerary != null) return itinerary;
+
+        FlightInterface composite = legs.get(legs.size() - 1);
+        for (int i = legs.size() - 2; i >= 0; i--) {
+            composite = new Flight(legs.get(i), composite);
+        }
+        return composite;
+    }
 
-        for (FlightInterface firstLeg : flightsFrom.getOrDefault(origin, List.of())) {
-            List<FlightInterface> path = new ArrayList<>();
-            path.add(firstLeg);
+    /**
+     * Updates or deletes {@code id} in each of {@code tables} the id directory says holds it, or in
+     * every one of them if the directory does not know the id at all.
+     */
+    public ArrayList<Integer> updateTables(List<AirlineTable> tables, List<Object> params) throws SQLException {
+        ensureFlightGraphLoaded();
+        ArrayList<Integer> ids = new ArrayList<>();
+        int id = (int) params.get(params.size() - 1);
+        // An unknown id may still be a row some other writer added; the statement itself is the probe.
+        boolean known = flightDirectory.locate(id, tables) != null;
+        for (AirlineTable table : tables) {
+            if (known && !flightDirectory.contains(table, id)) continue;
 
-            dfsConnections(dest, path, raw, departuresByTime, maxStops);
+            FlightKey key = new FlightKey(table, id);
+            boolean changed = params.size() == 1 ? deleteFlight(key) : updateFlight(key, params);
+            if (changed) {
+                ids.add(id);
+            }
         }
+        return ids;
+    }
 
-        System.out.println("Found " + raw.size() + " possible connections.");
-        System.out.println("raw is " + raw);
+    @Override
+    public FlightKey locateFlight(int id) throws SQLException {
+        ensureFlightGraphLoaded();
+        List<AirlineTable> tables = List.of(AirlineTable.values());
+        FlightKey key = flightDirectory.locate(id, tables);
+        if (key != null) return key;
+
+        FlightInterface flight = probeTables(tables, id);
+        return flight == null ? null : flightDirectory.locate(id, tables);
+    }
 
-        for (List<FlightInterface> legs : raw) {
-            FlightInterface composite = legs.get(0);
-            for (int i = 1; i < legs.size(); i++) {
-                composite = new Flight(composite, legs.get(i));
+    /**
+     * Flight {@code id} from the first of {@code tables} that has it, read from the tables one at a
+     * time, for an id the directory does not know: the directory only sees writes made through this
+     * instance, not the import CLI, another instance or manual SQL. A hit is added to the directory
+     * and the graph, so the next lookup needs no probe.
+     */
+    private FlightInterface probeTables(List<AirlineTable> tables, int id) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : tables) {
+                FlightInterface flight = selectFromTable(connection, table, id);
+                if (flight != null) {
+                    log.debug("Found flight {} in {} outside the id directory", id, table.getTableName());
+                    airports.register(flight.getDepartureAirport());
+                    airports.register(flight.getArrivalAirport());
+                    flightDirectory.add(table, id);
+                    flightGraph.put(table, flight);
+                    departureBounds.invalidate(table);
+                    return flight;
+                }
             }
-            connecting.add(composite);
         }
+        return null;
+    }
 
-        System.out.println("Found " + connecting.size() + " connecting flights.");
-        System.out.println("Connecting flights are " + connecting);
+    @Override
+    public FlightInterface selectFlight(FlightKey key) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            return selectFromTable(connection, key.table(), key.id());
+        }
+    }
 
-        if (!connecting.isEmpty()) {
-            System.out.println("Found connecting flights: " + connecting.size());
-            return connecting;
+    @Override
+    public boolean updateFlight(FlightKey key, List<Object> params) throws SQLException {
+        AirlineTable table = key.table();
+        int id = key.id();
+        FlightInterface previous = flightGraph.get(table, id);
+
+        try (Connection connection = pool.getConnection()) {
+            try (PreparedStatement stmt = connection.prepareStatement(queryTemplates.updateFlight(table))) {
+                bindUpdate(stmt, id, params);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            updated(connection, table, id, params, previous);
         }
+        return true;
+    }
 
-        System.out.println("No flight plans found with max " + maxStops + " stop(s).");
-        return connecting;
+    private static void bindUpdate(PreparedStatement stmt, int id, List<Object> params) throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+        stmt.setString(6, FlightGraph.airportCode((String) params.get(2)));
+        stmt.setString(7, FlightGraph.airportCode((String) params.get(3)));
+        stmt.setInt(8, id);
     }
 
+    /** Brings the graph, directory and bounds in line with a committed update of {@code id}. */
+    private void updated(Connection connection, AirlineTable table, int id, List<Object> params,
+                         FlightInterface previous) throws SQLException {
+        String departAirport = (String) params.get(2);
+        String arriveAirport = (String) params.get(3);
+        airports.register(departAirport);
+        airports.register(arriveAirport);
+
+        // Every column but the seat count came from params, so only a flight the graph has
+        // never seen needs reading back.
+        FlightInterface updated;
+        if (previous != null && params.get(0) instanceof Timestamp depart && params.get(1) instanceof Timestamp arrive) {
+            departureBounds.removed(table, previous.getDepartureTime());
+            updated = new Flight(id, (String) params.get(4), departAirport, arriveAirport, depart, arrive,
+                    table.getTableName(), previous.getSeatsFree());
+        } else {
+            departureBounds.invalidate(table);
+            updated = selectFromTable(connection, table, id);
+        }
+        if (updated != null) {
+            flightGraph.put(table, updated);
+            flightDirectory.add(table, id);
+            departureBounds.added(table, updated.getDepartureTime());
+            log.debug("Updated flight {}", updated);
+        }
+    }
 
-    public ArrayList<Integer> updateTables(List<AirlineTable> tables, List<Object> params) throws SQLException {
-        ArrayList<Integer> ids = new ArrayList<>();
+    @Override
+    public boolean deleteFlight(FlightKey key) throws SQLException {
+        AirlineTable table = key.table();
+        int id = key.id();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(queryTemplates.deleteFlight(table))) {
+            stmt.setInt(1, id);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        deleted(table, id);
+        return true;
+    }
 
-        for (AirlineTable table : tables) {
-            String sql;
-            if (params.size() == 1) {
-                sql = "DELETE FROM " + table.getTableName() + " WHERE id = ?";
-            } else {
-                // Params MUST have
-                // [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, id]
-                sql = "UPDATE " + table.getTableName() + " SET DepartDateTime = ?, ArriveDateTime = ?, " + "DepartAirport = ?, ArriveAirport = ?, FlightNumber = ? WHERE id = ?";
-            }
-
-            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                for (int i = 0; i < params.size(); i++) {
-                    stmt.setObject(i + 1, params.get(i));
-                }
+    /** Drops a committed delete of {@code id} from the graph, directory, bounds and seat counters. */
+    private void deleted(AirlineTable table, int id) {
+        FlightInterface previous = flightGraph.get(table, id);
+        if (previous != null) {
+            departureBounds.removed(table, previous.getDepartureTime());
+        } else {
+            departureBounds.invalidate(table);
+        }
+        flightGraph.remove(table, id);
+        flightDirectory.remove(table, id);
+        if (seatInventory != null) {
+            seatInventory.forget(table, id);
+        }
+    }
+
+    @Override
+    public List<ChangeOutcome> applyChanges(List<FlightUpdate> updates, List<FlightKey> deletes) throws SQLException {
+        ensureFlightGraphLoaded();
+        List<FlightInterface> previous = new ArrayList<>(updates.size());
+        for (FlightUpdate update : updates) {
+            previous.add(flightGraph.get(update.key().table(), update.key().id()));
+        }
 
-                stmt.executeUpdate();
+        boolean[] updated = new boolean[updates.size()];
+        boolean[] deleted = new boolean[deletes.size()];
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (AirlineTable table : AirlineTable.values()) {
+                    List<Integer> rows = new ArrayList<>();
+                    for (int i = 0; i < updates.size(); i++) {
+                        if (updates.get(i).key().table() == table) rows.add(i);
+                    }
+                    if (!rows.isEmpty()) {
+                        try (PreparedStatement stmt = connection.prepareStatement(queryTemplates.updateFlight(table))) {
+                            executeBatches(stmt, rows, updated, i -> bindUpdate(stmt, updates.get(i).key().id(), updates.get(i).params()));
+                        }
+                    }
 
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    while (rs.next()) {
-                        ids.add(rs.getInt(1));
+                    rows.clear();
+                    for (int i = 0; i < deletes.size(); i++) {
+                        if (deletes.get(i).table() == table) rows.add(i);
+                    }
+                    if (!rows.isEmpty()) {
+                        try (PreparedStatement stmt = connection.prepareStatement(queryTemplates.deleteFlight(table))) {
+                            executeBatches(stmt, rows, deleted, i -> stmt.setInt(1, deletes.get(i).id()));
+                        }
                     }
                 }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
 
-            String selectSql = "SELECT * FROM " + table.getTableName() + " WHERE id = ?";
-            try (PreparedStatement st = connection.prepareStatement(selectSql)) {
-                st.setObject(1, params.get(params.size() - 1));
-                try (ResultSet rs = st.executeQuery()) {
-                    if (rs.next()) {
-                        System.out.println("Updated Flight ID: " + rs.getInt("id"));
-                        System.out.println("DepartDateTime: " + rs.getTimestamp("DepartDateTime"));
-                        System.out.println("ArriveDateTime: " + rs.getTimestamp("ArriveDateTime"));
-                        System.out.println("DepartAirport: " + rs.getString("DepartAirport"));
-                        System.out.println("ArriveAirport: " + rs.getString("ArriveAirport"));
-                        System.out.println("FlightNumber: " + rs.getString("FlightNumber"));
-                        System.out.println("SeatsAvailable: " + rs.getInt("SeatsAvailable"));
-                    }
+            List<ChangeOutcome> outcomes = new ArrayList<>(updates.size() + deletes.size());
+            for (int i = 0; i < updates.size(); i++) {
+                FlightKey key = updates.get(i).key();
+                if (updated[i]) {
+                    updated(connection, key.table(), key.id(), updates.get(i).params(), previous.get(i));
+                    outcomes.add(ChangeOutcome.of(key, ChangeOutcome.Status.UPDATED, null));
+                } else {
+                    outcomes.add(ChangeOutcome.of(key, ChangeOutcome.Status.NOT_FOUND, "Flight not found"));
+                }
+            }
+            for (int i = 0; i < deletes.size(); i++) {
+                FlightKey key = deletes.get(i);
+                if (deleted[i]) {
+                    deleted(key.table(), key.id());
+                    outcomes.add(ChangeOutcome.of(key, ChangeOutcome.Status.DELETED, null));
+                } else {
+                    outcomes.add(ChangeOutcome.of(key, ChangeOutcome.Status.NOT_FOUND, "Flight not found"));
                 }
             }
+            return outcomes;
         }
+    }
 
+    @FunctionalInterface
+    private interface SqlBinder {
+        void bind(int item) throws SQLException;
+    }
 
-        return ids;
+    /**
+     * Adds {@code items} to {@code stmt}'s batch and runs it every {@link #CHANGE_BATCH_SIZE}
+     * statements, marking each item whose statement changed a row.
+     */
+    private static void executeBatches(PreparedStatement stmt, List<Integer> items, boolean[] changed,
+                                       SqlBinder binder) throws SQLException {
+        for (int from = 0; from < items.size(); from += CHANGE_BATCH_SIZE) {
+            List<Integer> batch = items.subList(from, Math.min(items.size(), from + CHANGE_BATCH_SIZE));
+            for (int item : batch) {
+                binder.bind(item);
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                changed[batch.get(i)] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+            }
+        }
     }
 
     public boolean decreaseSeatsAvailable(AirlineTable table, int flightId) throws SQLException
     {
-        System.out.println("reached decreaseSeatsAvailable in Database.java");
-        ArrayList<Integer> ids = new ArrayList<>();
-        System.out.println(table.getTableName());
-
-        String sql = "UPDATE " + table.getTableName() +
-                " SET SeatsAvailable = SeatsAvailable - 1 " +
-                "WHERE id = ? AND SeatsAvailable > 0";
+        if (seatInventory != null) {
+            boolean reserved = awaitCommit(seatInventory.reserve(table, flightId, 1));
+            if (reserved) {
+                flightGraph.reserveSeat(table, flightId);
+            }
+            return reserved;
+        }
 
-        System.out.println("SQL: " + sql);
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(queryTemplates.takeOneSeat(table)))
         {
             stmt.setInt(1, flightId);  // Set the flight ID in the prepared statement
-            System.out.println("stmt: " + stmt);
             int updated = stmt.executeUpdate();  // Execute the update statement
-            System.out.println("Updated: " + updated);
 
             if (updated > 0)  // If the update was successful, proceed
             {
+                flightGraph.reserveSeat(table, flightId);
                 return true;
             }
             else  // If no rows were updated (no seats available or invalid flight ID)
             {
-                System.out.println("No seats available or invalid flight ID in table: " + table.getTableName());
+                log.debug("No seats available or invalid flight ID {} in table {}", flightId, table.getTableName());
                 return false;
             }
         }
     }
 
+    @Override
+    public FlightInterface reserveSeat(FlightKey key) throws SQLException {
+        if (!decreaseSeatsAvailable(key.table(), key.id())) {
+            return null;
+        }
+        // Answered from memory rather than read back: the graph for the row, the counter for its seats.
+        // Only a flight the graph does not hold yet, such as one written elsewhere, costs a SELECT.
+        FlightInterface flight = flightGraph.get(key.table(), key.id());
+        if (flight == null) {
+            return selectFlight(key);
+        }
+        int seats = seatInventory == null ? -1 : seatInventory.available(key.table(), key.id());
+        return new Flight(flight.getId(), flight.getFlightNumber(), flight.getDepartureAirport(),
+                flight.getArrivalAirport(), flight.getDepartureTime(), flight.getArrivalTime(),
+                key.table().getTableName(), seats >= 0 ? seats : flight.getSeatsFree());
+    }
+
+
+    @Override
+    public boolean increaseSeatsAvailable(AirlineTable table, int flightId, int seats) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(queryTemplates.returnSeats(table))) {
+            stmt.setInt(1, seats);
+            stmt.setInt(2, flightId);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        seatsReturned(table, flightId, seats);
+        return true;
+    }
+
+    /** Gives seats back to the counter and the graph. Only after the table has the seats back, so the counters never run ahead of it. */
+    private void seatsReturned(AirlineTable table, int flightId, int seats) {
+        if (seatInventory != null) {
+            seatInventory.restore(table, flightId, seats);
+        }
+        for (int i = 0; i < seats; i++) {
+            flightGraph.releaseSeat(table, flightId);
+        }
+    }
+
+    @Override
+    public void reserveItinerary(List<FlightKey> legs) throws SQLException {
+        reserveItinerary(legs, null);
+    }
+
+    @Override
+    public void holdItinerary(SeatHold hold) throws SQLException {
+        reserveItinerary(hold.legs(), hold);
+    }
+
+    /** Takes the seats and, if {@code hold} is given, records it in the same transaction. */
+    private void reserveItinerary(List<FlightKey> legs, SeatHold hold) throws SQLException {
+        Map<FlightKey, Integer> seats = seatsByLeg(legs);
+
+        Map<FlightKey, Integer> taken = new LinkedHashMap<>();
+        if (seatInventory != null) {
+            for (Map.Entry<FlightKey, Integer> e : seats.entrySet()) {
+                if (!seatInventory.take(e.getKey().table(), e.getKey().id(), e.getValue())) {
+                    taken.forEach((leg, n) -> seatInventory.restore(leg.table(), leg.id(), n));
+                    throw new NoSeatsAvailableException(e.getKey().id());
+                }
+                taken.put(e.getKey(), e.getValue());
+            }
+        }
+
+        boolean committed = false;
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                lockItineraryRows(connection, seats);
+                for (AirlineTable table : AirlineTable.values()) {
+                    try (PreparedStatement stmt = connection.prepareStatement(queryTemplates.takeSeats(table))) {
+                        boolean any = false;
+                        for (Map.Entry<FlightKey, Integer> e : seats.entrySet()) {
+                            if (e.getKey().table() != table) continue;
+                            stmt.setInt(1, e.getValue());
+                            stmt.setInt(2, e.getKey().id());
+                            stmt.addBatch();
+                            any = true;
+                        }
+                        if (any) {
+                            stmt.executeBatch();
+                        }
+                    }
+                }
+                if (hold != null) {
+                    insertHold(connection, hold);
+                }
+                connection.commit();
+                committed = true;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            if (!committed) {
+                taken.forEach((leg, n) -> seatInventory.restore(leg.table(), leg.id(), n));
+            }
+        }
+
+        seats.forEach((leg, n) -> {
+            for (int i = 0; i < n; i++) {
+                flightGraph.reserveSeat(leg.table(), leg.id());
+            }
+        });
+    }
+
+    @Override
+    public SeatHold confirmHold(String holdId) throws SQLException {
+        return removeHold(holdId, false);
+    }
+
+    @Override
+    public SeatHold releaseHold(String holdId) throws SQLException {
+        SeatHold hold = removeHold(holdId, true);
+        if (hold != null) {
+            seatsByLeg(hold.legs()).forEach((leg, n) -> seatsReturned(leg.table(), leg.id(), n));
+        }
+        return hold;
+    }
+
+    @Override
+    public List<SeatHold> selectHolds() throws SQLException {
+        String sql = "SELECT HoldId, Leg, Airline, FlightId, ExpiresAt FROM " + SchemaMigrator.HOLDS_TABLE +
+                " ORDER BY HoldId, Leg";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return readHolds(rs);
+        }
+    }
+
+    private static void insertHold(Connection connection, SeatHold hold) throws SQLException {
+        String sql = "INSERT INTO " + SchemaMigrator.HOLDS_TABLE +
+                " (HoldId, Leg, Airline, FlightId, ExpiresAt) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < hold.legs().size(); i++) {
+                FlightKey leg = hold.legs().get(i);
+                stmt.setString(1, hold.id());
+                stmt.setInt(2, i);
+                stmt.setString(3, leg.table().getTableName());
+                stmt.setInt(4, leg.id());
+                stmt.setTimestamp(5, Timestamp.from(hold.expiresAt()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes hold {@code holdId}, giving its seats back to the tables if {@code returnSeats}, in one
+     * transaction. Concurrent confirm, release and expiry all lock the hold's rows first, so exactly
+     * one of them finds it; the others get null.
+     */
+    private SeatHold removeHold(String holdId, boolean returnSeats) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                SeatHold hold;
+                String select = "SELECT HoldId, Leg, Airline, FlightId, ExpiresAt FROM " + SchemaMigrator.HOLDS_TABLE +
+                        " WHERE HoldId = ? ORDER BY Leg FOR UPDATE";
+                try (PreparedStatement pstmt = connection.prepareStatement(select)) {
+                    pstmt.setString(1, holdId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        List<SeatHold> holds = readHolds(rs);
+                        hold = holds.isEmpty() ? null : holds.get(0);
+                    }
+                }
+                if (hold == null) {
+                    connection.rollback();
+                    return null;
+                }
+
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "DELETE FROM " + SchemaMigrator.HOLDS_TABLE + " WHERE HoldId = ?")) {
+                    stmt.setString(1, holdId);
+                    stmt.executeUpdate();
+                }
+                if (returnSeats) {
+                    for (Map.Entry<FlightKey, Integer> e : seatsByLeg(hold.legs()).entrySet()) {
+                        try (PreparedStatement stmt = connection.prepareStatement(queryTemplates.returnSeats(e.getKey().table()))) {
+                            stmt.setInt(1, e.getValue());
+                            stmt.setInt(2, e.getKey().id());
+                            stmt.executeUpdate();
+                        }
+                    }
+                }
+                connection.commit();
+                return hold;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Groups rows of (HoldId, Leg, Airline, FlightId, ExpiresAt), ordered by HoldId then Leg, into holds. */
+    private static List<SeatHold> readHolds(ResultSet rs) throws SQLException {
+        List<SeatHold> holds = new ArrayList<>();
+        String id = null;
+        List<FlightKey> legs = null;
+        Instant expiresAt = null;
+        while (rs.next()) {
+            if (!rs.getString(1).equals(id)) {
+                if (id != null) holds.add(new SeatHold(id, List.copyOf(legs), expiresAt));
+                id = rs.getString(1);
+                legs = new ArrayList<>();
+                expiresAt = rs.getTimestamp(5).toInstant();
+            }
+            legs.add(new FlightKey(AirlineTable.fromAirline(rs.getString(3)), rs.getInt(4)));
+        }
+        if (id != null) holds.add(new SeatHold(id, List.copyOf(legs), expiresAt));
+        return holds;
+    }
+
+    /** Seats wanted per leg, in (table, id) order so every reservation locks rows in the same order. */
+    static Map<FlightKey, Integer> seatsByLeg(List<FlightKey> legs) {
+        Map<FlightKey, Integer> seats = new TreeMap<>(Comparator
+                .comparing(FlightKey::table)
+                .thenComparingInt(FlightKey::id));
+        for (FlightKey leg : legs) {
+            if (leg.table() == null) {
+                throw new IllegalArgumentException("No airline given for flight: " + leg.id());
+            }
+            seats.merge(leg, 1, Integer::sum);
+        }
+        return seats;
+    }
+
+    /** Locks every leg's row with SELECT ... FOR UPDATE and checks it exists and has the seats. */
+    private void lockItineraryRows(Connection connection, Map<FlightKey, Integer> seats) throws SQLException {
+        for (AirlineTable table : AirlineTable.values()) {
+            List<Map.Entry<FlightKey, Integer>> rows = new ArrayList<>();
+            for (Map.Entry<FlightKey, Integer> e : seats.entrySet()) {
+                if (e.getKey().table() == table) rows.add(e);
+            }
+            if (rows.isEmpty()) continue;
+
+            String sql = "SELECT id, SeatsAvailable FROM " + table.getTableName() +
+                    " WHERE id IN (" + placeholders(rows.size()) + ") ORDER BY id FOR UPDATE";
+            Map<Integer, Integer> available = new HashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    pstmt.setInt(i + 1, rows.get(i).getKey().id());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        available.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+
+            for (Map.Entry<FlightKey, Integer> e : rows) {
+                Integer left = available.get(e.getKey().id());
+                if (left == null) {
+                    throw new NoSuchElementException("Flight not found: " + e.getKey().id());
+                }
+                if (left < e.getValue()) {
+                    throw new NoSeatsAvailableException(e.getKey().id());
+                }
+            }
+        }
+    }
+
+    private static boolean awaitCommit(CompletableFuture<Boolean> reservation) throws SQLException {
+        try {
+            return reservation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for seat reservation to commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Seat reservation failed", e.getCause());
+        }
+    }
 
     @Override
     public void close() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        if (routeSearchEngine instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close route search engine", e);
+            }
+        }
+        if (seatInventory != null) {
+            seatInventory.close();
+        }
+        queryExecutor.shutdown();
+        pool.close();
+    }
+
+    private void refreshDepartureBounds(List<AirlineTable> tables) throws SQLException {
+        List<AirlineTable> stale = departureBounds.staleTables(tables);
+        if (stale.isEmpty()) return;
+
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : stale) {
+                long version = departureBounds.version(table);
+                try (PreparedStatement pstmt = connection.prepareStatement(queryTemplates.departureBounds(table));
+                     ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        departureBounds.reset(table, rs.getTimestamp(1), rs.getTimestamp(2), version);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Timestamp getEarliestDepartureTime(List<AirlineTable> tables) throws SQLException {
+        Timestamp earliest = null;
+        for (int attempt = 0; attempt < 3 && earliest == null; attempt++) {
+            refreshDepartureBounds(tables);
+            earliest = departureBounds.earliest(tables);
+            if (earliest == null && departureBounds.staleTables(tables).isEmpty()) break;
+        }
+        if (earliest == null) {
+            throw new SQLException("No flights found for tables: " + tables);
         }
+        return earliest;
+    }
+
+    @Override
+    public Timestamp getLatestDepartureTime(List<AirlineTable> tables) throws SQLException {
+        Timestamp latest = null;
+        for (int attempt = 0; attempt < 3 && latest == null; attempt++) {
+            refreshDepartureBounds(tables);
+            latest = departureBounds.latest(tables);
+            if (latest == null && departureBounds.staleTables(tables).isEmpty()) break;
+        }
+        if (latest == null) {
+            throw new SQLException("No flights found for tables: " + tables);
+        }
+        return latest;
     }
 
     @Override
     public FlightInterface getFlightWithEarliestDeparture(List<AirlineTable> tables) throws SQLException {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tables.size(); i++) {
-            String tableName = tables.get(i).getTableName();
-            sb.append("SELECT ")
-                    .append("id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, ")
-                    .append("'").append(tableName).append("' AS airline ")
-                    .append("FROM ").append(tableName);
-            if (i < tables.size() - 1) {
-                sb.append(" UNION ALL ");
-            }
-        }
-        sb.append(" ORDER BY DepartDateTime ASC LIMIT 1");
-        String sql = sb.toString();;
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = queryTemplates.firstDeparture(tables, false);
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return new Flight(rs);
@@ -459,20 +1432,8 @@ public class Database implements DatabaseInterface {
 
     @Override
     public FlightInterface getFlightWithLatestDeparture(List<AirlineTable> tables) throws SQLException {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tables.size(); i++) {
-            String tableName = tables.get(i).getTableName();
-            sb.append("SELECT ")
-                    .append("id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, ")
-                    .append("'").append(tableName).append("' AS airline ")
-                    .append("FROM ").append(tableName);
-            if (i < tables.size() - 1) {
-                sb.append(" UNION ALL ");
-            }
-        }
-        sb.append(" ORDER BY DepartDateTime DESC LIMIT 1");
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sb.toString())) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(queryTemplates.firstDeparture(tables, true))) {
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return new Flight(rs);
@@ -483,38 +1444,13 @@ public class Database implements DatabaseInterface {
     }
 
 
+    /**
+     * The flight {@code id} in the first of {@code tables} that has it, found through the id
+     * directory, or by probing the tables if the directory does not know the id.
+     */
     public FlightInterface selectFlightById(List<AirlineTable> tables, int id) throws SQLException {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tables.size(); i++) {
-            String tableName = tables.get(i).getTableName();
-            sb.append("SELECT ")
-                    .append("id, ")
-                    .append("DepartDateTime, ")
-                    .append("ArriveDateTime, ")
-                    .append("DepartAirport, ")
-                    .append("ArriveAirport, ")
-                    .append("FlightNumber, ")
-                    .append("SeatsAvailable, ")
-                    .append("'").append(tableName).append("' AS airline ")
-                    .append("FROM ").append(tableName)
-                    .append(" WHERE id = ?");
-            if (i < tables.size() - 1) {
-                sb.append(" UNION ALL ");
-            }
-        }
-        sb.append(" LIMIT 1");
-
-        try (PreparedStatement stmt = connection.prepareStatement(sb.toString())) {
-            for (int idx = 1; idx <= tables.size(); idx++) {
-                stmt.setInt(idx, id);
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Flight(rs);
-                }
-            }
-        }
-        return null;
+        ensureFlightGraphLoaded();
+        FlightKey key = flightDirectory.locate(id, tables);
+        return key == null ? probeTables(tables, id) : selectFlight(key);
     }
 }
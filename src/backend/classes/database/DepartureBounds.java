@@ -0,0 +1,113 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Earliest and latest departure per airline table. Inserts widen the bounds in place; removing
+ * the flight that defines a bound marks that table stale, and Database recomputes it with a
+ * single MIN/MAX query the next time the bounds are read.
+ */
+public class DepartureBounds {
+
+    private static final class Bounds {
+        private Timestamp earliest;
+        private Timestamp latest;
+        private boolean stale = true;
+        private long version;
+    }
+
+    private final Map<AirlineTable, Bounds> bounds = new EnumMap<>(AirlineTable.class);
+
+    public DepartureBounds() {
+        for (AirlineTable table : AirlineTable.values()) {
+            bounds.put(table, new Bounds());
+        }
+    }
+
+    public synchronized List<AirlineTable> staleTables(List<AirlineTable> tables) {
+        List<AirlineTable> stale = new ArrayList<>();
+        for (AirlineTable table : tables) {
+            if (bounds.get(table).stale) {
+                stale.add(table);
+            }
+        }
+        return stale;
+    }
+
+    /** Stamp to pass to {@link #reset}; a change in between means the recomputed values are already outdated. */
+    public synchronized long version(AirlineTable table) {
+        return bounds.get(table).version;
+    }
+
+    public synchronized void reset(AirlineTable table, Timestamp earliest, Timestamp latest, long version) {
+        Bounds b = bounds.get(table);
+        if (b.version != version) return;
+        b.earliest = earliest;
+        b.latest = latest;
+        b.stale = false;
+    }
+
+    public synchronized void added(AirlineTable table, Timestamp departure) {
+        if (departure == null) return;
+        Bounds b = bounds.get(table);
+        b.version++;
+        if (b.stale) return;
+        if (b.earliest == null || departure.before(b.earliest)) {
+            b.earliest = departure;
+        }
+        if (b.latest == null || departure.after(b.latest)) {
+            b.latest = departure;
+        }
+    }
+
+    public synchronized void removed(AirlineTable table, Timestamp departure) {
+        Bounds b = bounds.get(table);
+        b.version++;
+        // Compared by minute, since departures read back from the flight graph have no seconds
+        if (departure == null || sameMinute(departure, b.earliest) || sameMinute(departure, b.latest)) {
+            b.stale = true;
+        }
+    }
+
+    private static boolean sameMinute(Timestamp a, Timestamp b) {
+        return b != null && Math.floorDiv(a.getTime(), 60_000L) == Math.floorDiv(b.getTime(), 60_000L);
+    }
+
+    public synchronized void invalidate(AirlineTable table) {
+        Bounds b = bounds.get(table);
+        b.version++;
+        b.stale = true;
+    }
+
+    /** Earliest departure across {@code tables}, or null if they are empty or any is stale. */
+    public synchronized Timestamp earliest(List<AirlineTable> tables) {
+        Timestamp result = null;
+        for (AirlineTable table : tables) {
+            Bounds b = bounds.get(table);
+            if (b.stale) return null;
+            if (b.earliest != null && (result == null || b.earliest.before(result))) {
+                result = b.earliest;
+            }
+        }
+        return result;
+    }
+
+    /** Latest departure across {@code tables}, or null if they are empty or any is stale. */
+    public synchronized Timestamp latest(List<AirlineTable> tables) {
+        Timestamp result = null;
+        for (AirlineTable table : tables) {
+            Bounds b = bounds.get(table);
+            if (b.stale) return null;
+            if (b.latest != null && (result == null || b.latest.after(result))) {
+                result = b.latest;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,432 @@
+package backend.classes.database;
+
+import backend.classes.records.Flight;
+import enums.AirlineTable;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Column-per-field storage for one airline table, with departure-sorted indexes over the live rows.
+ * Rows are append-only: an update appends a new version of the row and retires the old one, so a
+ * reader holding an older {@link Snapshot} never sees a half-written row. Seat counts live in
+ * atomic counters keyed by a slot that every version of a flight shares, so reservations never
+ * take the table lock and are never lost to a concurrent update.
+ *
+ * The indexes are not rebuilt on a write. Rows appended and retired since the last snapshot are
+ * merged into its sorted arrays when the next one is taken, touching only the airports they
+ * depart from. Once retired rows outnumber the live ones, the columns are compacted into fresh
+ * arrays; snapshots taken before keep the old ones.
+ */
+final class FlightColumns {
+    private static final int SEAT_SEGMENT_SIZE = 4096;
+    /** Retired rows kept beyond one per live row before the columns are compacted. */
+    static final int MIN_RETIRED_ROWS = 1024;
+    private static final int[] NO_ROWS = new int[0];
+
+    private final AirlineTable table;
+
+    private int size;
+    private int nextId = 1;
+    private int slots;
+    private int[] ids = new int[64];
+    private int[] seatSlots = new int[64];
+    private long[] departs = new long[64];
+    private long[] arrives = new long[64];
+    private String[] flightNumbers = new String[64];
+    private String[] departAirports = new String[64];
+    private String[] arriveAirports = new String[64];
+    private String[] departCodes = new String[64];
+    private String[] arriveCodes = new String[64];
+    private volatile AtomicIntegerArray[] seatSegments = new AtomicIntegerArray[0];
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+    // Read without the table lock by seat changes
+    private final Map<Integer, Integer> slotById = new ConcurrentHashMap<>();
+
+    // Indexes as of the last snapshot, and what changed since
+    private int[] byDeparture = NO_ROWS;
+    private Map<String, int[]> byDepartCode = Map.of();
+    private int[] appended = new int[16];
+    private int appendedCount;
+    private final BitSet retired = new BitSet();
+    private int retiredCount;
+    private final Set<String> touchedCodes = new HashSet<>();
+
+    private volatile Snapshot snapshot;
+
+    /** Immutable view of the live rows with their indexes; seat counts are read through to the counters. */
+    static final class Snapshot {
+        private final AirlineTable table;
+        private final int[] ids;
+        private final int[] seatSlots;
+        private final long[] departs;
+        private final long[] arrives;
+        private final String[] flightNumbers;
+        private final String[] departAirports;
+        private final String[] arriveAirports;
+        private final String[] departCodes;
+        private final String[] arriveCodes;
+        private final AtomicIntegerArray[] seatSegments;
+        private final int[] byDeparture;
+        private final Map<String, int[]> byDepartCode;
+
+        private Snapshot(FlightColumns c) {
+            this.table = c.table;
+            this.ids = c.ids;
+            this.seatSlots = c.seatSlots;
+            this.departs = c.departs;
+            this.arrives = c.arrives;
+            this.flightNumbers = c.flightNumbers;
+            this.departAirports = c.departAirports;
+            this.arriveAirports = c.arriveAirports;
+            this.departCodes = c.departCodes;
+            this.arriveCodes = c.arriveCodes;
+            this.seatSegments = c.seatSegments;
+            this.byDeparture = c.byDeparture;
+            this.byDepartCode = c.byDepartCode;
+        }
+
+        AirlineTable table() {
+            return table;
+        }
+
+        int size() {
+            return byDeparture.length;
+        }
+
+        /** Live rows ordered by departure, then id. */
+        int[] byDeparture() {
+            return byDeparture;
+        }
+
+        /** Live rows departing from {@code code}, ordered by departure, then id. */
+        int[] departingFrom(String code) {
+            return byDepartCode.getOrDefault(code, NO_ROWS);
+        }
+
+        /** Position in {@code rows} of the first departure at or after {@code millis}. */
+        int indexAtOrAfter(int[] rows, long millis) {
+            int lo = 0;
+            int hi = rows.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departs[rows[mid]] < millis) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        int id(int row) {
+            return ids[row];
+        }
+
+        long depart(int row) {
+            return departs[row];
+        }
+
+        long arrive(int row) {
+            return arrives[row];
+        }
+
+        String arriveCode(int row) {
+            return arriveCodes[row];
+        }
+
+        int seats(int row) {
+            int slot = seatSlots[row];
+            return seatSegments[slot / SEAT_SEGMENT_SIZE].get(slot % SEAT_SEGMENT_SIZE);
+        }
+
+        Flight flight(int row) {
+            return new Flight(ids[row], flightNumbers[row], departAirports[row], arriveAirports[row],
+                    new Timestamp(departs[row]), new Timestamp(arrives[row]), table.getTableName(), seats(row));
+        }
+    }
+
+    FlightColumns(AirlineTable table) {
+        this.table = table;
+    }
+
+    AirlineTable table() {
+        return table;
+    }
+
+    /** Current snapshot, merging rows changed since the last one into its indexes first. */
+    Snapshot snapshot() {
+        Snapshot s = snapshot;
+        if (s != null) return s;
+        synchronized (this) {
+            if (snapshot == null) {
+                mergeChanges();
+                snapshot = new Snapshot(this);
+            }
+            return snapshot;
+        }
+    }
+
+    /** Rows the columns hold, live or retired; for tests. */
+    synchronized int storedRows() {
+        return size;
+    }
+
+    /** Adds a row with a known id, as when loading existing flights. */
+    synchronized void load(int id, Timestamp depart, Timestamp arrive, String departAirport, String arriveAirport,
+                           String flightNumber, int seats) {
+        Integer previous = rowById.get(id);
+        int slot;
+        if (previous == null) {
+            slot = newSlot(seats);
+        } else {
+            slot = seatSlots[previous];
+            setSeats(slot, seats);
+            retire(previous);
+        }
+        append(id, slot, depart, arrive, departAirport, arriveAirport, flightNumber);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    /** Adds a row under the next auto-increment id and returns that id. */
+    synchronized int insert(Timestamp depart, Timestamp arrive, String departAirport, String arriveAirport,
+                            String flightNumber, int seats) {
+        int id = nextId++;
+        append(id, newSlot(seats), depart, arrive, departAirport, arriveAirport, flightNumber);
+        return id;
+    }
+
+    /** Replaces every column but the seat count; returns false if the id does not exist. */
+    synchronized boolean update(int id, Timestamp depart, Timestamp arrive, String departAirport, String arriveAirport,
+                                String flightNumber) {
+        Integer row = rowById.get(id);
+        if (row == null) return false;
+        retire(row);
+        append(id, seatSlots[row], depart, arrive, departAirport, arriveAirport, flightNumber);
+        return true;
+    }
+
+    synchronized boolean contains(int id) {
+        return rowById.containsKey(id);
+    }
+
+    /** Current version of flight {@code id}, read without touching the indexes; null if absent. */
+    synchronized Flight flight(int id) {
+        Integer row = rowById.get(id);
+        if (row == null) return null;
+        int slot = seatSlots[row];
+        return new Flight(id, flightNumbers[row], departAirports[row], arriveAirports[row],
+                new Timestamp(departs[row]), new Timestamp(arrives[row]), table.getTableName(), seats(slot));
+    }
+
+    synchronized boolean delete(int id) {
+        Integer row = rowById.remove(id);
+        if (row == null) return false;
+        slotById.remove(id);
+        retire(row);
+        snapshot = null;
+        compactIfSparse();
+        return true;
+    }
+
+    /** Takes {@code seats} seats from flight {@code id} if that many are left; never below zero. */
+    boolean takeSeats(int id, int seats) {
+        Integer slot = slotById.get(id);
+        if (slot == null) return false;
+        AtomicIntegerArray segment = seatSegments[slot / SEAT_SEGMENT_SIZE];
+        int i = slot % SEAT_SEGMENT_SIZE;
+        int current;
+        do {
+            current = segment.get(i);
+            if (current < seats) return false;
+        } while (!segment.compareAndSet(i, current, current - seats));
+        return true;
+    }
+
+    /** Gives {@code seats} seats back to flight {@code id}; false if it does not exist. */
+    boolean returnSeats(int id, int seats) {
+        Integer slot = slotById.get(id);
+        if (slot == null) return false;
+        seatSegments[slot / SEAT_SEGMENT_SIZE].addAndGet(slot % SEAT_SEGMENT_SIZE, seats);
+        return true;
+    }
+
+    private int seats(int slot) {
+        return seatSegments[slot / SEAT_SEGMENT_SIZE].get(slot % SEAT_SEGMENT_SIZE);
+    }
+
+    private void append(int id, int slot, Timestamp depart, Timestamp arrive, String departAirport, String arriveAirport,
+                        String flightNumber) {
+        if (size == ids.length) {
+            resize(size * 2);
+        }
+
+        int row = size++;
+        ids[row] = id;
+        seatSlots[row] = slot;
+        departs[row] = depart.getTime();
+        arrives[row] = arrive.getTime();
+        flightNumbers[row] = flightNumber;
+        departAirports[row] = departAirport;
+        arriveAirports[row] = arriveAirport;
+        departCodes[row] = FlightGraph.airportCode(departAirport);
+        arriveCodes[row] = FlightGraph.airportCode(arriveAirport);
+        rowById.put(id, row);
+        slotById.put(id, slot);
+
+        if (appendedCount == appended.length) {
+            appended = Arrays.copyOf(appended, appendedCount * 2);
+        }
+        appended[appendedCount++] = row;
+        touchedCodes.add(departCodes[row]);
+        snapshot = null;
+        compactIfSparse();
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        seatSlots = Arrays.copyOf(seatSlots, capacity);
+        departs = Arrays.copyOf(departs, capacity);
+        arrives = Arrays.copyOf(arrives, capacity);
+        flightNumbers = Arrays.copyOf(flightNumbers, capacity);
+        departAirports = Arrays.copyOf(departAirports, capacity);
+        arriveAirports = Arrays.copyOf(arriveAirports, capacity);
+        departCodes = Arrays.copyOf(departCodes, capacity);
+        arriveCodes = Arrays.copyOf(arriveCodes, capacity);
+    }
+
+    private void retire(int row) {
+        retired.set(row);
+        retiredCount++;
+        touchedCodes.add(departCodes[row]);
+    }
+
+    private int newSlot(int seats) {
+        int slot = slots++;
+        int segment = slot / SEAT_SEGMENT_SIZE;
+        if (segment == seatSegments.length) {
+            AtomicIntegerArray[] grown = Arrays.copyOf(seatSegments, segment + 1);
+            grown[segment] = new AtomicIntegerArray(SEAT_SEGMENT_SIZE);
+            seatSegments = grown;
+        }
+        setSeats(slot, seats);
+        return slot;
+    }
+
+    private void setSeats(int slot, int seats) {
+        seatSegments[slot / SEAT_SEGMENT_SIZE].set(slot % SEAT_SEGMENT_SIZE, seats);
+    }
+
+    /** Folds the rows appended and retired since the last snapshot into the sorted indexes. */
+    private void mergeChanges() {
+        if (appendedCount == 0 && touchedCodes.isEmpty()) return;
+
+        int[] fresh = sortedLive(Arrays.copyOf(appended, appendedCount));
+        byDeparture = merge(byDeparture, fresh);
+
+        Map<String, int[]> codes = new HashMap<>(byDepartCode);
+        for (String code : touchedCodes) {
+            int[] rows = merge(codes.getOrDefault(code, NO_ROWS), departingFrom(fresh, code));
+            if (rows.length == 0) {
+                codes.remove(code);
+            } else {
+                codes.put(code, rows);
+            }
+        }
+        byDepartCode = codes;
+        appendedCount = 0;
+        touchedCodes.clear();
+    }
+
+    /** The live rows among {@code rows}, ordered by departure, then id. */
+    private int[] sortedLive(int[] rows) {
+        Integer[] live = Arrays.stream(rows).filter(row -> !retired.get(row)).boxed().toArray(Integer[]::new);
+        Arrays.sort(live, (a, b) -> before(a, b) ? -1 : before(b, a) ? 1 : 0);
+        return Arrays.stream(live).mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] departingFrom(int[] rows, String code) {
+        return Arrays.stream(rows).filter(row -> departCodes[row].equals(code)).toArray();
+    }
+
+    /** Merges two departure-ordered row lists, dropping retired rows from {@code indexed}. */
+    private int[] merge(int[] indexed, int[] fresh) {
+        int[] out = new int[indexed.length + fresh.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < indexed.length || j < fresh.length) {
+            if (i < indexed.length && retired.get(indexed[i])) {
+                i++;
+            } else if (j == fresh.length || (i < indexed.length && before(indexed[i], fresh[j]))) {
+                out[n++] = indexed[i++];
+            } else {
+                out[n++] = fresh[j++];
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private boolean before(int a, int b) {
+        return departs[a] != departs[b] ? departs[a] < departs[b] : ids[a] < ids[b];
+    }
+
+    /**
+     * Copies the live rows into fresh columns once retired ones outnumber them. Seat slots are kept,
+     * since reservations read them without the table lock; the indexes are renumbered in order.
+     */
+    private void compactIfSparse() {
+        if (retiredCount <= rowById.size() + MIN_RETIRED_ROWS) return;
+
+        int[] moved = new int[size];
+        int live = 0;
+        for (int row = 0; row < size; row++) {
+            moved[row] = retired.get(row) ? -1 : live++;
+        }
+        int capacity = Math.max(64, live * 2);
+        ids = compact(ids, new int[capacity], moved);
+        seatSlots = compact(seatSlots, new int[capacity], moved);
+        departs = compact(departs, new long[capacity], moved);
+        arrives = compact(arrives, new long[capacity], moved);
+        flightNumbers = compact(flightNumbers, new String[capacity], moved);
+        departAirports = compact(departAirports, new String[capacity], moved);
+        arriveAirports = compact(arriveAirports, new String[capacity], moved);
+        departCodes = compact(departCodes, new String[capacity], moved);
+        arriveCodes = compact(arriveCodes, new String[capacity], moved);
+        size = live;
+        rowById.replaceAll((id, row) -> moved[row]);
+
+        byDeparture = renumber(byDeparture, moved);
+        Map<String, int[]> codes = new HashMap<>();
+        byDepartCode.forEach((code, rows) -> {
+            int[] renumbered = renumber(rows, moved);
+            if (renumbered.length > 0) {
+                codes.put(code, renumbered);
+            }
+        });
+        byDepartCode = codes;
+        int[] pending = renumber(Arrays.copyOf(appended, appendedCount), moved);
+        appendedCount = pending.length;
+        System.arraycopy(pending, 0, appended, 0, pending.length);
+
+        retired.clear();
+        retiredCount = 0;
+        snapshot = null;
+    }
+
+    /** Copies each live row of {@code from} to its new position in {@code to}. */
+    private static <A> A compact(A from, A to, int[] moved) {
+        for (int row = 0; row < moved.length; row++) {
+            if (moved[row] >= 0) {
+                System.arraycopy(from, row, to, moved[row], 1);
+            }
+        }
+        return to;
+    }
+
+    private static int[] renumber(int[] rows, int[] moved) {
+        return Arrays.stream(rows).map(row -> moved[row]).filter(row -> row >= 0).toArray();
+    }
+}
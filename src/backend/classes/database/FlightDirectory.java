@@ -0,0 +1,96 @@
+package backend.classes.database;
+
+import backend.classes.records.FlightKey;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which airline tables hold each flight id, so a lookup by id goes to one table instead of a UNION
+ * over all of them. Ids are auto-increment and dense, so the directory is one byte per id with a
+ * bit per table; ids past {@link #MAX_DENSE_ID} fall back to a map. It is rebuilt on load and kept
+ * current on insert and delete. Rows written behind Database's back are missing until a lookup
+ * of their id probes the tables and adds them.
+ */
+public final class FlightDirectory {
+    /** Largest id kept in the dense array; 16 MB at most. */
+    static final int MAX_DENSE_ID = 1 << 24;
+    private static final AirlineTable[] TABLES = AirlineTable.values();
+
+    static {
+        if (TABLES.length > Byte.SIZE) {
+            throw new ExceptionInInitializerError("FlightDirectory holds at most 8 airline tables");
+        }
+    }
+
+    private byte[] tablesById = new byte[1024];
+    private final Map<Integer, Byte> sparse = new HashMap<>();
+
+    /** Replaces the directory with the flights in {@code flightsByTable}. */
+    public synchronized void load(Map<AirlineTable, List<FlightInterface>> flightsByTable) {
+        Arrays.fill(tablesById, (byte) 0);
+        sparse.clear();
+        for (Map.Entry<AirlineTable, List<FlightInterface>> e : flightsByTable.entrySet()) {
+            for (FlightInterface flight : e.getValue()) {
+                add(e.getKey(), flight.getId());
+            }
+        }
+    }
+
+    public synchronized void add(AirlineTable table, int id) {
+        set(id, tables(id) | bit(table));
+    }
+
+    public synchronized void remove(AirlineTable table, int id) {
+        set(id, tables(id) & ~bit(table));
+    }
+
+    public synchronized boolean contains(AirlineTable table, int id) {
+        return (tables(id) & bit(table)) != 0;
+    }
+
+    /**
+     * Key for {@code id} in the first of {@code candidates} that holds it, or null. When several
+     * tables use the same id the earlier candidate wins, as the old UNION ... LIMIT 1 lookup did.
+     */
+    public synchronized FlightKey locate(int id, List<AirlineTable> candidates) {
+        int tables = tables(id);
+        if (tables == 0) return null;
+        for (AirlineTable table : candidates) {
+            if ((tables & bit(table)) != 0) {
+                return new FlightKey(table, id);
+            }
+        }
+        return null;
+    }
+
+    private static int bit(AirlineTable table) {
+        return 1 << table.ordinal();
+    }
+
+    private int tables(int id) {
+        if (id >= 0 && id < MAX_DENSE_ID) {
+            return id < tablesById.length ? tablesById[id] & 0xff : 0;
+        }
+        Byte tables = sparse.get(id);
+        return tables == null ? 0 : tables & 0xff;
+    }
+
+    private void set(int id, int tables) {
+        if (id >= 0 && id < MAX_DENSE_ID) {
+            if (id >= tablesById.length) {
+                if (tables == 0) return;
+                tablesById = Arrays.copyOf(tablesById, Math.min(MAX_DENSE_ID, Math.max(id + 1, tablesById.length * 2)));
+            }
+            tablesById[id] = (byte) tables;
+        } else if (tables == 0) {
+            sparse.remove(id);
+        } else {
+            sparse.put(id, (byte) tables);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package backend.classes.database;
+
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident flight network keyed by departure airport code. Each airport holds an immutable,
+ * departure-sorted snapshot of primitive arrays that readers use without locking; writers
+ * replace the snapshot of the airports they touch. Flights are kept as rows of a
+ * {@link CompactFlightStore}, which a full load replaces. Updates append rows, so once dead rows
+ * outnumber live ones the live rows are copied into a new store, keeping memory proportional to
+ * the network rather than to its history.
+ */
+public class FlightGraph {
+    private static final AirlineTable[] TABLES = AirlineTable.values();
+    /** Dead rows tolerated before compacting, however few flights are live. */
+    private static final int COMPACT_MIN_DEAD_ROWS = 4096;
+
+    public static final class Departures {
+        private static final Departures EMPTY = new Departures(
+                new long[0], new long[0], new String[0], new byte[0], new CompactFlight[0]);
+
+        private final long[] departMinutes;
+        private final long[] arriveMinutes;
+        private final String[] arriveCodes;
+        private final byte[] tables;
+        private final CompactFlight[] flights;
+
+        private Departures(long[] departMinutes, long[] arriveMinutes, String[] arriveCodes,
+                           byte[] tables, CompactFlight[] flights) {
+            this.departMinutes = departMinutes;
+            this.arriveMinutes = arriveMinutes;
+            this.arriveCodes = arriveCodes;
+            this.tables = tables;
+            this.flights = flights;
+        }
+
+        public int size() {
+            return flights.length;
+        }
+
+        public long departMinute(int i) {
+            return departMinutes[i];
+        }
+
+        public long arriveMinute(int i) {
+            return arriveMinutes[i];
+        }
+
+        public String arriveCode(int i) {
+            return arriveCodes[i];
+        }
+
+        public AirlineTable table(int i) {
+            return TABLES[tables[i]];
+        }
+
+        public FlightInterface flight(int i) {
+            return flights[i];
+        }
+
+        /** Index of the first departure at or after {@code minute}, or {@link #size()} if none. */
+        public int indexAtOrAfter(long minute) {
+            int lo = 0;
+            int hi = departMinutes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departMinutes[mid] < minute) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int indexOf(AirlineTable table, int id) {
+            for (int i = 0; i < flights.length; i++) {
+                if (tables[i] == table.ordinal() && flights[i].getId() == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Departures with(AirlineTable table, CompactFlight flight) {
+            long depart = flight.getDepartureMinute();
+            int at = indexAtOrAfter(depart + 1);
+            int n = flights.length;
+
+            long[] dm = new long[n + 1];
+            long[] am = new long[n + 1];
+            String[] ac = new String[n + 1];
+            byte[] tb = new byte[n + 1];
+            CompactFlight[] fl = new CompactFlight[n + 1];
+
+            System.arraycopy(departMinutes, 0, dm, 0, at);
+            System.arraycopy(arriveMinutes, 0, am, 0, at);
+            System.arraycopy(arriveCodes, 0, ac, 0, at);
+            System.arraycopy(tables, 0, tb, 0, at);
+            System.arraycopy(flights, 0, fl, 0, at);
+
+            dm[at] = depart;
+            am[at] = flight.getArrivalMinute();
+            ac[at] = flight.getArrivalCode();
+            tb[at] = (byte) table.ordinal();
+            fl[at] = flight;
+
+            System.arraycopy(departMinutes, at, dm, at + 1, n - at);
+            System.arraycopy(arriveMinutes, at, am, at + 1, n - at);
+            System.arraycopy(arriveCodes, at, ac, at + 1, n - at);
+            System.arraycopy(tables, at, tb, at + 1, n - at);
+            System.arraycopy(flights, at, fl, at + 1, n - at);
+            return new Departures(dm, am, ac, tb, fl);
+        }
+
+        /** The same departures, each flight replaced by its copy in {@code moved}. */
+        private Departures remap(Map<CompactFlight, CompactFlight> moved) {
+            CompactFlight[] fl = new CompactFlight[flights.length];
+            for (int i = 0; i < fl.length; i++) {
+                fl[i] = moved.get(flights[i]);
+            }
+            return new Departures(departMinutes, arriveMinutes, arriveCodes, tables, fl);
+        }
+
+        private Departures without(int at) {
+            int n = flights.length;
+            long[] dm = new long[n - 1];
+            long[] am = new long[n - 1];
+            String[] ac = new String[n - 1];
+            byte[] tb = new byte[n - 1];
+            CompactFlight[] fl = new CompactFlight[n - 1];
+
+            System.arraycopy(departMinutes, 0, dm, 0, at);
+            System.arraycopy(arriveMinutes, 0, am, 0, at);
+            System.arraycopy(arriveCodes, 0, ac, 0, at);
+            System.arraycopy(tables, 0, tb, 0, at);
+            System.arraycopy(flights, 0, fl, 0, at);
+
+            System.arraycopy(departMinutes, at + 1, dm, at, n - at - 1);
+            System.arraycopy(arriveMinutes, at + 1, am, at, n - at - 1);
+            System.arraycopy(arriveCodes, at + 1, ac, at, n - at - 1);
+            System.arraycopy(tables, at + 1, tb, at, n - at - 1);
+            System.arraycopy(flights, at + 1, fl, at, n - at - 1);
+            return new Departures(dm, am, ac, tb, fl);
+        }
+
+        private Departures withAll(AirlineTable table, List<CompactFlight> added) {
+            List<Map.Entry<AirlineTable, CompactFlight>> entries = new ArrayList<>(flights.length + added.size());
+            for (int i = 0; i < flights.length; i++) {
+                entries.add(Map.entry(TABLES[tables[i]], flights[i]));
+            }
+            for (CompactFlight f : added) {
+                entries.add(Map.entry(table, f));
+            }
+            return of(entries);
+        }
+
+        private static Departures of(List<Map.Entry<AirlineTable, CompactFlight>> entries) {
+            entries.sort(Comparator.comparingInt(e -> e.getValue().getDepartureMinute()));
+            int n = entries.size();
+            long[] dm = new long[n];
+            long[] am = new long[n];
+            String[] ac = new String[n];
+            byte[] tb = new byte[n];
+            CompactFlight[] fl = new CompactFlight[n];
+            for (int i = 0; i < n; i++) {
+                CompactFlight f = entries.get(i).getValue();
+                dm[i] = f.getDepartureMinute();
+                am[i] = f.getArrivalMinute();
+                ac[i] = f.getArrivalCode();
+                tb[i] = (byte) entries.get(i).getKey().ordinal();
+                fl[i] = f;
+            }
+            return new Departures(dm, am, ac, tb, fl);
+        }
+    }
+
+    private final Map<String, Departures> departuresByAirport = new ConcurrentHashMap<>();
+    private final Map<AirlineTable, Map<Integer, CompactFlight>> flightsById = new EnumMap<>(AirlineTable.class);
+    private volatile CompactFlightStore store = new CompactFlightStore();
+    // Seat changes share the read side; compaction takes the write side so none lands on a row
+    // after it has been copied.
+    private final ReadWriteLock seatLock = new ReentrantReadWriteLock();
+
+    public FlightGraph() {
+        for (AirlineTable table : AirlineTable.values()) {
+            flightsById.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    public Departures departuresFrom(String airportCode) {
+        return departuresByAirport.getOrDefault(airportCode, Departures.EMPTY);
+    }
+
+    /** Departures from any of {@code airportCodes}, merged into one departure-sorted snapshot. */
+    public Departures departuresFrom(Set<String> airportCodes) {
+        if (airportCodes.size() == 1) {
+            return departuresFrom(airportCodes.iterator().next());
+        }
+        List<Map.Entry<AirlineTable, CompactFlight>> entries = new ArrayList<>();
+        for (String code : airportCodes) {
+            Departures from = departuresFrom(code);
+            for (int i = 0; i < from.size(); i++) {
+                entries.add(Map.entry(TABLES[from.tables[i]], from.flights[i]));
+            }
+        }
+        return Departures.of(entries);
+    }
+
+    public FlightInterface get(AirlineTable table, int id) {
+        return flightsById.get(table).get(id);
+    }
+
+    /** Highest id the graph holds for {@code table}, or 0 if it holds none. */
+    public int maxId(AirlineTable table) {
+        int max = 0;
+        for (int id : flightsById.get(table).keySet()) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    public int size() {
+        int n = 0;
+        for (Map<Integer, CompactFlight> byId : flightsById.values()) {
+            n += byId.size();
+        }
+        return n;
+    }
+
+    public synchronized void load(Map<AirlineTable, List<FlightInterface>> flightsByTable) {
+        Map<String, List<Map.Entry<AirlineTable, CompactFlight>>> grouped = new HashMap<>();
+        for (Map<Integer, CompactFlight> byId : flightsById.values()) {
+            byId.clear();
+        }
+        store = new CompactFlightStore();
+
+        for (Map.Entry<AirlineTable, List<FlightInterface>> e : flightsByTable.entrySet()) {
+            for (FlightInterface f : e.getValue()) {
+                if (!isSchedulable(f)) continue;
+                CompactFlight compact = store.add(f);
+                flightsById.get(e.getKey()).put(compact.getId(), compact);
+                grouped.computeIfAbsent(compact.getDepartureCode(), k -> new ArrayList<>())
+                        .add(Map.entry(e.getKey(), compact));
+            }
+        }
+
+        Map<String, Departures> rebuilt = new HashMap<>();
+        grouped.forEach((code, entries) -> rebuilt.put(code, Departures.of(entries)));
+        departuresByAirport.keySet().retainAll(rebuilt.keySet());
+        departuresByAirport.putAll(rebuilt);
+    }
+
+    /** Adds a flight, replacing any existing flight with the same id in the same table. */
+    public synchronized void put(AirlineTable table, FlightInterface flight) {
+        remove(table, flight.getId());
+        if (!isSchedulable(flight)) return;
+
+        CompactFlight compact = store.add(flight);
+        flightsById.get(table).put(compact.getId(), compact);
+        departuresByAirport.compute(compact.getDepartureCode(),
+                (code, current) -> (current == null ? Departures.EMPTY : current).with(table, compact));
+        compactIfSparse();
+    }
+
+    /** Adds many flights to one table, rebuilding each departure airport's snapshot once. */
+    public synchronized void putAll(AirlineTable table, List<FlightInterface> flights) {
+        Map<String, List<CompactFlight>> byAirport = new HashMap<>();
+        for (FlightInterface flight : flights) {
+            remove(table, flight.getId());
+            if (!isSchedulable(flight)) continue;
+
+            CompactFlight compact = store.add(flight);
+            flightsById.get(table).put(compact.getId(), compact);
+            byAirport.computeIfAbsent(compact.getDepartureCode(), k -> new ArrayList<>()).add(compact);
+        }
+        byAirport.forEach((code, added) -> departuresByAirport.compute(code,
+                (k, current) -> (current == null ? Departures.EMPTY : current).withAll(table, added)));
+        compactIfSparse();
+    }
+
+    /**
+     * Copies the live flights into a new store once dead rows outnumber them, in departure order
+     * per airport, and swaps the copies into both indexes. Readers still holding old handles keep
+     * reading the old store, which lives until they drop it.
+     */
+    private void compactIfSparse() {
+        int live = size();
+        int dead = store.size() - live;
+        if (dead < COMPACT_MIN_DEAD_ROWS || dead <= live) return;
+
+        seatLock.writeLock().lock();
+        try {
+            CompactFlightStore compacted = new CompactFlightStore();
+            Map<CompactFlight, CompactFlight> moved = new IdentityHashMap<>();
+            for (Departures departures : departuresByAirport.values()) {
+                for (CompactFlight f : departures.flights) {
+                    moved.put(f, compacted.add(f));
+                }
+            }
+            Map<AirlineTable, Map<Integer, CompactFlight>> byId = new EnumMap<>(AirlineTable.class);
+            flightsById.forEach((table, flights) -> {
+                Map<Integer, CompactFlight> copies = new HashMap<>();
+                flights.forEach((id, f) -> copies.put(id, moved.computeIfAbsent(f, compacted::add)));
+                byId.put(table, copies);
+            });
+
+            store = compacted;
+            departuresByAirport.replaceAll((code, departures) -> departures.remap(moved));
+            byId.forEach((table, copies) -> flightsById.get(table).putAll(copies));
+        } finally {
+            seatLock.writeLock().unlock();
+        }
+    }
+
+    int storedRows() {
+        return store.size();
+    }
+
+    public synchronized void remove(AirlineTable table, int id) {
+        CompactFlight existing = flightsById.get(table).remove(id);
+        if (existing == null) return;
+
+        departuresByAirport.computeIfPresent(existing.getDepartureCode(), (code, current) -> {
+            int at = current.indexOf(table, id);
+            if (at < 0) return current;
+            return current.size() == 1 ? null : current.without(at);
+        });
+    }
+
+    public void reserveSeat(AirlineTable table, int id) {
+        seatLock.readLock().lock();
+        try {
+            FlightInterface flight = get(table, id);
+            if (flight != null) {
+                flight.reserved();
+            }
+        } finally {
+            seatLock.readLock().unlock();
+        }
+    }
+
+    public void releaseSeat(AirlineTable table, int id) {
+        seatLock.readLock().lock();
+        try {
+            FlightInterface flight = get(table, id);
+            if (flight != null) {
+                flight.released();
+            }
+        } finally {
+            seatLock.readLock().unlock();
+        }
+    }
+
+    private static boolean isSchedulable(FlightInterface f) {
+        return f.getDepartureTime() != null && f.getArrivalTime() != null
+                && f.getArrivalTime().after(f.getDepartureTime());
+    }
+
+    public static long toEpochMinute(Timestamp ts) {
+        return ts.toLocalDateTime().toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    public static String airportCode(String airportWithParen) {
+        int p0 = airportWithParen.indexOf('(');
+        int p1 = airportWithParen.indexOf(')');
+        String code;
+        if (p0 >= 0 && p1 > p0) {
+            code = airportWithParen.substring(p0 + 1, p1);
+        } else {
+            code = airportWithParen.length() >= 3
+                    ? airportWithParen.substring(airportWithParen.length() - 3)
+                    : airportWithParen;
+        }
+        return code.toUpperCase();
+    }
+}
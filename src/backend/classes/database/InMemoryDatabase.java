@@ -0,0 +1,623 @@
+package backend.classes.database;
+
+import backend.classes.holds.SeatHold;
+import backend.classes.metrics.SearchMetrics;
+import backend.classes.metrics.SearchMetrics.Stage;
+import backend.classes.records.ChangeOutcome;
+import backend.classes.records.Flight;
+import backend.classes.records.FlightKey;
+import backend.classes.records.FlightPage;
+import backend.classes.records.FlightUpdate;
+import backend.classes.records.RoundTripPage;
+import backend.classes.search.BoundedRouteSearch;
+import backend.classes.search.RoundTripAssembler;
+import backend.classes.search.RouteQuery;
+import backend.classes.search.RouteSearchResult;
+import backend.classes.search.SearchCursor;
+import backend.exceptions.NoSeatsAvailableException;
+import backend.interfaces.DatabaseInterface;
+import backend.interfaces.FlightInterface;
+import backend.interfaces.RouteSearchEngine;
+import enums.AirlineTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * DatabaseInterface held entirely in memory: one {@link FlightColumns} per airline table, plus the
+ * same FlightGraph and route search engine Database uses for connections. Results, ordering,
+ * cursors and error cases match Database, so either can back FlightService. Writes stay in memory;
+ * {@link #loadFrom} seeds the tables from MySQL once. It is not a standby: nothing written to MySQL
+ * afterwards reaches it, and nothing written here reaches MySQL.
+ */
+public class InMemoryDatabase implements DatabaseInterface {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryDatabase.class);
+    public static final int DEFAULT_SEATS_AVAILABLE = 100;
+
+    private final Map<AirlineTable, FlightColumns> columns = new EnumMap<>(AirlineTable.class);
+    private final FlightGraph flightGraph = new FlightGraph();
+    private final AirportDictionary airports = new AirportDictionary();
+    private final Map<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private RouteSearchEngine routeSearchEngine = new BoundedRouteSearch();
+    private SearchMetrics metrics = SearchMetrics.noop();
+
+    private record DirectRow(FlightColumns.Snapshot table, int row, long sortValue) {
+        SearchCursor position() {
+            return SearchCursor.keyset(sortValue, table.table().getTableName(), table.id(row));
+        }
+    }
+
+    private static final Comparator<DirectRow> DIRECT_ORDER = Comparator
+            .comparingLong(DirectRow::sortValue)
+            .thenComparing(r -> r.table().table().getTableName())
+            .thenComparingInt(r -> r.table().id(r.row()));
+
+    public InMemoryDatabase() {
+        for (AirlineTable table : AirlineTable.values()) {
+            columns.put(table, new FlightColumns(table));
+        }
+    }
+
+    public FlightGraph getFlightGraph() {
+        return flightGraph;
+    }
+
+    public AirportDictionary getAirports() {
+        return airports;
+    }
+
+    public void setRouteSearchEngine(RouteSearchEngine routeSearchEngine) {
+        this.routeSearchEngine = routeSearchEngine;
+    }
+
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Adds existing flights, keeping their ids and seat counts. */
+    public synchronized void load(Map<AirlineTable, List<FlightInterface>> flightsByTable) {
+        for (Map.Entry<AirlineTable, List<FlightInterface>> e : flightsByTable.entrySet()) {
+            FlightColumns table = columns.get(e.getKey());
+            for (FlightInterface f : e.getValue()) {
+                table.load(f.getId(), f.getDepartureTime(), f.getArrivalTime(),
+                        f.getDepartureAirport(), f.getArrivalAirport(), f.getFlightNumber(), f.getSeatsFree());
+                airports.register(f.getDepartureAirport());
+                airports.register(f.getArrivalAirport());
+            }
+        }
+        long start = System.nanoTime();
+        rebuildFlightGraph();
+        metrics.record(Stage.INDEX_BUILD, start);
+    }
+
+    /** Copies every row of the flight tables behind {@code pool}. */
+    public void loadFrom(ConnectionPool pool) throws SQLException {
+        Map<AirlineTable, List<FlightInterface>> flightsByTable = new EnumMap<>(AirlineTable.class);
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : AirlineTable.values()) {
+                String sql = "SELECT id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable, '" +
+                        table.getTableName() + "' AS airline FROM " + table.getTableName();
+                List<FlightInterface> flights = new ArrayList<>();
+                long start = System.nanoTime();
+                try (PreparedStatement pstmt = connection.prepareStatement(sql);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    metrics.record(Stage.SQL, start);
+                    start = System.nanoTime();
+                    while (rs.next()) {
+                        flights.add(new Flight(rs));
+                    }
+                    metrics.record(Stage.MAPPING, start);
+                }
+                flightsByTable.put(table, flights);
+            }
+        }
+        load(flightsByTable);
+        log.info("Loaded {} flights into memory.", flightGraph.size());
+    }
+
+    private void rebuildFlightGraph() {
+        Map<AirlineTable, List<FlightInterface>> flightsByTable = new EnumMap<>(AirlineTable.class);
+        for (FlightColumns table : columns.values()) {
+            FlightColumns.Snapshot s = table.snapshot();
+            List<FlightInterface> flights = new ArrayList<>(s.size());
+            for (int row : s.byDeparture()) {
+                flights.add(s.flight(row));
+            }
+            flightsByTable.put(table.table(), flights);
+        }
+        flightGraph.load(flightsByTable);
+    }
+
+    @Override
+    public int insertFlight(AirlineTable table, List<Object> params) throws SQLException {
+        Timestamp depart = requireTimestamp(params.get(0), "DepartDateTime");
+        Timestamp arrive = requireTimestamp(params.get(1), "ArriveDateTime");
+        String departAirport = (String) params.get(2);
+        String arriveAirport = (String) params.get(3);
+        String flightNumber = (String) params.get(4);
+
+        FlightColumns target = columns.get(table);
+        synchronized (target) {
+            int id = target.insert(depart, arrive, departAirport, arriveAirport, flightNumber, DEFAULT_SEATS_AVAILABLE);
+            airports.register(departAirport);
+            airports.register(arriveAirport);
+            flightGraph.put(table, target.flight(id));
+            return id;
+        }
+    }
+
+    @Override
+    public Map<AirlineTable, List<Integer>> insertFlights(Map<AirlineTable, List<List<Object>>> rowsByTable) throws SQLException {
+        for (List<List<Object>> rows : rowsByTable.values()) {
+            for (List<Object> row : rows) {
+                requireTimestamp(row.get(0), "DepartDateTime");
+                requireTimestamp(row.get(1), "ArriveDateTime");
+            }
+        }
+
+        Map<AirlineTable, List<Integer>> ids = new EnumMap<>(AirlineTable.class);
+        for (Map.Entry<AirlineTable, List<List<Object>>> e : rowsByTable.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+
+            FlightColumns target = columns.get(e.getKey());
+            List<Integer> inserted = new ArrayList<>(e.getValue().size());
+            List<FlightInterface> flights = new ArrayList<>(e.getValue().size());
+            synchronized (target) {
+                for (List<Object> row : e.getValue()) {
+                    String departAirport = (String) row.get(2);
+                    String arriveAirport = (String) row.get(3);
+                    int seats = row.get(5) == null ? DEFAULT_SEATS_AVAILABLE : (Integer) row.get(5);
+                    int id = target.insert((Timestamp) row.get(0), (Timestamp) row.get(1),
+                            departAirport, arriveAirport, (String) row.get(4), seats);
+                    airports.register(departAirport);
+                    airports.register(arriveAirport);
+                    inserted.add(id);
+                    flights.add(target.flight(id));
+                }
+                flightGraph.putAll(e.getKey(), flights);
+            }
+            ids.put(e.getKey(), inserted);
+        }
+        return ids;
+    }
+
+    @Override
+    public ArrayList<Integer> updateTables(List<AirlineTable> tables, List<Object> params) throws SQLException {
+        ArrayList<Integer> ids = new ArrayList<>();
+        int id = (int) params.get(params.size() - 1);
+
+        for (AirlineTable table : tables) {
+            FlightKey key = new FlightKey(table, id);
+            boolean changed = params.size() == 1 ? deleteFlight(key) : updateFlight(key, params);
+            if (changed) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public FlightKey locateFlight(int id) {
+        for (AirlineTable table : AirlineTable.values()) {
+            if (columns.get(table).contains(id)) {
+                return new FlightKey(table, id);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public FlightInterface selectFlight(FlightKey key) {
+        return columns.get(key.table()).flight(key.id());
+    }
+
+    @Override
+    public boolean updateFlight(FlightKey key, List<Object> params) throws SQLException {
+        FlightColumns target = columns.get(key.table());
+        String departAirport = (String) params.get(2);
+        String arriveAirport = (String) params.get(3);
+        synchronized (target) {
+            boolean changed = target.update(key.id(),
+                    requireTimestamp(params.get(0), "DepartDateTime"),
+                    requireTimestamp(params.get(1), "ArriveDateTime"),
+                    departAirport, arriveAirport, (String) params.get(4));
+            airports.register(departAirport);
+            airports.register(arriveAirport);
+            if (changed) {
+                flightGraph.put(key.table(), target.flight(key.id()));
+            }
+            return changed;
+        }
+    }
+
+    @Override
+    public boolean deleteFlight(FlightKey key) {
+        FlightColumns target = columns.get(key.table());
+        synchronized (target) {
+            boolean changed = target.delete(key.id());
+            flightGraph.remove(key.table(), key.id());
+            return changed;
+        }
+    }
+
+    /** Applies the changes one by one; there is no transaction to roll back in memory. */
+    @Override
+    public List<ChangeOutcome> applyChanges(List<FlightUpdate> updates, List<FlightKey> deletes) throws SQLException {
+        List<ChangeOutcome> outcomes = new ArrayList<>(updates.size() + deletes.size());
+        for (FlightUpdate update : updates) {
+            outcomes.add(updateFlight(update.key(), update.params())
+                    ? ChangeOutcome.of(update.key(), ChangeOutcome.Status.UPDATED, null)
+                    : ChangeOutcome.of(update.key(), ChangeOutcome.Status.NOT_FOUND, "Flight not found"));
+        }
+        for (FlightKey key : deletes) {
+            outcomes.add(deleteFlight(key)
+                    ? ChangeOutcome.of(key, ChangeOutcome.Status.DELETED, null)
+                    : ChangeOutcome.of(key, ChangeOutcome.Status.NOT_FOUND, "Flight not found"));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public boolean decreaseSeatsAvailable(AirlineTable table, int flightId) {
+        if (!columns.get(table).takeSeats(flightId, 1)) {
+            return false;
+        }
+        flightGraph.reserveSeat(table, flightId);
+        return true;
+    }
+
+    @Override
+    public FlightInterface reserveSeat(FlightKey key) {
+        return decreaseSeatsAvailable(key.table(), key.id()) ? selectFlight(key) : null;
+    }
+
+    @Override
+    public boolean increaseSeatsAvailable(AirlineTable table, int flightId, int seats) {
+        if (!columns.get(table).returnSeats(flightId, seats)) {
+            return false;
+        }
+        for (int i = 0; i < seats; i++) {
+            flightGraph.releaseSeat(table, flightId);
+        }
+        return true;
+    }
+
+    @Override
+    public void reserveItinerary(List<FlightKey> legs) {
+        Map<FlightKey, Integer> seats = Database.seatsByLeg(legs);
+        Map<FlightKey, Integer> taken = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<FlightKey, Integer> e : seats.entrySet()) {
+                FlightKey leg = e.getKey();
+                FlightColumns table = columns.get(leg.table());
+                if (!table.contains(leg.id())) {
+                    throw new NoSuchElementException("Flight not found: " + leg.id());
+                }
+                if (!table.takeSeats(leg.id(), e.getValue())) {
+                    throw new NoSeatsAvailableException(leg.id());
+                }
+                taken.put(leg, e.getValue());
+            }
+        } catch (RuntimeException e) {
+            taken.forEach((leg, n) -> columns.get(leg.table()).returnSeats(leg.id(), n));
+            throw e;
+        }
+
+        taken.forEach((leg, n) -> {
+            for (int i = 0; i < n; i++) {
+                flightGraph.reserveSeat(leg.table(), leg.id());
+            }
+        });
+    }
+
+    @Override
+    public void holdItinerary(SeatHold hold) {
+        reserveItinerary(hold.legs());
+        holds.put(hold.id(), hold);
+    }
+
+    @Override
+    public SeatHold confirmHold(String holdId) {
+        return holds.remove(holdId);
+    }
+
+    @Override
+    public SeatHold releaseHold(String holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold != null) {
+            for (FlightKey leg : hold.legs()) {
+                increaseSeatsAvailable(leg.table(), leg.id(), 1);
+            }
+        }
+        return hold;
+    }
+
+    @Override
+    public List<SeatHold> selectHolds() {
+        return List.copyOf(holds.values());
+    }
+
+    private static Timestamp requireTimestamp(Object value, String column) throws SQLException {
+        if (value instanceof Timestamp ts) {
+            return ts;
+        }
+        throw new SQLException("Column '" + column + "' cannot be null");
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables, String sortBy, List<Object> params) {
+        return selectFlights(tables, sortBy, params, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) {
+        params = Database.ensureFullDayRange(params);
+        int maxStops = (int) params.get(4);
+
+        ArrayList<FlightInterface> flights = new ArrayList<>();
+        List<DirectRow> rows = directFlights(Database.filterTables(tables, params.get(5)), sortBy, params);
+        for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+            flights.add(rows.get(i).table().flight(rows.get(i).row()));
+        }
+
+        if (!flights.isEmpty() || maxStops < 1) {
+            return flights;
+        }
+        return searchConnections(tables, sortBy, params, maxStops, limit);
+    }
+
+    @Override
+    public void streamFlights(List<AirlineTable> tables, String sortBy, List<Object> params, int limit,
+                              Predicate<FlightInterface> sink) {
+        params = Database.ensureFullDayRange(params);
+        int maxStops = (int) params.get(4);
+
+        List<DirectRow> rows = directFlights(Database.filterTables(tables, params.get(5)), sortBy, params);
+        if (!rows.isEmpty()) {
+            for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+                if (!sink.test(rows.get(i).table().flight(rows.get(i).row()))) return;
+            }
+            return;
+        }
+        if (maxStops < 1 || limit < 1) return;
+
+        routeSearchEngine.search(flightGraph, routeQuery(tables, sortBy, params, maxStops, limit),
+                legs -> sink.test(Database.chain(legs)));
+    }
+
+    @Override
+    public FlightPage selectFlightPage(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                       String cursor, int pageSize) {
+        params = Database.ensureFullDayRange(params);
+        SearchCursor after = SearchCursor.decode(cursor);
+        int offset = after != null && !after.keyset() ? after.offset() : 0;
+        int maxStops = (int) params.get(4);
+
+        List<DirectRow> rows = directFlights(Database.filterTables(tables, params.get(5)), sortBy, params);
+        int total = rows.size();
+        if (total > 0) {
+            int from = offset;
+            if (after != null && after.keyset()) {
+                from = seekPast(rows, after);
+            }
+            int to = Math.min(from + pageSize, total);
+
+            List<FlightInterface> flights = new ArrayList<>();
+            List<String> cursors = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                flights.add(rows.get(i).table().flight(rows.get(i).row()));
+                cursors.add(rows.get(i).position().encode());
+            }
+            boolean hasMore = total > from + pageSize;
+            String nextCursor = hasMore ? cursors.get(cursors.size() - 1) : null;
+            return new FlightPage(flights, total, true, hasMore, nextCursor, cursors);
+        }
+
+        if (maxStops < 1) {
+            return new FlightPage(new ArrayList<>(), 0, true, false, null, List.of());
+        }
+
+        int limit = offset + pageSize + 1;
+        RouteSearchResult result = routeSearchEngine.search(flightGraph, routeQuery(tables, sortBy, params, maxStops, limit));
+        ArrayList<FlightInterface> connecting = Database.chainItineraries(result);
+        int toIndex = Math.min(offset + pageSize, connecting.size());
+        List<FlightInterface> flights = offset < connecting.size()
+                ? new ArrayList<>(connecting.subList(offset, toIndex))
+                : new ArrayList<>();
+        boolean hasMore = connecting.size() > offset + pageSize;
+        String nextCursor = hasMore ? SearchCursor.offset(offset + pageSize).encode() : null;
+        boolean exhausted = connecting.size() < limit && !result.truncated();
+        return new FlightPage(flights, connecting.size(), exhausted, hasMore, nextCursor,
+                Database.offsetCursors(offset, flights.size()));
+    }
+
+    /** Index of the first row ordered after the cursor position. */
+    private static int seekPast(List<DirectRow> rows, SearchCursor after) {
+        int lo = 0;
+        int hi = rows.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            DirectRow r = rows.get(mid);
+            int cmp = Long.compare(r.sortValue(), after.sortValue());
+            if (cmp == 0) cmp = r.table().table().getTableName().compareTo(after.table());
+            if (cmp == 0) cmp = Integer.compare(r.table().id(r.row()), after.id());
+            if (cmp <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Direct flights in the window, ordered by (sort value, table, id) like Database's UNION query. */
+    private List<DirectRow> directFlights(List<AirlineTable> tables, String sortBy, List<Object> params) {
+        List<DirectRow> rows = new ArrayList<>();
+        Set<String> depart = airports.resolve((String) params.get(0));
+        Set<String> arrive = airports.resolve((String) params.get(1));
+        if ((depart != null && depart.isEmpty()) || (arrive != null && arrive.isEmpty())) {
+            return rows;
+        }
+
+        long start = ((Timestamp) params.get(2)).getTime();
+        long end = ((Timestamp) params.get(3)).getTime();
+        String sortKey = sortBy.toLowerCase();
+
+        for (AirlineTable table : tables) {
+            FlightColumns.Snapshot s = columns.get(table).snapshot();
+            if (depart == null) {
+                collect(s, s.byDeparture(), start, end, arrive, sortKey, rows);
+            } else {
+                for (String code : depart) {
+                    collect(s, s.departingFrom(code), start, end, arrive, sortKey, rows);
+                }
+            }
+        }
+        rows.sort(DIRECT_ORDER);
+        return rows;
+    }
+
+    private static void collect(FlightColumns.Snapshot s, int[] index, long start, long end, Set<String> arrive,
+                                String sortKey, List<DirectRow> out) {
+        for (int i = s.indexAtOrAfter(index, start); i < index.length && s.depart(index[i]) <= end; i++) {
+            int row = index[i];
+            if (s.depart(row) >= s.arrive(row)) continue;
+            if (arrive != null && !arrive.contains(s.arriveCode(row))) continue;
+
+            long sortValue = switch (sortKey) {
+                case "arrivedatetime" -> s.arrive(row);
+                case "traveltime" -> (s.arrive(row) - s.depart(row)) / 60_000;
+                default -> s.depart(row);
+            };
+            out.add(new DirectRow(s, row, sortValue));
+        }
+    }
+
+    private ArrayList<FlightInterface> searchConnections(List<AirlineTable> tables, String sortBy, List<Object> params,
+                                                         int maxStops, int limit) {
+        RouteSearchResult result = routeSearchEngine.search(flightGraph, routeQuery(tables, sortBy, params, maxStops, limit));
+        return Database.chainItineraries(result);
+    }
+
+    private RouteQuery routeQuery(List<AirlineTable> tables, String sortBy, List<Object> params, int maxStops, int limit) {
+        return new RouteQuery(
+                codesOrNone(airports.resolve((String) params.get(0))),
+                codesOrNone(airports.resolve((String) params.get(1))),
+                FlightGraph.toEpochMinute((Timestamp) params.get(2)),
+                FlightGraph.toEpochMinute((Timestamp) params.get(3)),
+                EnumSet.copyOf(tables), maxStops, sortBy, limit);
+    }
+
+    /** A route has to start and end somewhere, so an unfiltered end matches no airport. */
+    private static Set<String> codesOrNone(Set<String> codes) {
+        return codes == null ? Set.of() : codes;
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params) {
+        return selectRoundTrip(tables, sortBy, params, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) {
+        return selectRoundTripPage(tables, sortBy, params, limit).roundTrips();
+    }
+
+    @Override
+    public RoundTripPage selectRoundTripPage(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) {
+        int batch = RoundTripAssembler.firstBatch(limit);
+        ArrayList<FlightInterface> flightsTo = selectFlights(tables, sortBy, RoundTripAssembler.outboundParams(params), batch);
+        ArrayList<FlightInterface> flightsReturned = selectFlights(tables, sortBy, RoundTripAssembler.returnParams(params), batch);
+        while (true) {
+            RoundTripPage page = RoundTripAssembler.pair(flightsTo, flightsReturned, batch, sortBy, params, limit);
+            if (page != null) {
+                return page;
+            }
+            // Search again for more of a leg only if it filled its batch
+            int next = RoundTripAssembler.nextBatch(flightsTo, flightsReturned, batch);
+            if (!RoundTripAssembler.complete(flightsTo, batch)) {
+                flightsTo = selectFlights(tables, sortBy, RoundTripAssembler.outboundParams(params), next);
+            }
+            if (!RoundTripAssembler.complete(flightsReturned, batch)) {
+                flightsReturned = selectFlights(tables, sortBy, RoundTripAssembler.returnParams(params), next);
+            }
+            batch = next;
+        }
+    }
+
+    @Override
+    public FlightInterface selectFlightById(List<AirlineTable> tables, int id) {
+        for (AirlineTable table : tables) {
+            FlightInterface flight = columns.get(table).flight(id);
+            if (flight != null) {
+                return flight;
+            }
+        }
+        return null;
+    }
+
+    /** First (or last) departure across {@code tables}; ties go to the earlier table, then the lower id. */
+    private FlightInterface departureExtreme(List<AirlineTable> tables, boolean latest) {
+        FlightColumns.Snapshot best = null;
+        int bestRow = -1;
+        for (AirlineTable table : tables) {
+            FlightColumns.Snapshot s = columns.get(table).snapshot();
+            int[] rows = s.byDeparture();
+            if (rows.length == 0) continue;
+
+            int row = rows[0];
+            if (latest) {
+                int last = s.indexAtOrAfter(rows, s.depart(rows[rows.length - 1]));
+                row = rows[last];
+            }
+            if (best == null || (latest ? s.depart(row) > best.depart(bestRow) : s.depart(row) < best.depart(bestRow))) {
+                best = s;
+                bestRow = row;
+            }
+        }
+        return best == null ? null : best.flight(bestRow);
+    }
+
+    @Override
+    public FlightInterface getFlightWithEarliestDeparture(List<AirlineTable> tables) throws SQLException {
+        FlightInterface flight = departureExtreme(tables, false);
+        if (flight == null) {
+            throw new SQLException("No flights found for tables: " + tables);
+        }
+        return flight;
+    }
+
+    @Override
+    public FlightInterface getFlightWithLatestDeparture(List<AirlineTable> tables) {
+        return departureExtreme(tables, true);
+    }
+
+    @Override
+    public Timestamp getEarliestDepartureTime(List<AirlineTable> tables) throws SQLException {
+        return getFlightWithEarliestDeparture(tables).getDepartureTime();
+    }
+
+    @Override
+    public Timestamp getLatestDepartureTime(List<AirlineTable> tables) throws SQLException {
+        FlightInterface latest = departureExtreme(tables, true);
+        if (latest == null) {
+            throw new SQLException("No flights found for tables: " + tables);
+        }
+        return latest.getDepartureTime();
+    }
+
+    @Override
+    public void close() {
+        if (routeSearchEngine instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close route search engine", e);
+            }
+        }
+    }
+}
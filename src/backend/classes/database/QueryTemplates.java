@@ -0,0 +1,255 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SQL text for every query shape {@link Database} runs, built once per shape and reused. A shape is
+ * whatever changes the text: the tables, the sort, how many airport codes are bound and where a
+ * keyset cursor sits. Values, limits and offsets are always bind parameters, so a repeated search
+ * sends the driver the identical string and its per-connection statement cache can skip the
+ * parse and plan.
+ */
+public final class QueryTemplates {
+    /** Shapes beyond this are built on every call rather than cached, so odd inputs cannot grow the map. */
+    static final int MAX_TEMPLATES = 1024;
+
+    static final String FLIGHT_COLUMNS =
+            "id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable";
+
+    private record Key(String kind, List<AirlineTable> tables, Object variant) {
+    }
+
+    private record DirectShape(String sortExpr, int departCodes, int arriveCodes, String cursorRelations, boolean bounded) {
+    }
+
+    public record Stats(int templates, long hits, long misses) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private final Map<Key, String> templates = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    Stats getStats() {
+        return new Stats(templates.size(), hits.sum(), misses.sum());
+    }
+
+    private String template(String kind, List<AirlineTable> tables, Object variant, Supplier<String> build) {
+        Key key = new Key(kind, List.copyOf(tables), variant);
+        String sql = templates.get(key);
+        if (sql != null) {
+            hits.increment();
+            return sql;
+        }
+        misses.increment();
+        sql = build.get();
+        if (templates.size() < MAX_TEMPLATES) {
+            templates.putIfAbsent(key, sql);
+        }
+        return sql;
+    }
+
+    private String template(String kind, AirlineTable table, Supplier<String> build) {
+        return template(kind, List.of(table), null, build);
+    }
+
+    private static String selectFlights(String tableName) {
+        return "SELECT " + FLIGHT_COLUMNS + ", '" + tableName + "' AS airline FROM " + tableName;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    String allFlights(AirlineTable table) {
+        return template("all", table, () -> selectFlights(table.getTableName()));
+    }
+
+    String flightsAfter(AirlineTable table) {
+        return template("afterId", table, () -> selectFlights(table.getTableName()) + " WHERE id > ?");
+    }
+
+    String flightById(AirlineTable table) {
+        return template("byId", table, () -> selectFlights(table.getTableName()) + " WHERE id = ?");
+    }
+
+    /** The first (or with {@code latest}, the last) departure across {@code tables}. */
+    String firstDeparture(List<AirlineTable> tables, boolean latest) {
+        return template("firstDeparture", tables, latest, () -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < tables.size(); i++) {
+                sb.append(selectFlights(tables.get(i).getTableName()));
+                if (i < tables.size() - 1) {
+                    sb.append(" UNION ALL ");
+                }
+            }
+            return sb.append(latest ? " ORDER BY DepartDateTime DESC LIMIT 1" : " ORDER BY DepartDateTime ASC LIMIT 1")
+                    .toString();
+        });
+    }
+
+    /** Every airport name that appears at either end of a flight in {@code tables}. */
+    String allAirports(List<AirlineTable> tables) {
+        return template("airports", tables, null, () -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < tables.size(); i++) {
+                String name = tables.get(i).getTableName();
+                if (i > 0) {
+                    sb.append(" UNION ");
+                }
+                sb.append("SELECT DepartAirport FROM ").append(name)
+                        .append(" UNION SELECT ArriveAirport FROM ").append(name);
+            }
+            return sb.toString();
+        });
+    }
+
+    String departureBounds(AirlineTable table) {
+        return template("bounds", table,
+                () -> "SELECT MIN(DepartDateTime), MAX(DepartDateTime) FROM " + table.getTableName());
+    }
+
+    String insertFlight(AirlineTable table) {
+        return template("insert", table, () -> "INSERT INTO " + table.getTableName()
+                + " (DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, DepartCode, ArriveCode) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    String updateFlight(AirlineTable table) {
+        return template("update", table, () -> "UPDATE " + table.getTableName()
+                + " SET DepartDateTime = ?, ArriveDateTime = ?, DepartAirport = ?, ArriveAirport = ?, FlightNumber = ?, "
+                + "DepartCode = ?, ArriveCode = ? WHERE id = ?");
+    }
+
+    String deleteFlight(AirlineTable table) {
+        return template("delete", table, () -> "DELETE FROM " + table.getTableName() + " WHERE id = ?");
+    }
+
+    String takeOneSeat(AirlineTable table) {
+        return template("takeOne", table, () -> "UPDATE " + table.getTableName()
+                + " SET SeatsAvailable = SeatsAvailable - 1 WHERE id = ? AND SeatsAvailable > 0");
+    }
+
+    String takeSeats(AirlineTable table) {
+        return template("take", table,
+                () -> "UPDATE " + table.getTableName() + " SET SeatsAvailable = SeatsAvailable - ? WHERE id = ?");
+    }
+
+    String returnSeats(AirlineTable table) {
+        return template("return", table,
+                () -> "UPDATE " + table.getTableName() + " SET SeatsAvailable = SeatsAvailable + ? WHERE id = ?");
+    }
+
+    private static String directFlightFilter(int departCodes, int arriveCodes) {
+        StringBuilder sb = new StringBuilder(" WHERE DepartDateTime BETWEEN ? AND ? AND DepartDateTime < ArriveDateTime ");
+        if (departCodes >= 0) {
+            sb.append(" AND DepartCode IN (").append(placeholders(departCodes)).append(") ");
+        }
+        if (arriveCodes >= 0) {
+            sb.append(" AND ArriveCode IN (").append(placeholders(arriveCodes)).append(") ");
+        }
+        return sb.toString();
+    }
+
+    private static String sortExpression(String sortBy) {
+        return switch (sortBy.toLowerCase()) {
+            case "arrivedatetime" -> "ArriveDateTime";
+            case "traveltime" -> "TIMESTAMPDIFF(MINUTE, DepartDateTime, ArriveDateTime)";
+            default -> "DepartDateTime";
+        };
+    }
+
+    /**
+     * Count of direct flights across {@code tables}. A code count of -1 means that end is not
+     * filtered; otherwise it is the number of codes bound in its IN list.
+     */
+    String countDirectFlights(List<AirlineTable> tables, int departCodes, int arriveCodes) {
+        return template("countDirect", tables, List.of(departCodes, arriveCodes), () -> {
+            String filter = directFlightFilter(departCodes, arriveCodes);
+            StringBuilder sb = new StringBuilder("SELECT SUM(c) FROM (");
+            for (int i = 0; i < tables.size(); i++) {
+                sb.append("SELECT COUNT(*) AS c FROM ").append(tables.get(i).getTableName()).append(filter);
+                if (i < tables.size() - 1) {
+                    sb.append(" UNION ALL ");
+                }
+            }
+            return sb.append(") counts").toString();
+        });
+    }
+
+    /**
+     * Where each table sorts against the cursor's table ('<', '=' or '>'), or null without a cursor.
+     * Only this, not the table name itself, changes the text, so it is what the shape is keyed on.
+     */
+    private static String cursorRelations(List<AirlineTable> tables, String afterTable) {
+        if (afterTable == null) return null;
+        StringBuilder relations = new StringBuilder(tables.size());
+        for (AirlineTable table : tables) {
+            int cmp = table.getTableName().compareTo(afterTable);
+            relations.append(cmp > 0 ? '>' : cmp < 0 ? '<' : '=');
+        }
+        return relations.toString();
+    }
+
+    /**
+     * Direct flights ordered by (sort value, table, id). With {@code afterTable} set, each branch of
+     * the UNION seeks past the cursor on its own. When {@code bounded}, each branch takes a
+     * per-branch LIMIT parameter and the whole query ends in LIMIT ? OFFSET ?.
+     */
+    String directFlights(List<AirlineTable> tables, String sortBy, int departCodes, int arriveCodes,
+                         String afterTable, boolean bounded) {
+        String sortExpr = sortExpression(sortBy);
+        String relations = cursorRelations(tables, afterTable);
+        DirectShape shape = new DirectShape(sortExpr, departCodes, arriveCodes, relations, bounded);
+        return template("direct", tables, shape, () -> {
+            String filter = directFlightFilter(departCodes, arriveCodes);
+            boolean union = tables.size() > 1;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < tables.size(); i++) {
+                String tableName = tables.get(i).getTableName();
+                sb.append(union ? "(" : "").append("SELECT ").append(FLIGHT_COLUMNS).append(", '")
+                        .append(tableName).append("' AS airline, ")
+                        .append(sortExpr).append(" AS sortKey ")
+                        .append(" FROM ").append(tableName)
+                        .append(filter);
+
+                if (relations != null) {
+                    char cmp = relations.charAt(i);
+                    if (cmp == '>') {
+                        sb.append(" AND ").append(sortExpr).append(" >= ? ");
+                    } else if (cmp == '<') {
+                        sb.append(" AND ").append(sortExpr).append(" > ? ");
+                    } else {
+                        sb.append(" AND (").append(sortExpr).append(" > ? OR (")
+                                .append(sortExpr).append(" = ? AND id > ?)) ");
+                    }
+                }
+                if (bounded && union) {
+                    sb.append(" ORDER BY sortKey, id LIMIT ?");
+                }
+                sb.append(union ? ")" : "");
+
+                if (i < tables.size() - 1) {
+                    sb.append(" UNION ALL ");
+                }
+            }
+
+            // A single table needs no merge, so it is queried without the UNION wrapper
+            sb.append(union ? " ORDER BY sortKey, airline, id" : " ORDER BY sortKey, id");
+            if (bounded) {
+                sb.append(" LIMIT ? OFFSET ?");
+            }
+            return sb.toString();
+        });
+    }
+}
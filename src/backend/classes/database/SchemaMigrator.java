@@ -0,0 +1,105 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds the normalized DepartCode/ArriveCode columns and their indexes to every airline table and
+ * backfills existing rows, and creates the seat holds table. Each step checks the live schema
+ * first, so running it on every start is safe.
+ */
+public class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+    private static final int BACKFILL_BATCH_SIZE = 10_000;
+    public static final String HOLDS_TABLE = "seat_holds";
+
+    private final ConnectionPool pool;
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void migrate() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : AirlineTable.values()) {
+                String name = table.getTableName();
+                addColumnIfMissing(connection, name, "DepartCode");
+                addColumnIfMissing(connection, name, "ArriveCode");
+                backfill(connection, name, "DepartCode", "DepartAirport");
+                backfill(connection, name, "ArriveCode", "ArriveAirport");
+                addIndexIfMissing(connection, name, "idx_" + name + "_depart_code", "DepartCode, DepartDateTime");
+                addIndexIfMissing(connection, name, "idx_" + name + "_arrive_code", "ArriveCode, DepartDateTime");
+            }
+            // One row per leg of each unconfirmed hold; Airline is the leg's table name.
+            addTableIfMissing(connection, HOLDS_TABLE, "HoldId VARCHAR(36) NOT NULL, Leg INT NOT NULL, " +
+                    "Airline VARCHAR(32) NOT NULL, FlightId INT NOT NULL, ExpiresAt TIMESTAMP NOT NULL, " +
+                    "PRIMARY KEY (HoldId, Leg)");
+        }
+    }
+
+    /** SQL equivalent of FlightGraph.airportCode: the text in parentheses, else the last three characters. */
+    static String codeExpression(String column) {
+        return "UPPER(CASE WHEN LOCATE('(', " + column + ") > 0 AND LOCATE(')', " + column + ") > LOCATE('(', " + column + ") " +
+                "THEN SUBSTRING(" + column + ", LOCATE('(', " + column + ") + 1, " +
+                "LOCATE(')', " + column + ") - LOCATE('(', " + column + ") - 1) " +
+                "ELSE RIGHT(" + column + ", 3) END)";
+    }
+
+    private void addColumnIfMissing(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, table, column)) {
+            if (rs.next()) return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " VARCHAR(8) NULL");
+        }
+        log.info("Added column {}.{}", table, column);
+    }
+
+    private void backfill(Connection connection, String table, String codeColumn, String airportColumn) throws SQLException {
+        String sql = "UPDATE " + table + " SET " + codeColumn + " = " + codeExpression(airportColumn) +
+                " WHERE " + codeColumn + " IS NULL AND " + airportColumn + " IS NOT NULL LIMIT " + BACKFILL_BATCH_SIZE;
+        int total = 0;
+        try (Statement stmt = connection.createStatement()) {
+            int updated;
+            do {
+                updated = stmt.executeUpdate(sql);
+                total += updated;
+            } while (updated == BACKFILL_BATCH_SIZE);
+        }
+        if (total > 0) {
+            log.info("Backfilled {} rows of {}.{}", total, table, codeColumn);
+        }
+    }
+
+    private void addTableIfMissing(Connection connection, String table, String columns) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getTables(connection.getCatalog(), null, table, new String[]{"TABLE"})) {
+            if (rs.next()) return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE " + table + " (" + columns + ")");
+        }
+        log.info("Created table {}", table);
+    }
+
+    private void addIndexIfMissing(Connection connection, String table, String index, String columns) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return;
+            }
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+        log.info("Created index {}", index);
+    }
+}
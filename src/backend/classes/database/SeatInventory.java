@@ -0,0 +1,338 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Seats left per flight, decided in memory and written behind in group commits. A reservation
+ * takes its seats from an atomic counter and is queued; one writer thread drains the queue into a
+ * single transaction of batched, guarded UPDATEs, then completes every reservation in the batch.
+ * The counter never goes below zero and the guard in the UPDATE never lets the table go below
+ * zero, so a flight cannot be oversold even if the two disagree. Counters are reloaded from the
+ * tables on start, and a flight written by someone else since then gets its counter read from its
+ * table the first time it is reserved. A reservation is only reported once its commit has succeeded.
+ */
+public class SeatInventory implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SeatInventory.class);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2;
+
+    private record Key(AirlineTable table, int id) {
+    }
+
+    private record Pending(Key key, int seats, CompletableFuture<Boolean> done) {
+    }
+
+    private static final Comparator<Key> LOCK_ORDER = Comparator
+            .comparing(Key::table)
+            .thenComparingInt(Key::id);
+
+    private final ConnectionPool pool;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Map<AirlineTable, Map<Integer, AtomicInteger>> counters = new EnumMap<>(AirlineTable.class);
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong committedBatches = new AtomicLong();
+    private final AtomicLong committedReservations = new AtomicLong();
+    private final AtomicLong rejectedReservations = new AtomicLong();
+
+    public SeatInventory(ConnectionPool pool) {
+        this(pool, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public SeatInventory(ConnectionPool pool, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + maxBatchSize);
+        }
+        this.pool = pool;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        for (AirlineTable table : AirlineTable.values()) {
+            counters.put(table, new ConcurrentHashMap<>());
+        }
+        this.writer = new Thread(this::writeBehind, "seat-inventory-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Replaces every counter with SeatsAvailable as currently stored in the tables. */
+    public void load() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            for (AirlineTable table : AirlineTable.values()) {
+                Map<Integer, AtomicInteger> loaded = new HashMap<>();
+                String sql = "SELECT id, SeatsAvailable FROM " + table.getTableName();
+                try (PreparedStatement pstmt = connection.prepareStatement(sql);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        loaded.put(rs.getInt(1), new AtomicInteger(rs.getInt(2)));
+                    }
+                }
+                Map<Integer, AtomicInteger> current = counters.get(table);
+                current.keySet().retainAll(loaded.keySet());
+                current.putAll(loaded);
+            }
+        }
+    }
+
+    public void track(AirlineTable table, int id, int seatsAvailable) {
+        counters.get(table).put(id, new AtomicInteger(seatsAvailable));
+    }
+
+    public void forget(AirlineTable table, int id) {
+        counters.get(table).remove(id);
+    }
+
+    /** Seats left after every accepted reservation, committed or not; -1 for an unknown flight. */
+    public int available(AirlineTable table, int id) {
+        AtomicInteger counter = counters.get(table).get(id);
+        return counter == null ? -1 : counter.get();
+    }
+
+    /**
+     * Takes {@code seats} seats from flight {@code id}. The future completes with false straight
+     * away if there are not enough seats or no such flight, otherwise with true once the decrement
+     * is committed.
+     */
+    public CompletableFuture<Boolean> reserve(AirlineTable table, int id, int seats) {
+        if (seats < 1) {
+            throw new IllegalArgumentException("Seats must be at least 1: " + seats);
+        }
+        AtomicInteger counter;
+        try {
+            counter = counter(table, id);
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (counter == null || !take(counter, seats)) {
+            rejectedReservations.incrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                counter.addAndGet(seats);
+                return CompletableFuture.failedFuture(new IllegalStateException("Seat inventory is closed"));
+            }
+            queue.add(new Pending(new Key(table, id), seats, done));
+        } finally {
+            closing.readLock().unlock();
+        }
+        return done;
+    }
+
+    /**
+     * Takes seats from the counter only, for a caller that writes the decrement itself; returns
+     * false if there are not enough. Flights not in the tables, or whose counter cannot be read,
+     * are left to the caller's own guarded write and always succeed here.
+     */
+    public boolean take(AirlineTable table, int id, int seats) {
+        AtomicInteger counter;
+        try {
+            counter = counter(table, id);
+        } catch (SQLException e) {
+            log.warn("Could not load seat counter for {} flight {}", table.getTableName(), id, e);
+            return true;
+        }
+        return counter == null || take(counter, seats);
+    }
+
+    /**
+     * The counter for flight {@code id}, read from its table if the flight was written after the
+     * last {@link #load()}; null if the table has no such flight.
+     */
+    private AtomicInteger counter(AirlineTable table, int id) throws SQLException {
+        Map<Integer, AtomicInteger> byId = counters.get(table);
+        AtomicInteger counter = byId.get(id);
+        if (counter != null) return counter;
+
+        String sql = "SELECT SeatsAvailable FROM " + table.getTableName() + " WHERE id = ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                AtomicInteger loaded = new AtomicInteger(rs.getInt(1));
+                // Another caller may have loaded it meanwhile; theirs may already have seats taken.
+                AtomicInteger raced = byId.putIfAbsent(id, loaded);
+                return raced != null ? raced : loaded;
+            }
+        }
+    }
+
+    /** Returns seats taken with {@link #take(AirlineTable, int, int)} whose write did not happen. */
+    public void restore(AirlineTable table, int id, int seats) {
+        AtomicInteger counter = counters.get(table).get(id);
+        if (counter != null) {
+            counter.addAndGet(seats);
+        }
+    }
+
+    private static boolean take(AtomicInteger counter, int seats) {
+        int current;
+        do {
+            current = counter.get();
+            if (current < seats) return false;
+        } while (!counter.compareAndSet(current, current - seats));
+        return true;
+    }
+
+    private void writeBehind() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+
+                // Wait briefly for more reservations so concurrent callers share one commit.
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                commit(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (RuntimeException e) {
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        Map<Key, Integer> totals = new TreeMap<>(LOCK_ORDER);
+        for (Pending p : batch) {
+            totals.merge(p.key(), p.seats(), Integer::sum);
+        }
+
+        Set<Key> refused = new HashSet<>();
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (AirlineTable table : AirlineTable.values()) {
+                    List<Map.Entry<Key, Integer>> rows = new ArrayList<>();
+                    for (Map.Entry<Key, Integer> e : totals.entrySet()) {
+                        if (e.getKey().table() == table) rows.add(e);
+                    }
+                    if (rows.isEmpty()) continue;
+
+                    String sql = "UPDATE " + table.getTableName() +
+                            " SET SeatsAvailable = SeatsAvailable - ? WHERE id = ? AND SeatsAvailable >= ?";
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        for (Map.Entry<Key, Integer> e : rows) {
+                            stmt.setInt(1, e.getValue());
+                            stmt.setInt(2, e.getKey().id());
+                            stmt.setInt(3, e.getValue());
+                            stmt.addBatch();
+                        }
+                        int[] counts = stmt.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] == 0) refused.add(rows.get(i).getKey());
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            fail(batch, e);
+            return;
+        }
+
+        committedBatches.incrementAndGet();
+        for (Pending p : batch) {
+            if (refused.contains(p.key())) {
+                // The table had fewer seats than the counter; give them back and report the flight full.
+                refund(p);
+                rejectedReservations.incrementAndGet();
+                p.done().complete(false);
+            } else {
+                committedReservations.incrementAndGet();
+                p.done().complete(true);
+            }
+        }
+        if (!refused.isEmpty()) {
+            log.warn("Seat counters ahead of the tables for {}", refused);
+        }
+    }
+
+    private void fail(List<Pending> batch, Exception cause) {
+        log.error("Seat reservation batch of {} failed", batch.size(), cause);
+        for (Pending p : batch) {
+            if (!p.done().isDone()) {
+                refund(p);
+                p.done().completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void refund(Pending p) {
+        AtomicInteger counter = counters.get(p.key().table()).get(p.key().id());
+        if (counter != null) {
+            counter.addAndGet(p.seats());
+        }
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches.get();
+    }
+
+    public long getCommittedReservations() {
+        return committedReservations.get();
+    }
+
+    public long getRejectedReservations() {
+        return rejectedReservations.get();
+    }
+
+    public int getQueuedReservations() {
+        return queue.size();
+    }
+
+    /** Stops accepting reservations and waits for the queued ones to commit. */
+    @Override
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package backend.classes.holds;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for large numbers of short, mostly-cancelled timeouts. Timeouts hash into a ring of
+ * buckets by expiry tick; one thread advances the ring each tick and fires the due entries of a
+ * single bucket, so scheduling, cancelling and expiring are each O(1) no matter how many timeouts
+ * are pending. Expiry has tick granularity. Expired tasks run on the given executor so slow tasks
+ * never delay the ring.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /** Handle for a scheduled task. */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long rounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** Stops the task from running; false if it already ran or was cancelled. */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Executor executor;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean closed;
+    private long tick;
+
+    public HashedTimingWheel(long tickMillis, int wheelSize, Executor executor) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms: " + tickMillis);
+        }
+        if (wheelSize < 1) {
+            throw new IllegalArgumentException("Wheel size must be at least 1: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.buckets = new Timeout[Math.max(1, size)];
+        this.mask = buckets.length - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "hashed-timing-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /** Timeouts neither run nor cancelled. */
+    public int pending() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (!closed) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (closed) return;
+                }
+                continue;
+            }
+            transferAdded();
+            expire(tick & mask);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        Timeout t;
+        while ((t = added.poll()) != null) {
+            if (t.state.get() != PENDING) continue;
+
+            long due = (t.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            long ticks = Math.max(due, tick);
+            t.rounds = (ticks - tick) / buckets.length;
+            int bucket = (int) (ticks & mask);
+            t.next = buckets[bucket];
+            buckets[bucket] = t;
+        }
+    }
+
+    private void expire(long bucket) {
+        int i = (int) bucket;
+        Timeout prev = null;
+        Timeout t = buckets[i];
+        while (t != null) {
+            Timeout next = t.next;
+            boolean remove;
+            if (t.state.get() != PENDING) {
+                remove = true;
+            } else if (t.rounds <= 0) {
+                remove = true;
+                if (t.state.compareAndSet(PENDING, EXPIRED)) {
+                    pending.decrementAndGet();
+                    executor.execute(t.task);
+                }
+            } else {
+                t.rounds--;
+                remove = false;
+            }
+
+            if (remove) {
+                if (prev == null) {
+                    buckets[i] = next;
+                } else {
+                    prev.next = next;
+                }
+                t.next = null;
+            } else {
+                prev = t;
+            }
+            t = next;
+        }
+    }
+
+    /** Stops the ring; tasks that have not expired yet never run. */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
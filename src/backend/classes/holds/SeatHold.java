@@ -0,0 +1,10 @@
+package backend.classes.holds;
+
+import backend.classes.records.FlightKey;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Seats taken on every leg of an itinerary until {@code expiresAt}, unless confirmed first. */
+public record SeatHold(String id, List<FlightKey> legs, Instant expiresAt) {
+}
@@ -0,0 +1,137 @@
+package backend.classes.holds;
+
+import backend.classes.records.FlightKey;
+import backend.interfaces.DatabaseInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Temporary seat reservations. Creating a hold takes the seats at once, so search results count
+ * them as gone; confirming keeps them, while releasing or letting the hold expire gives them back.
+ * Holds are stored by the database together with their seats, and the database decides which of
+ * confirm, release or expiry gets a hold. Expiry timers live here only: {@link #recover()} releases
+ * holds that fell due while no timer was running and restarts the timers of the rest.
+ */
+public class SeatHoldManager implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldManager.class);
+
+    private final DatabaseInterface database;
+    private final Consumer<List<FlightKey>> seatsChanged;
+    private final Map<String, HashedTimingWheel.Timeout> expiries = new ConcurrentHashMap<>();
+    private final ExecutorService releaser = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "seat-hold-releaser");
+        t.setDaemon(true);
+        return t;
+    });
+    private final HashedTimingWheel wheel;
+
+    /** {@code seatsChanged} is told about legs whose seats came back through release or expiry. */
+    public SeatHoldManager(DatabaseInterface database, long tickMillis, int wheelSize,
+                           Consumer<List<FlightKey>> seatsChanged) {
+        this.database = database;
+        this.seatsChanged = seatsChanged;
+        this.wheel = new HashedTimingWheel(tickMillis, wheelSize, releaser);
+    }
+
+    /**
+     * Releases stored holds that expired while no timer was running, e.g. across a crash or
+     * restart, and schedules the expiry of the others. Returns how many were released.
+     */
+    public int recover() throws SQLException {
+        int released = 0;
+        Instant now = Instant.now();
+        for (SeatHold hold : database.selectHolds()) {
+            if (hold.expiresAt().isAfter(now)) {
+                schedule(hold.id(), Duration.between(now, hold.expiresAt()));
+            } else if (expire(hold.id())) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            log.info("Released {} seat holds that expired while stopped", released);
+        }
+        return released;
+    }
+
+    /** Takes one seat on every leg, or throws NoSeatsAvailableException without taking any. */
+    public SeatHold create(List<FlightKey> legs, Duration ttl) throws SQLException {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Hold time must be positive: " + ttl);
+        }
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), List.copyOf(legs), Instant.now().plus(ttl));
+        database.holdItinerary(hold);
+        schedule(hold.id(), ttl);
+        return hold;
+    }
+
+    /** Makes the hold permanent; NoSuchElementException if it is unknown, released or expired. */
+    public SeatHold confirm(String id) throws SQLException {
+        SeatHold hold = found(id, database.confirmHold(id));
+        cancelExpiry(id);
+        return hold;
+    }
+
+    public SeatHold release(String id) throws SQLException {
+        SeatHold hold = found(id, database.releaseHold(id));
+        cancelExpiry(id);
+        seatsChanged.accept(hold.legs());
+        return hold;
+    }
+
+    public int activeHolds() {
+        return expiries.size();
+    }
+
+    private static SeatHold found(String id, SeatHold hold) {
+        if (hold == null) {
+            throw new NoSuchElementException("Hold not found or expired: " + id);
+        }
+        return hold;
+    }
+
+    private void schedule(String id, Duration delay) {
+        expiries.put(id, wheel.schedule(() -> {
+            try {
+                expire(id);
+            } catch (SQLException e) {
+                // Still stored, so the next recover() releases it.
+                log.error("Failed to release expired hold {}", id, e);
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private void cancelExpiry(String id) {
+        HashedTimingWheel.Timeout expiry = expiries.remove(id);
+        if (expiry != null) {
+            expiry.cancel();
+        }
+    }
+
+    private boolean expire(String id) throws SQLException {
+        expiries.remove(id);
+        SeatHold hold = database.releaseHold(id);
+        if (hold == null) return false;
+        seatsChanged.accept(hold.legs());
+        return true;
+    }
+
+    /** Stops the expiry timers; stored holds are left for {@link #recover()} on the next start. */
+    @Override
+    public void close() {
+        wheel.close();
+        releaser.shutdown();
+    }
+}
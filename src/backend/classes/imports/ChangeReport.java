@@ -0,0 +1,14 @@
+package backend.classes.imports;
+
+import backend.classes.records.ChangeOutcome;
+
+import java.util.List;
+
+/**
+ * Outcome of one batch of schedule changes: a result per update and per delete, in request order.
+ * Everything that was applied was applied in one transaction; if that transaction failed, every
+ * item that reached it is ROLLED_BACK and nothing changed.
+ */
+public record ChangeReport(int updated, int deleted, int notFound, int rejected, int rolledBack,
+                           List<ChangeOutcome> updates, List<ChangeOutcome> deletes, long elapsedMillis) {
+}
@@ -0,0 +1,11 @@
+package backend.classes.imports;
+
+import java.util.List;
+
+/**
+ * Outcome of one schedule import. {@code errors} holds at most the importer's error limit;
+ * {@code errorsTruncated} is set when more rows than that were rejected.
+ */
+public record ImportReport(long rowsRead, long rowsImported, long rowsRejected, List<RowError> errors,
+                           boolean errorsTruncated, long elapsedMillis, double rowsPerSecond) {
+}
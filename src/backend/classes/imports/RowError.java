@@ -0,0 +1,5 @@
+package backend.classes.imports;
+
+/** A rejected input line and why it was rejected. */
+public record RowError(long line, String message) {
+}
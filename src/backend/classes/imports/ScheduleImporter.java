@@ -0,0 +1,273 @@
+package backend.classes.imports;
+
+import backend.interfaces.DatabaseInterface;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import enums.AirlineTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams a flight schedule from CSV or NDJSON into the airline tables. Lines are read in chunks;
+ * each chunk is parsed and validated on a worker thread while the next ones are read, and the
+ * chunks are written in file order with one multi-row insert per table and one transaction per
+ * chunk. At most a few chunks are held in memory at once, whatever the file size. Bad rows are
+ * reported by line number and skipped; a chunk the database refuses is reported row by row.
+ */
+public class ScheduleImporter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ScheduleImporter.class);
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    public static final int DEFAULT_MAX_ERRORS = 1000;
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /** Format named by {@code name} ("csv", "ndjson", "jsonl") or implied by a content type. */
+        public static Format of(String name) {
+            String value = name == null ? "" : name.trim().toLowerCase();
+            if (value.equals("csv") || value.contains("text/csv")) return CSV;
+            if (value.equals("ndjson") || value.equals("jsonl") || value.contains("ndjson")
+                    || value.contains("jsonl") || value.contains("json-seq")) return NDJSON;
+            throw new IllegalArgumentException("Unknown import format: " + name);
+        }
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record ParsedChunk(List<ScheduleRow> rows, List<Long> lines, List<RowError> errors) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DatabaseInterface database;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxErrors;
+    private final ExecutorService parsers;
+
+    public ScheduleImporter(DatabaseInterface database) {
+        this(database, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_ERRORS);
+    }
+
+    public ScheduleImporter(DatabaseInterface database, int chunkSize, int parallelism, int maxErrors) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.database = database;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxErrors = Math.max(0, maxErrors);
+        AtomicInteger threads = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "schedule-import-parser-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ImportReport importFrom(InputStream in, Format format) throws IOException {
+        long started = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        List<String> header = null;
+        long lineNumber = 0;
+        if (format == Format.CSV) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) break;
+            }
+            if (line == null) {
+                throw new IllegalArgumentException("CSV import has no header line");
+            }
+            header = new ArrayList<>();
+            for (String column : splitCsv(line)) {
+                header.add(ScheduleRow.field(column));
+            }
+        }
+        final List<String> columns = header;
+
+        // Parse ahead of the writer, but never more than a couple of chunks per parser.
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try {
+            List<Line> chunk = new ArrayList<>(chunkSize);
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank()) continue;
+                chunk.add(new Line(lineNumber, text));
+                if (chunk.size() == chunkSize) {
+                    List<Line> lines = chunk;
+                    inFlight.add(parsers.submit(() -> parse(lines, format, columns)));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= parallelism * 2) {
+                        write(await(inFlight.poll()), progress);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<Line> lines = chunk;
+                inFlight.add(parsers.submit(() -> parse(lines, format, columns)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), progress);
+            }
+        } finally {
+            for (Future<ParsedChunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : progress.imported * 1e9 / elapsedNanos;
+        return new ImportReport(progress.read, progress.imported, progress.rejected,
+                List.copyOf(progress.errors), progress.rejected > progress.errors.size(),
+                elapsedMillis, rowsPerSecond);
+    }
+
+    private static final class Progress {
+        private long read;
+        private long imported;
+        private long rejected;
+        private final List<RowError> errors = new ArrayList<>();
+    }
+
+    private ParsedChunk parse(List<Line> lines, Format format, List<String> columns) {
+        List<ScheduleRow> rows = new ArrayList<>(lines.size());
+        List<Long> rowLines = new ArrayList<>(lines.size());
+        List<RowError> errors = new ArrayList<>();
+        for (Line line : lines) {
+            try {
+                Map<String, String> fields = format == Format.CSV
+                        ? csvFields(line.text(), columns)
+                        : jsonFields(line.text());
+                rows.add(ScheduleRow.parse(fields));
+                rowLines.add(line.number());
+            } catch (IllegalArgumentException e) {
+                errors.add(new RowError(line.number(), e.getMessage()));
+            } catch (IOException e) {
+                errors.add(new RowError(line.number(), "Malformed JSON: " + e.getMessage()));
+            }
+        }
+        return new ParsedChunk(rows, rowLines, errors);
+    }
+
+    private void write(ParsedChunk chunk, Progress progress) {
+        progress.read += chunk.rows().size() + chunk.errors().size();
+        for (RowError error : chunk.errors()) {
+            reject(progress, error);
+        }
+        if (chunk.rows().isEmpty()) return;
+
+        Map<AirlineTable, List<List<Object>>> byTable = new EnumMap<>(AirlineTable.class);
+        for (ScheduleRow row : chunk.rows()) {
+            byTable.computeIfAbsent(row.table(), t -> new ArrayList<>()).add(row.params());
+        }
+        try {
+            database.insertFlights(byTable);
+            progress.imported += chunk.rows().size();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Schedule import chunk of {} rows failed: {}", chunk.rows().size(), e.getMessage());
+            for (Long line : chunk.lines()) {
+                reject(progress, new RowError(line, "Chunk rolled back: " + e.getMessage()));
+            }
+        }
+    }
+
+    private void reject(Progress progress, RowError error) {
+        progress.rejected++;
+        if (progress.errors.size() < maxErrors) {
+            progress.errors.add(error);
+        }
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Schedule import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Schedule import failed", e.getCause());
+        }
+    }
+
+    private static Map<String, String> csvFields(String line, List<String> columns) {
+        List<String> values = splitCsv(line);
+        if (values.size() > columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " columns, got " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(columns.get(i), values.get(i));
+        }
+        return fields;
+    }
+
+    private static Map<String, String> jsonFields(String line) throws IOException {
+        JsonNode node = MAPPER.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(e -> {
+            if (!e.getValue().isNull()) {
+                fields.put(ScheduleRow.field(e.getKey()), e.getValue().asText());
+            }
+        });
+        return fields;
+    }
+
+    /** Splits one CSV line; fields may be quoted, with "" for a literal quote. */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    @Override
+    public void close() {
+        parsers.shutdownNow();
+    }
+}
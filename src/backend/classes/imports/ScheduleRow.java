@@ -0,0 +1,86 @@
+package backend.classes.imports;
+
+import enums.AirlineTable;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One validated flight from an import file or request body. Fields use the same names as the
+ * flight JSON (airline, flightNumber, departureAirport, arrivalAirport, departureTime, arrivalTime,
+ * seatsFree); the table column names are accepted too. A null seat count means the column default.
+ */
+public record ScheduleRow(AirlineTable table, String flightNumber, String departureAirport, String arrivalAirport,
+                          Timestamp departureTime, Timestamp arrivalTime, Integer seatsFree) {
+
+    private static final Map<String, String> ALIASES = Map.of(
+            "departairport", "departureairport",
+            "arriveairport", "arrivalairport",
+            "departdatetime", "departuretime",
+            "arrivedatetime", "arrivaltime",
+            "seatsavailable", "seatsfree"
+    );
+
+    /** Canonical field name for a CSV header or JSON key, or the lower-cased name if it is unknown. */
+    public static String field(String name) {
+        String key = name.trim().toLowerCase();
+        return ALIASES.getOrDefault(key, key);
+    }
+
+    /** Validates one row keyed by {@link #field} names (lower case); throws IllegalArgumentException naming the bad field. */
+    public static ScheduleRow parse(Map<String, String> fields) {
+        AirlineTable table = AirlineTable.fromAirline(required(fields, "airline"));
+        String flightNumber = required(fields, "flightNumber");
+        String departureAirport = required(fields, "departureAirport");
+        String arrivalAirport = required(fields, "arrivalAirport");
+        Timestamp departureTime = timestamp(required(fields, "departureTime"), "departureTime");
+        Timestamp arrivalTime = timestamp(required(fields, "arrivalTime"), "arrivalTime");
+        if (!arrivalTime.after(departureTime)) {
+            throw new IllegalArgumentException("arrivalTime must be after departureTime");
+        }
+
+        Integer seatsFree = null;
+        String seats = fields.get("seatsfree");
+        if (seats != null && !seats.isBlank()) {
+            try {
+                seatsFree = Integer.parseInt(seats.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("seatsFree is not a number: " + seats);
+            }
+            if (seatsFree < 0) {
+                throw new IllegalArgumentException("seatsFree must not be negative: " + seatsFree);
+            }
+        }
+        return new ScheduleRow(table, flightNumber, departureAirport, arrivalAirport, departureTime, arrivalTime, seatsFree);
+    }
+
+    /** [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable] */
+    public List<Object> params() {
+        return Arrays.asList(departureTime, arrivalTime, departureAirport, arrivalAirport, flightNumber, seatsFree);
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name.toLowerCase());
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value.trim();
+    }
+
+    private static Timestamp timestamp(String value, String name) {
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME));
+        } catch (DateTimeParseException e) {
+            try {
+                return Timestamp.valueOf(value);
+            } catch (IllegalArgumentException e2) {
+                throw new IllegalArgumentException(name + " is not a date-time: " + value);
+            }
+        }
+    }
+}
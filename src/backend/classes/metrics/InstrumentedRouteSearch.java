@@ -0,0 +1,57 @@
+package backend.classes.metrics;
+
+import backend.classes.database.FlightGraph;
+import backend.classes.search.RouteQuery;
+import backend.classes.search.RouteSearchResult;
+import backend.interfaces.FlightInterface;
+import backend.interfaces.RouteSearchEngine;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/** Times each search of the wrapped engine and counts the nodes it expanded and the itineraries it found. */
+public class InstrumentedRouteSearch implements RouteSearchEngine, AutoCloseable {
+    private final RouteSearchEngine delegate;
+    private final SearchMetrics metrics;
+
+    public InstrumentedRouteSearch(RouteSearchEngine delegate, SearchMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public RouteSearchEngine getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query) {
+        long start = System.nanoTime();
+        RouteSearchResult result = delegate.search(graph, query);
+        metrics.record(SearchMetrics.Stage.ROUTE_SEARCH, start);
+        metrics.routeSearched(result);
+        return result;
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query, Predicate<List<FlightInterface>> sink) {
+        long start = System.nanoTime();
+        RouteSearchResult result = delegate.search(graph, query, sink);
+        metrics.record(SearchMetrics.Stage.ROUTE_SEARCH, start);
+        metrics.routeSearched(result);
+        return result;
+    }
+
+    /** Closes the wrapped engine if it holds resources; declares nothing checked, so it can be used with try-with-resources. */
+    @Override
+    public void close() {
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to close route search engine", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package backend.classes.metrics;
+
+import backend.classes.search.RouteSearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the search path: one timer per stage, tagged {@code stage=...}, plus counters for the
+ * route search. Meters are created once up front, so recording is a clock read and an add; with
+ * {@link #noop()} the meters discard everything.
+ */
+public class SearchMetrics {
+    public static final String STAGE_TIMER = "flights.search.stage";
+
+    public enum Stage {
+        SQL("sql"),
+        MAPPING("mapping"),
+        INDEX_BUILD("index_build"),
+        ROUTE_SEARCH("route_search"),
+        PAGINATION("pagination"),
+        SERIALIZATION("serialization");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Counter routeSearches;
+    private final Counter nodesExpanded;
+    private final Counter routeResults;
+    private final Counter truncatedSearches;
+
+    public SearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder(STAGE_TIMER)
+                    .description("Time spent in one stage of a flight search")
+                    .tag("stage", stage.tag)
+                    .register(registry));
+        }
+        this.routeSearches = Counter.builder("flights.route.searches")
+                .description("Connection searches run")
+                .register(registry);
+        this.nodesExpanded = Counter.builder("flights.route.nodes.expanded")
+                .description("Nodes expanded by connection searches")
+                .register(registry);
+        this.routeResults = Counter.builder("flights.route.results")
+                .description("Itineraries produced by connection searches")
+                .register(registry);
+        this.truncatedSearches = Counter.builder("flights.route.truncated")
+                .description("Connection searches stopped by their node or time budget")
+                .register(registry);
+    }
+
+    /** Metrics that are never published, for code running outside the server. */
+    public static SearchMetrics noop() {
+        return new SearchMetrics(new CompositeMeterRegistry());
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public Timer timer(Stage stage) {
+        return timers.get(stage);
+    }
+
+    /** Records the time since {@code startNanos}, taken from {@link System#nanoTime()}. */
+    public void record(Stage stage, long startNanos) {
+        timers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void routeSearched(RouteSearchResult result) {
+        routeSearches.increment();
+        nodesExpanded.increment(result.expandedNodes());
+        routeResults.increment(result.itineraries().size());
+        if (result.truncated()) {
+            truncatedSearches.increment();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package backend.classes.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/** The JSON converter Spring would use anyway, timing each response body it writes. */
+public class TimedJsonMessageConverter extends MappingJackson2HttpMessageConverter {
+    private final SearchMetrics metrics;
+
+    public TimedJsonMessageConverter(ObjectMapper objectMapper, SearchMetrics metrics) {
+        super(objectMapper);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            metrics.record(SearchMetrics.Stage.SERIALIZATION, start);
+        }
+    }
+}
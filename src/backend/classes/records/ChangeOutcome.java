@@ -0,0 +1,17 @@
+package backend.classes.records;
+
+/**
+ * What happened to one item of a batch of schedule changes. {@code id} and {@code airline} are
+ * null when the item was rejected before they could be read; {@code message} is set for every
+ * status but UPDATED and DELETED.
+ */
+public record ChangeOutcome(Integer id, String airline, Status status, String message) {
+
+    public enum Status {
+        UPDATED, DELETED, NOT_FOUND, REJECTED, ROLLED_BACK
+    }
+
+    public static ChangeOutcome of(FlightKey key, Status status, String message) {
+        return new ChangeOutcome(key.id(), Flight.displayName(key.table().getTableName()), status, message);
+    }
+}
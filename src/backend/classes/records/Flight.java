@@ -24,12 +24,17 @@ public class Flight implements FlightInterface {
         this.arrivalAirport = arrivalAirport;
         this.departureTime = departureTime;
         this.arrivalTime = arrivalTime;
-        this.airline = airline;
+        this.airline = displayName(airline);
         this.seatsFree = 100;
         this.nextFlight = null;
         this.returnTrip = null;
     }
 
+    public Flight(int id, String flightNumber, String departureAirport, String arrivalAirport, Timestamp departureTime, Timestamp arrivalTime, String airline, int seatsFree) {
+        this(id, flightNumber, departureAirport, arrivalAirport, departureTime, arrivalTime, airline);
+        this.seatsFree = seatsFree;
+    }
+
     public Flight(ResultSet rs) {
         try {
             this.id = rs.getInt("Id");
@@ -38,7 +43,7 @@ public class Flight implements FlightInterface {
             this.arrivalAirport = rs.getString("ArriveAirport");
             this.departureTime = rs.getTimestamp("DepartDateTime");
             this.arrivalTime = rs.getTimestamp("ArriveDateTime");
-            this.airline          = rs.getString("airline");
+            this.airline          = displayName(rs.getString("airline"));
             this.seatsFree       = rs.getInt("SeatsAvailable");
             this.nextFlight = null;
             this.returnTrip = null;
@@ -118,8 +123,12 @@ public class Flight implements FlightInterface {
 
     @Override
     public String getAirline() {
-        return airline.substring(0, 1).toUpperCase() + airline.substring(1, airline.length() - 1);
+        return airline;
+    }
 
+    // "deltas" -> "Delta"; worked out once here since the copy constructors take getAirline() as is
+    static String displayName(String table) {
+        return table.substring(0, 1).toUpperCase() + table.substring(1, table.length() - 1);
     }
 
     @Override
@@ -127,6 +136,11 @@ public class Flight implements FlightInterface {
         this.seatsFree = this.seatsFree - 1;
     }
 
+    @Override
+    public void released() {
+        this.seatsFree = this.seatsFree + 1;
+    }
+
     @Override
     public FlightInterface getNextFlight() {
         return this.nextFlight;
@@ -0,0 +1,17 @@
+package backend.classes.records;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import enums.AirlineTable;
+
+/**
+ * Identifies one flight. Ids are only unique within an airline table; {@code table} is null when
+ * a request gave just the id.
+ */
+public record FlightKey(AirlineTable table, int id) {
+
+    @JsonCreator
+    public static FlightKey of(@JsonProperty("airline") String airline, @JsonProperty("id") int id) {
+        return new FlightKey(airline == null || airline.isBlank() ? null : AirlineTable.fromAirline(airline), id);
+    }
+}
@@ -0,0 +1,20 @@
+package backend.classes.records;
+
+import backend.interfaces.FlightInterface;
+
+import java.util.List;
+
+/**
+ * One page of a one-way search. {@code cursors.get(i)} resumes the search right after
+ * {@code flights.get(i)}, so a caller can take a shorter prefix of the page and still hand out the
+ * right next cursor. Direct flights are counted exactly; connecting itineraries are only searched
+ * up to the end of the page and one more, so their {@code total} is how many were found and
+ * {@code totalExact} is false unless the search ran out of itineraries first.
+ */
+public record FlightPage(List<FlightInterface> flights,
+                         int total,
+                         boolean totalExact,
+                         boolean hasMore,
+                         String nextCursor,
+                         List<String> cursors) {
+}
@@ -0,0 +1,10 @@
+package backend.classes.records;
+
+import java.util.List;
+
+/**
+ * New values for an existing flight. {@code params} are [DepartDateTime, ArriveDateTime,
+ * DepartAirport, ArriveAirport, FlightNumber]; the seat count is never changed by an update.
+ */
+public record FlightUpdate(FlightKey key, List<Object> params) {
+}
@@ -0,0 +1,84 @@
+package backend.classes.records;
+
+import backend.interfaces.FlightInterface;
+
+import java.sql.Timestamp;
+
+/**
+ * A round trip as its outbound itinerary with the return itinerary attached. Both itineraries are
+ * the search results themselves, not copies, so one leg can appear in many pairs at no cost.
+ */
+public class RoundTrip implements FlightInterface {
+    private final FlightInterface outbound;
+    private final FlightInterface returnTrip;
+
+    public RoundTrip(FlightInterface outbound, FlightInterface returnTrip) {
+        this.outbound = outbound;
+        this.returnTrip = returnTrip;
+    }
+
+    @Override
+    public int getId() {
+        return outbound.getId();
+    }
+
+    @Override
+    public String getFlightNumber() {
+        return outbound.getFlightNumber();
+    }
+
+    @Override
+    public String getDepartureAirport() {
+        return outbound.getDepartureAirport();
+    }
+
+    @Override
+    public String getArrivalAirport() {
+        return outbound.getArrivalAirport();
+    }
+
+    @Override
+    public Timestamp getDepartureTime() {
+        return outbound.getDepartureTime();
+    }
+
+    @Override
+    public Timestamp getArrivalTime() {
+        return outbound.getArrivalTime();
+    }
+
+    @Override
+    public String getAirline() {
+        return outbound.getAirline();
+    }
+
+    @Override
+    public int getSeatsFree() {
+        return outbound.getSeatsFree();
+    }
+
+    @Override
+    public void reserved() {
+        outbound.reserved();
+    }
+
+    @Override
+    public void released() {
+        outbound.released();
+    }
+
+    @Override
+    public FlightInterface getNextFlight() {
+        return outbound.getNextFlight();
+    }
+
+    @Override
+    public FlightInterface getReturnTrip() {
+        return returnTrip;
+    }
+
+    @Override
+    public String toString() {
+        return "RoundTrip{outbound=" + outbound + ", returnTrip=" + returnTrip + "}";
+    }
+}
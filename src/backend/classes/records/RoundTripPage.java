@@ -0,0 +1,14 @@
+package backend.classes.records;
+
+import backend.interfaces.FlightInterface;
+
+import java.util.ArrayList;
+
+/**
+ * The best round trips of a search, best first, and how many round trips the search matches in
+ * all, including the ones not returned. When either leg was only searched for its first results,
+ * {@code total} counts the pairs of those results and {@code totalExact} is false: the search
+ * matches at least that many.
+ */
+public record RoundTripPage(ArrayList<FlightInterface> roundTrips, int total, boolean totalExact) {
+}
@@ -0,0 +1,273 @@
+package backend.classes.search;
+
+import backend.classes.database.FlightGraph;
+import backend.interfaces.FlightInterface;
+import backend.interfaces.RouteSearchEngine;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Best-first (Dijkstra-style) search over time-expanded nodes, where a node is the arrival of one
+ * leg at an airport. Itinerary cost never decreases as legs are appended, so itineraries reach the
+ * destination in {@code sortBy} order and the search stops as soon as {@code limit} are found.
+ *
+ * <p>Labels expanded at an airport after the same number of legs are kept as a small frontier. A
+ * later label there is dropped once {@code limit} expanded ones dominate it: each can take every
+ * departure it could (a connection window covering its own, compared as departure indices), none
+ * costs more whatever legs are appended, and, while more than one leg remains, none has passed
+ * through an airport it could still visit. Every itinerary through the dropped label is then matched
+ * by {@code limit} at least as cheap ones, so the top {@code limit} are unchanged. A label with one
+ * leg left is only extended to the destination. Node and wall-clock budgets still bound the search
+ * on very dense networks.
+ *
+ * <p>Because itineraries are found in order, a streaming caller receives each one the moment it
+ * is settled and can stop the search early.
+ */
+public class BoundedRouteSearch implements RouteSearchEngine {
+    public static final int MIN_CONNECTION_MINUTES = 30;
+    public static final int MAX_CONNECTION_MINUTES = 359;
+
+    public static final int DEFAULT_MAX_EXPANDED_NODES = 200_000;
+    public static final long DEFAULT_MAX_MILLIS = 2_000;
+
+    private final int maxExpandedNodes;
+    private final long maxMillis;
+
+    private static final class Label {
+        private final FlightInterface flight;
+        private final String airport;
+        private final long arrival;
+        private final long firstDeparture;
+        private final int legs;
+        private final Label parent;
+        private final long cost;
+        private final long seq;
+
+        private Label(FlightInterface flight, String airport, long arrival, long firstDeparture,
+                      int legs, Label parent, long cost, long seq) {
+            this.flight = flight;
+            this.airport = airport;
+            this.arrival = arrival;
+            this.firstDeparture = firstDeparture;
+            this.legs = legs;
+            this.parent = parent;
+            this.cost = cost;
+            this.seq = seq;
+        }
+
+        private boolean visits(String code) {
+            for (Label l = this; l != null; l = l.parent) {
+                if (l.airport.equals(code)) return true;
+            }
+            return false;
+        }
+
+        /** Whether every airport this label passed through before its last one is also on {@code other}'s path. */
+        private boolean passesOnlyThroughAirportsOf(Label other) {
+            for (Label l = parent; l != null; l = l.parent) {
+                if (!other.visits(l.airport)) return false;
+            }
+            return true;
+        }
+
+        private List<FlightInterface> legs() {
+            FlightInterface[] out = new FlightInterface[legs];
+            int i = legs;
+            for (Label l = this; l != null; l = l.parent) {
+                out[--i] = l.flight;
+            }
+            return Arrays.asList(out);
+        }
+    }
+
+    /** Labels expanded at one airport after a given number of legs, with what they can still reach. */
+    private static final class Frontier {
+        private int[] firsts = new int[4];
+        private int[] ends = new int[4];
+        private long[] potentials = new long[4];
+        private Label[] labels = new Label[4];
+        private int size;
+
+        /**
+         * Whether at least {@code enough} expanded labels can take departures {@code first} to
+         * {@code end} and fix no higher a cost than {@code potential}.
+         */
+        private boolean dominates(Label label, int first, int end, long potential, boolean checkPath, int enough) {
+            int count = 0;
+            for (int j = 0; j < size; j++) {
+                if (firsts[j] <= first && ends[j] >= end && potentials[j] <= potential
+                        && (!checkPath || labels[j].passesOnlyThroughAirportsOf(label))
+                        && ++count >= enough) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void add(Label label, int first, int end, long potential) {
+            if (size == labels.length) {
+                firsts = Arrays.copyOf(firsts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                potentials = Arrays.copyOf(potentials, size * 2);
+                labels = Arrays.copyOf(labels, size * 2);
+            }
+            firsts[size] = first;
+            ends[size] = end;
+            potentials[size] = potential;
+            labels[size++] = label;
+        }
+    }
+
+    private static final Comparator<Label> ORDER = Comparator
+            .comparingLong((Label l) -> l.cost)
+            .thenComparingLong(l -> l.arrival)
+            .thenComparingLong(l -> l.seq);
+
+    public BoundedRouteSearch() {
+        this(DEFAULT_MAX_EXPANDED_NODES, DEFAULT_MAX_MILLIS);
+    }
+
+    public BoundedRouteSearch(int maxExpandedNodes, long maxMillis) {
+        this.maxExpandedNodes = maxExpandedNodes;
+        this.maxMillis = maxMillis;
+    }
+
+    public int getMaxExpandedNodes() {
+        return maxExpandedNodes;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query) {
+        FlightGraph.Departures origin = graph.departuresFrom(query.origins());
+        return search(graph, query, origin, firstLegStart(origin, query), firstLegEnd(origin, query),
+                maxExpandedNodes, System.nanoTime() + maxMillis * 1_000_000L, null);
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query, Predicate<List<FlightInterface>> sink) {
+        FlightGraph.Departures origin = graph.departuresFrom(query.origins());
+        return search(graph, query, origin, firstLegStart(origin, query), firstLegEnd(origin, query),
+                maxExpandedNodes, System.nanoTime() + maxMillis * 1_000_000L, sink);
+    }
+
+    static int firstLegStart(FlightGraph.Departures origin, RouteQuery query) {
+        return origin.indexAtOrAfter(query.windowStart());
+    }
+
+    static int firstLegEnd(FlightGraph.Departures origin, RouteQuery query) {
+        return origin.indexAtOrAfter(query.windowEnd() + 1);
+    }
+
+    /**
+     * Searches only itineraries whose first leg is {@code origin} departure {@code from} (inclusive)
+     * to {@code to}, passing each one to {@code sink} (if not null) as soon as it is found.
+     */
+    RouteSearchResult search(FlightGraph graph, RouteQuery query, FlightGraph.Departures origin, int from, int to,
+                             int nodeBudget, long deadline, Predicate<List<FlightInterface>> sink) {
+        String sortBy = sortKey(query);
+        int limit = Math.max(1, query.limit());
+        int maxLegs = query.maxStops() + 1;
+
+        PriorityQueue<Label> open = new PriorityQueue<>(ORDER);
+        // Keyed by snapshot rather than code, so departure indices always refer to the same array
+        Map<FlightGraph.Departures, Frontier[]> frontiers = new IdentityHashMap<>();
+        List<List<FlightInterface>> results = new ArrayList<>();
+        long seq = 0;
+
+        for (int i = from; i < to; i++) {
+            if (!query.tables().contains(origin.table(i))) continue;
+            String code = origin.arriveCode(i);
+            if (query.origins().contains(code)) continue;
+
+            long depart = origin.departMinute(i);
+            long arrive = origin.arriveMinute(i);
+            open.add(new Label(origin.flight(i), code, arrive, depart, 1, null,
+                    cost(sortBy, depart, arrive), seq++));
+        }
+
+        int expanded = 0;
+        boolean truncated = false;
+        while (!open.isEmpty() && results.size() < limit) {
+            if (expanded >= nodeBudget || ((expanded & 0xFF) == 0 && System.nanoTime() > deadline)) {
+                truncated = true;
+                break;
+            }
+
+            Label label = open.poll();
+            expanded++;
+
+            if (query.destinations().contains(label.airport)) {
+                List<FlightInterface> legs = label.legs();
+                results.add(legs);
+                if (sink != null && !sink.test(legs)) break;
+                continue;
+            }
+            if (label.legs >= maxLegs) continue;
+
+            FlightGraph.Departures next = graph.departuresFrom(label.airport);
+            long latest = Math.min(label.arrival + MAX_CONNECTION_MINUTES, query.windowEnd());
+            int first = next.indexAtOrAfter(label.arrival + MIN_CONNECTION_MINUTES);
+            int end = next.indexAtOrAfter(latest + 1);
+            if (first >= end) continue;
+
+            Frontier[] atAirport = frontiers.computeIfAbsent(next, d -> new Frontier[maxLegs]);
+            Frontier frontier = atAirport[label.legs];
+            if (frontier == null) {
+                frontier = atAirport[label.legs] = new Frontier();
+            }
+            long potential = potential(sortBy, label.firstDeparture);
+            // With one leg left only the destination is worth reaching, and no path passes through it.
+            boolean checkPath = maxLegs - label.legs > 1;
+            if (frontier.dominates(label, first, end, potential, checkPath, limit)) continue;
+            frontier.add(label, first, end, potential);
+
+            for (int i = first; i < end; i++) {
+                if (!query.tables().contains(next.table(i))) continue;
+                String code = next.arriveCode(i);
+                if (query.origins().contains(code) || label.visits(code)) continue;
+                if (label.legs + 1 == maxLegs && !query.destinations().contains(code)) continue;
+
+                long arrive = next.arriveMinute(i);
+                open.add(new Label(next.flight(i), code, arrive, label.firstDeparture, label.legs + 1, label,
+                        cost(sortBy, label.firstDeparture, arrive), seq++));
+            }
+        }
+
+        return new RouteSearchResult(results, expanded, truncated);
+    }
+
+    static String sortKey(RouteQuery query) {
+        return query.sortBy() == null ? "" : query.sortBy().toLowerCase();
+    }
+
+    /** Orders finished itineraries the same way the search emits them. */
+    static Comparator<List<FlightInterface>> itineraryOrder(String sortBy) {
+        return Comparator
+                .comparingLong((List<FlightInterface> legs) -> cost(sortBy,
+                        FlightGraph.toEpochMinute(legs.get(0).getDepartureTime()),
+                        FlightGraph.toEpochMinute(legs.get(legs.size() - 1).getArrivalTime())))
+                .thenComparingLong(legs -> FlightGraph.toEpochMinute(legs.get(legs.size() - 1).getArrivalTime()));
+    }
+
+    /** The part of {@link #cost} a prefix fixes whatever legs are appended to it; lower is better. */
+    static long potential(String sortBy, long firstDeparture) {
+        return switch (sortBy) {
+            case "arrivedatetime" -> 0;
+            case "traveltime" -> -firstDeparture;
+            default -> firstDeparture;
+        };
+    }
+
+    static long cost(String sortBy, long firstDeparture, long arrival) {
+        return switch (sortBy) {
+            case "arrivedatetime" -> arrival;
+            case "traveltime" -> arrival - firstDeparture;
+            default -> firstDeparture;
+        };
+    }
+}
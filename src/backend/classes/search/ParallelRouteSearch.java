@@ -0,0 +1,138 @@
+package backend.classes.search;
+
+import backend.classes.database.FlightGraph;
+import backend.interfaces.FlightInterface;
+import backend.interfaces.RouteSearchEngine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits the origin's first legs into independent subtrees and searches them on a dedicated
+ * ForkJoinPool. Each subtree returns its own top-K in sort order; partial results are merged
+ * pairwise while the tasks join. Small fan-outs run serially on the calling thread. Streaming
+ * searches always run serially: only a single best-first queue yields itineraries in order.
+ */
+public class ParallelRouteSearch implements RouteSearchEngine, AutoCloseable {
+    public static final int DEFAULT_SERIAL_THRESHOLD = 16;
+
+    private final BoundedRouteSearch delegate;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int serialThreshold;
+
+    public ParallelRouteSearch(BoundedRouteSearch delegate, int parallelism) {
+        this(delegate, parallelism, DEFAULT_SERIAL_THRESHOLD);
+    }
+
+    public ParallelRouteSearch(BoundedRouteSearch delegate, int parallelism, int serialThreshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.delegate = delegate;
+        this.parallelism = parallelism;
+        this.serialThreshold = Math.max(1, serialThreshold);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query) {
+        FlightGraph.Departures origin = graph.departuresFrom(query.origins());
+        int from = BoundedRouteSearch.firstLegStart(origin, query);
+        int to = BoundedRouteSearch.firstLegEnd(origin, query);
+        long deadline = System.nanoTime() + delegate.getMaxMillis() * 1_000_000L;
+
+        int fanOut = to - from;
+        if (parallelism == 1 || fanOut < serialThreshold) {
+            return delegate.search(graph, query, origin, from, to, delegate.getMaxExpandedNodes(), deadline, null);
+        }
+
+        // Roughly four chunks per worker keeps stealing effective when subtrees are uneven.
+        int chunks = Math.min(fanOut, parallelism * 4);
+        int grain = Math.max(1, (fanOut + chunks - 1) / chunks);
+        int nodeBudget = Math.max(1, delegate.getMaxExpandedNodes() / chunks);
+        Comparator<List<FlightInterface>> order = BoundedRouteSearch.itineraryOrder(BoundedRouteSearch.sortKey(query));
+
+        return pool.invoke(new SubtreeTask(graph, query, origin, from, to, grain, nodeBudget, deadline, order));
+    }
+
+    @Override
+    public RouteSearchResult search(FlightGraph graph, RouteQuery query, Predicate<List<FlightInterface>> sink) {
+        return delegate.search(graph, query, sink);
+    }
+
+    // Serializable only through ForkJoinTask; never serialized
+    @SuppressWarnings("serial")
+    private final class SubtreeTask extends RecursiveTask<RouteSearchResult> {
+        private final FlightGraph graph;
+        private final RouteQuery query;
+        private final FlightGraph.Departures origin;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final int nodeBudget;
+        private final long deadline;
+        private final Comparator<List<FlightInterface>> order;
+
+        private SubtreeTask(FlightGraph graph, RouteQuery query, FlightGraph.Departures origin, int from, int to,
+                            int grain, int nodeBudget, long deadline, Comparator<List<FlightInterface>> order) {
+            this.graph = graph;
+            this.query = query;
+            this.origin = origin;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.nodeBudget = nodeBudget;
+            this.deadline = deadline;
+            this.order = order;
+        }
+
+        @Override
+        protected RouteSearchResult compute() {
+            if (to - from <= grain) {
+                return delegate.search(graph, query, origin, from, to, nodeBudget, deadline, null);
+            }
+
+            int mid = (from + to) >>> 1;
+            SubtreeTask left = new SubtreeTask(graph, query, origin, from, mid, grain, nodeBudget, deadline, order);
+            SubtreeTask right = new SubtreeTask(graph, query, origin, mid, to, grain, nodeBudget, deadline, order);
+            left.fork();
+            RouteSearchResult r = right.compute();
+            RouteSearchResult l = left.join();
+            return merge(l, r);
+        }
+
+        private RouteSearchResult merge(RouteSearchResult a, RouteSearchResult b) {
+            List<List<FlightInterface>> x = a.itineraries();
+            List<List<FlightInterface>> y = b.itineraries();
+            int limit = Math.max(1, query.limit());
+            List<List<FlightInterface>> merged = new ArrayList<>(Math.min(limit, x.size() + y.size()));
+
+            int i = 0;
+            int j = 0;
+            while (merged.size() < limit && (i < x.size() || j < y.size())) {
+                if (j >= y.size() || (i < x.size() && order.compare(x.get(i), y.get(j)) <= 0)) {
+                    merged.add(x.get(i++));
+                } else {
+                    merged.add(y.get(j++));
+                }
+            }
+            return new RouteSearchResult(merged,
+                    a.expandedNodes() + b.expandedNodes(),
+                    a.truncated() || b.truncated());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
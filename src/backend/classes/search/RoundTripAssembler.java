@@ -0,0 +1,101 @@
+package backend.classes.search;
+
+import backend.classes.records.RoundTripPage;
+import backend.interfaces.FlightInterface;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits round-trip search parameters into their two one-way searches and pairs the results back
+ * into ranked round trips. Shared by every DatabaseInterface implementation.
+ */
+public final class RoundTripAssembler {
+
+    private RoundTripAssembler() {
+    }
+
+    // params: [depart, arrive, outStart, outEnd, maxStops, airlinePref, returnStart, returnEnd, minStayMinutes?]
+    public static List<Object> outboundParams(List<Object> params) {
+        List<Object> firstParams = new ArrayList<>();
+        firstParams.add(params.get(0)); // depart
+        firstParams.add(params.get(1)); // arrive
+        firstParams.add(params.get(2)); // outbound window start
+        firstParams.add(params.get(3)); // outbound window end
+        firstParams.add(params.get(4)); // maxStops
+        firstParams.add(params.get(5)); // airlinePref
+        return firstParams;
+    }
+
+    public static List<Object> returnParams(List<Object> params) {
+        List<Object> secondParams = new ArrayList<>();
+        secondParams.add(params.get(1)); // depart = original arrive
+        secondParams.add(params.get(0)); // arrive = original depart
+        secondParams.add(params.get(6)); // return window start
+        secondParams.add(params.get(7)); // return window end
+        secondParams.add(params.get(4)); // maxStops
+        secondParams.add(params.get(5)); // airlinePref
+        return secondParams;
+    }
+
+    /** Minimum time between landing and the return departure, from params[8] in minutes; zero if absent. */
+    public static Duration minStay(List<Object> params) {
+        return params.size() > 8 && params.get(8) != null
+                ? Duration.ofMinutes(((Number) params.get(8)).longValue())
+                : Duration.ZERO;
+    }
+
+    /** How many itineraries of each leg the first search asks for. */
+    public static int firstBatch(int limit) {
+        return Math.max(1, limit);
+    }
+
+    /**
+     * How many to ask for after a batch of {@code fetched} left the page undecided: twice as many,
+     * or every one once both legs turned out to be direct flights, which SQL returns cheaply and
+     * which then give an exact total.
+     */
+    public static int nextBatch(List<FlightInterface> flightsTo, List<FlightInterface> flightsReturned, int fetched) {
+        if (direct(flightsTo) && direct(flightsReturned)) {
+            return Integer.MAX_VALUE;
+        }
+        return fetched > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : fetched * 2;
+    }
+
+    /** Whether a leg's search returned all of its results rather than just the first {@code fetched}. */
+    public static boolean complete(List<FlightInterface> legs, int fetched) {
+        return fetched == Integer.MAX_VALUE || legs.size() < fetched;
+    }
+
+    // A one-way search returns direct flights if there are any, connections otherwise
+    private static boolean direct(List<FlightInterface> legs) {
+        return legs.isEmpty() || legs.get(0).getNextFlight() == null;
+    }
+
+    /**
+     * The best {@code limit} round trips in the order {@code sortBy} implies (see
+     * {@link RoundTripOrder#of}), each sharing its legs with the one-way results, and the number of
+     * round trips found. Each list holds the first {@code fetched} results of its leg's search,
+     * or all of them if there are fewer. Returns null when a pair past the end of either list
+     * could still rank on the page, since the minimum stay can rule out any number of the best
+     * pairs, or when both legs are direct flights but not all of them are held yet; the caller
+     * then searches again with {@link #nextBatch}.
+     */
+    public static RoundTripPage pair(List<FlightInterface> flightsTo, List<FlightInterface> flightsReturned, int fetched,
+                                     String sortBy, List<Object> params, int limit) {
+        boolean toComplete = complete(flightsTo, fetched);
+        boolean returnComplete = complete(flightsReturned, fetched);
+        RoundTripPairing pairing = new RoundTripPairing(flightsTo, toComplete, flightsReturned, returnComplete,
+                RoundTripOrder.of(sortBy), minStay(params));
+        ArrayList<FlightInterface> roundTrips = pairing.take(limit);
+        boolean exact = toComplete && returnComplete;
+        if (roundTrips.size() < limit && pairing.needsMore()) {
+            return null;
+        }
+        if (!exact && direct(flightsTo) && direct(flightsReturned)) {
+            return null;  // decided, but direct flights are counted in full
+        }
+        return new RoundTripPage(roundTrips, pairing.count(), exact);
+    }
+}
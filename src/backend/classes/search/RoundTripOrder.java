@@ -0,0 +1,41 @@
+package backend.classes.search;
+
+/**
+ * How round trips are ranked. Each order is a cost per itinerary on each side, summed for the
+ * pair; that split is what lets {@link RoundTripPairing} walk the pairs in order without building
+ * all of them. Itineraries of equal cost keep the order of the one-way search, which sorts by the
+ * same key, so a side that costs nothing is simply taken in search order.
+ */
+public enum RoundTripOrder {
+    // Shortest outbound plus return travel time
+    TRAVEL_TIME,
+    // Earliest outbound departure, then earliest return departure
+    DEPARTURE,
+    // Earliest return arrival, then earliest outbound arrival
+    RETURN_ARRIVAL;
+
+    /** Order matching a one-way sortBy: traveltime, arrivedatetime, or departure otherwise. */
+    public static RoundTripOrder of(String sortBy) {
+        return switch (sortBy == null ? "" : sortBy.toLowerCase()) {
+            case "traveltime" -> TRAVEL_TIME;
+            case "arrivedatetime" -> RETURN_ARRIVAL;
+            default -> DEPARTURE;
+        };
+    }
+
+    long outboundCost(long departure, long arrival) {
+        return switch (this) {
+            case TRAVEL_TIME -> arrival - departure;
+            case DEPARTURE -> departure;
+            case RETURN_ARRIVAL -> 0;
+        };
+    }
+
+    long returnCost(long departure, long arrival) {
+        return switch (this) {
+            case TRAVEL_TIME -> arrival - departure;
+            case DEPARTURE -> 0;
+            case RETURN_ARRIVAL -> arrival;
+        };
+    }
+}
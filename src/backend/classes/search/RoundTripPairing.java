@@ -0,0 +1,191 @@
+package backend.classes.search;
+
+import backend.classes.records.RoundTrip;
+import backend.interfaces.FlightInterface;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Round trips in {@link RoundTripOrder}, best first, produced lazily from one list of outbound and
+ * one list of return itineraries. Both lists are sorted by their side of the cost; since the pair
+ * cost only grows along either list, the next best pair is always on a frontier held in a priority
+ * queue. Taking k pairs costs O(k log k) after the sort, never the full cross product. Pairs
+ * whose return leaves less than the minimum stay after the outbound lands are skipped, and the
+ * walk simply goes on past them, so every feasible pair is reached in order.
+ *
+ * <p>Either list may be only the first results of its search. The walk then stops, and
+ * {@link #needsMore()} turns true, at the first pair that an itinerary past the end of such a list
+ * could still rank ahead of.
+ */
+public final class RoundTripPairing implements Iterator<FlightInterface> {
+
+    private record Leg(FlightInterface itinerary, long departure, long arrival, long cost) {
+    }
+
+    private record Pair(int outbound, int inbound, long cost) {
+    }
+
+    private static final Comparator<Leg> BY_COST = Comparator.comparingLong(Leg::cost);
+
+    private final List<Leg> outbound;
+    private final List<Leg> inbound;
+    private final boolean outboundComplete;
+    private final boolean inboundComplete;
+    private final long minStayMillis;
+    private final PriorityQueue<Pair> frontier = new PriorityQueue<>(
+            Comparator.comparingLong(Pair::cost).thenComparingInt(Pair::outbound).thenComparingInt(Pair::inbound));
+    private FlightInterface next;
+    private boolean needsMore;
+
+    public RoundTripPairing(List<FlightInterface> flightsTo, List<FlightInterface> flightsReturned,
+                            RoundTripOrder order, Duration minStay) {
+        this(flightsTo, true, flightsReturned, true, order, minStay);
+    }
+
+    /**
+     * Pairs from lists that are only complete where the matching flag says so; an incomplete list
+     * must be the first results of a search sorted by its side of the cost.
+     */
+    public RoundTripPairing(List<FlightInterface> flightsTo, boolean outboundComplete,
+                            List<FlightInterface> flightsReturned, boolean inboundComplete,
+                            RoundTripOrder order, Duration minStay) {
+        this.outbound = new ArrayList<>(flightsTo.size());
+        for (FlightInterface itinerary : flightsTo) {
+            long departure = itinerary.getDepartureTime().getTime();
+            long arrival = finalArrival(itinerary);
+            outbound.add(new Leg(itinerary, departure, arrival, order.outboundCost(departure, arrival)));
+        }
+        this.inbound = new ArrayList<>(flightsReturned.size());
+        for (FlightInterface itinerary : flightsReturned) {
+            long departure = itinerary.getDepartureTime().getTime();
+            long arrival = finalArrival(itinerary);
+            inbound.add(new Leg(itinerary, departure, arrival, order.returnCost(departure, arrival)));
+        }
+        // Stable, so equal legs keep the order the search returned them in
+        outbound.sort(BY_COST);
+        inbound.sort(BY_COST);
+        this.outboundComplete = outboundComplete || outbound.isEmpty();
+        this.inboundComplete = inboundComplete || inbound.isEmpty();
+        this.minStayMillis = minStay.toMillis();
+
+        if (!outbound.isEmpty() && !inbound.isEmpty()) {
+            frontier.add(pair(0, 0));
+        }
+    }
+
+    /** Up to {@code limit} pairs, best first. */
+    public ArrayList<FlightInterface> take(int limit) {
+        ArrayList<FlightInterface> roundTrips = new ArrayList<>();
+        while (roundTrips.size() < limit && hasNext()) {
+            roundTrips.add(next());
+        }
+        return roundTrips;
+    }
+
+    /**
+     * Whether the walk stopped short of a pair it cannot place without more of an incomplete list.
+     * Until then every pair taken is one the complete lists would give in the same position.
+     */
+    public boolean needsMore() {
+        hasNext();
+        return needsMore;
+    }
+
+    /**
+     * How many pairs of the two lists leave at least the minimum stay, in O((n + m) log m) without
+     * pairing them: for each outbound, the returns that depart late enough. With an incomplete
+     * list this only counts the pairs it holds.
+     */
+    public int count() {
+        long[] departures = new long[inbound.size()];
+        for (int i = 0; i < departures.length; i++) {
+            departures[i] = inbound.get(i).departure();
+        }
+        Arrays.sort(departures);
+        long total = 0;
+        for (Leg out : outbound) {
+            total += departures.length - firstAtOrAfter(departures, out.arrival() + minStayMillis);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    private static int firstAtOrAfter(long[] sorted, long value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !needsMore && !frontier.isEmpty()) {
+            if (!placed(frontier.peek())) {
+                needsMore = true;
+                break;
+            }
+            Pair best = frontier.poll();
+            // Each cell is reached exactly once: along its row, or down the first column
+            if (best.inbound() + 1 < inbound.size()) {
+                frontier.add(pair(best.outbound(), best.inbound() + 1));
+            }
+            if (best.inbound() == 0 && best.outbound() + 1 < outbound.size()) {
+                frontier.add(pair(best.outbound() + 1, 0));
+            }
+
+            Leg out = outbound.get(best.outbound());
+            Leg back = inbound.get(best.inbound());
+            if (back.departure() - out.arrival() >= minStayMillis) {
+                next = new RoundTrip(out.itinerary(), back.itinerary());
+            }
+        }
+        if (next == null && frontier.isEmpty() && !outbound.isEmpty() && !inbound.isEmpty()
+                && !(outboundComplete && inboundComplete)) {
+            needsMore = true;
+        }
+        return next != null;
+    }
+
+    /**
+     * Whether no pair with an itinerary past the end of an incomplete list can come before this one.
+     * Those itineraries cost at least as much as the last one held and sit after it, so an unseen
+     * outbound only loses ties to this pair, and an unseen return does for the same outbound.
+     */
+    private boolean placed(Pair p) {
+        if (!outboundComplete
+                && p.cost() > outbound.get(outbound.size() - 1).cost() + inbound.get(0).cost()) {
+            return false;
+        }
+        return inboundComplete || p.outbound() == 0
+                || p.cost() < outbound.get(0).cost() + inbound.get(inbound.size() - 1).cost();
+    }
+
+    @Override
+    public FlightInterface next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FlightInterface roundTrip = next;
+        next = null;
+        return roundTrip;
+    }
+
+    private Pair pair(int out, int back) {
+        return new Pair(out, back, outbound.get(out).cost() + inbound.get(back).cost());
+    }
+
+    private static long finalArrival(FlightInterface itinerary) {
+        FlightInterface leg = itinerary;
+        while (leg.getNextFlight() != null) {
+            leg = leg.getNextFlight();
+        }
+        return leg.getArrivalTime().getTime();
+    }
+}
@@ -0,0 +1,26 @@
+package backend.classes.search;
+
+import enums.AirlineTable;
+
+import java.util.Set;
+
+/**
+ * A connecting-flight search. Window bounds are epoch minutes (see FlightGraph.toEpochMinute) and
+ * apply to every leg; {@code limit} is the number of itineraries the caller will actually show.
+ * Itineraries start at any of {@code origins} and end at any of {@code destinations}, so a city
+ * name that matches several airports searches from all of them, as the direct search does.
+ */
+public record RouteQuery(Set<String> origins,
+                         Set<String> destinations,
+                         long windowStart,
+                         long windowEnd,
+                         Set<AirlineTable> tables,
+                         int maxStops,
+                         String sortBy,
+                         int limit) {
+
+    public RouteQuery(String origin, String destination, long windowStart, long windowEnd,
+                      Set<AirlineTable> tables, int maxStops, String sortBy, int limit) {
+        this(Set.of(origin), Set.of(destination), windowStart, windowEnd, tables, maxStops, sortBy, limit);
+    }
+}
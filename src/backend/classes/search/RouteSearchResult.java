@@ -0,0 +1,14 @@
+package backend.classes.search;
+
+import backend.interfaces.FlightInterface;
+
+import java.util.List;
+
+/**
+ * Itineraries in {@code sortBy} order, each as its list of legs. {@code truncated} is set when the
+ * search stopped on its node or time budget rather than by exhausting the network or the limit.
+ */
+public record RouteSearchResult(List<List<FlightInterface>> itineraries,
+                                int expandedNodes,
+                                boolean truncated) {
+}
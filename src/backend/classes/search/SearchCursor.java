@@ -0,0 +1,47 @@
+package backend.classes.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a search result. Direct-flight pages use a keyset position (the last row's
+ * sort value, table and id) so the next page seeks instead of skipping; connecting-flight pages,
+ * which are computed in memory, use a plain offset.
+ */
+public record SearchCursor(boolean keyset, long sortValue, String table, int id, int offset) {
+
+    public static SearchCursor keyset(long sortValue, String table, int id) {
+        return new SearchCursor(true, sortValue, table, id, 0);
+    }
+
+    public static SearchCursor offset(int offset) {
+        return new SearchCursor(false, 0, null, 0, offset);
+    }
+
+    public String encode() {
+        String raw = keyset
+                ? "k:" + sortValue + ":" + table + ":" + id
+                : "o:" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns null for a null or empty cursor; throws IllegalArgumentException if it is malformed. */
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts[0].equals("k") && parts.length == 4) {
+                return keyset(Long.parseLong(parts[1]), parts[2], Integer.parseInt(parts[3]));
+            }
+            if (parts[0].equals("o") && parts.length == 2) {
+                return offset(Integer.parseInt(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+}
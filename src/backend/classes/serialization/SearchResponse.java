@@ -0,0 +1,10 @@
+package backend.classes.serialization;
+
+import java.util.Map;
+
+/**
+ * A search page on its way to the client: the map FlightService returns (and caches), plus whether
+ * to send it dictionary-encoded. Written by {@link SearchResponseConverter}.
+ */
+public record SearchResponse(Map<String, Object> page, boolean compact) {
+}
@@ -0,0 +1,55 @@
+package backend.classes.serialization;
+
+import backend.classes.metrics.SearchMetrics;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+
+/** Writes {@link SearchResponse}s with {@link SearchResponseWriter}, timed as serialization. */
+public class SearchResponseConverter extends AbstractHttpMessageConverter<SearchResponse> {
+    public static final MediaType COMPACT_JSON = MediaType.parseMediaType("application/vnd.flights.compact+json");
+
+    private final ObjectMapper objectMapper;
+    private final SearchMetrics metrics;
+
+    public SearchResponseConverter(ObjectMapper objectMapper, SearchMetrics metrics) {
+        super(MediaType.APPLICATION_JSON, COMPACT_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SearchResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SearchResponse readInternal(Class<? extends SearchResponse> clazz, HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Search responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SearchResponse response, HttpOutputMessage outputMessage) throws IOException {
+        long start = System.nanoTime();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(
+                StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            SearchResponseWriter.write(gen, response);
+        } finally {
+            metrics.record(SearchMetrics.Stage.SERIALIZATION, start);
+        }
+    }
+}
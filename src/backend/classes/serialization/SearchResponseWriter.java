@@ -0,0 +1,173 @@
+package backend.classes.serialization;
+
+import backend.interfaces.FlightInterface;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Writes search pages straight to a JsonGenerator instead of letting Jackson walk the flight
+ * chains by reflection.
+ *
+ * The full format is the one Jackson produced for Flight: every leg an object with its airports,
+ * airline and times spelled out, connections under nextFlight and the return under returnTrip.
+ *
+ * The compact format sends each airport and airline name once, in "airports" and "airlines", and
+ * each itinerary as {"legs": [...], "returnLegs": [...]} where a leg is an array in the order of
+ * "legColumns". Airports and airlines are indexes into their lists; times are epoch milliseconds.
+ */
+public final class SearchResponseWriter {
+    public static final String FORMAT_COMPACT = "compact";
+    public static final List<String> LEG_COLUMNS = List.of("id", "flightNumber", "departureAirport",
+            "arrivalAirport", "departureTime", "arrivalTime", "airline", "seatsFree");
+
+    // What Jackson's default date format gives for a Timestamp, e.g. 2023-01-01T08:00:00.000+00:00
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx").withZone(ZoneOffset.UTC);
+
+    private SearchResponseWriter() {
+    }
+
+    public static void write(JsonGenerator gen, SearchResponse response) throws IOException {
+        if (response.compact()) {
+            writeCompact(gen, response.page());
+        } else {
+            writeFull(gen, response.page());
+        }
+    }
+
+    private static void writeFull(JsonGenerator gen, Map<String, Object> page) throws IOException {
+        gen.writeStartObject();
+        for (Map.Entry<String, Object> e : page.entrySet()) {
+            if (e.getKey().equals("flights") && e.getValue() instanceof List<?> flights) {
+                gen.writeArrayFieldStart("flights");
+                for (Object flight : flights) {
+                    writeFlight(gen, (FlightInterface) flight);
+                }
+                gen.writeEndArray();
+            } else {
+                gen.writeObjectField(e.getKey(), e.getValue());
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    /** One flight and its chains in the full format. */
+    public static void writeFlight(JsonGenerator gen, FlightInterface flight) throws IOException {
+        if (flight == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeNumberField("id", flight.getId());
+        gen.writeStringField("flightNumber", flight.getFlightNumber());
+        gen.writeStringField("departureAirport", flight.getDepartureAirport());
+        gen.writeStringField("arrivalAirport", flight.getArrivalAirport());
+        gen.writeFieldName("departureTime");
+        writeTimestamp(gen, flight.getDepartureTime());
+        gen.writeFieldName("arrivalTime");
+        writeTimestamp(gen, flight.getArrivalTime());
+        gen.writeStringField("airline", flight.getAirline());
+        gen.writeNumberField("seatsFree", flight.getSeatsFree());
+        gen.writeFieldName("nextFlight");
+        writeFlight(gen, flight.getNextFlight());
+        gen.writeFieldName("returnTrip");
+        writeFlight(gen, flight.getReturnTrip());
+        gen.writeEndObject();
+    }
+
+    private static void writeTimestamp(JsonGenerator gen, Timestamp time) throws IOException {
+        if (time == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(TIMESTAMP.format(Instant.ofEpochMilli(time.getTime())));
+        }
+    }
+
+    private static void writeCompact(JsonGenerator gen, Map<String, Object> page) throws IOException {
+        List<FlightInterface> flights = new ArrayList<>();
+        if (page.get("flights") instanceof List<?> list) {
+            for (Object flight : list) {
+                flights.add((FlightInterface) flight);
+            }
+        }
+
+        Map<String, Integer> airports = new LinkedHashMap<>();
+        Map<String, Integer> airlines = new LinkedHashMap<>();
+        for (FlightInterface itinerary : flights) {
+            index(itinerary, airports, airlines);
+            index(itinerary.getReturnTrip(), airports, airlines);
+        }
+
+        gen.writeStartObject();
+        gen.writeStringField("format", FORMAT_COMPACT);
+        writeStrings(gen, "airports", airports.keySet());
+        writeStrings(gen, "airlines", airlines.keySet());
+        writeStrings(gen, "legColumns", LEG_COLUMNS);
+        gen.writeArrayFieldStart("flights");
+        for (FlightInterface itinerary : flights) {
+            gen.writeStartObject();
+            gen.writeFieldName("legs");
+            writeLegs(gen, itinerary, airports, airlines);
+            if (itinerary.getReturnTrip() != null) {
+                gen.writeFieldName("returnLegs");
+                writeLegs(gen, itinerary.getReturnTrip(), airports, airlines);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        for (Map.Entry<String, Object> e : page.entrySet()) {
+            if (!e.getKey().equals("flights")) {
+                gen.writeObjectField(e.getKey(), e.getValue());
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static void index(FlightInterface itinerary, Map<String, Integer> airports, Map<String, Integer> airlines) {
+        for (FlightInterface leg = itinerary; leg != null; leg = leg.getNextFlight()) {
+            airports.putIfAbsent(leg.getDepartureAirport(), airports.size());
+            airports.putIfAbsent(leg.getArrivalAirport(), airports.size());
+            airlines.putIfAbsent(leg.getAirline(), airlines.size());
+        }
+    }
+
+    private static void writeLegs(JsonGenerator gen, FlightInterface itinerary,
+                                  Map<String, Integer> airports, Map<String, Integer> airlines) throws IOException {
+        gen.writeStartArray();
+        for (FlightInterface leg = itinerary; leg != null; leg = leg.getNextFlight()) {
+            gen.writeStartArray();
+            gen.writeNumber(leg.getId());
+            gen.writeString(leg.getFlightNumber());
+            gen.writeNumber(airports.get(leg.getDepartureAirport()));
+            gen.writeNumber(airports.get(leg.getArrivalAirport()));
+            writeMillis(gen, leg.getDepartureTime());
+            writeMillis(gen, leg.getArrivalTime());
+            gen.writeNumber(airlines.get(leg.getAirline()));
+            gen.writeNumber(leg.getSeatsFree());
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeMillis(JsonGenerator gen, Timestamp time) throws IOException {
+        if (time == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(time.getTime());
+        }
+    }
+
+    private static void writeStrings(JsonGenerator gen, String field, Collection<String> values) throws IOException {
+        gen.writeArrayFieldStart(field);
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
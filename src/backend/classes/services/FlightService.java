@@ -1,41 +1,256 @@
 package backend.classes.services;
 
+import backend.classes.cache.CacheStats;
+import backend.classes.cache.SearchCoalescer;
+import backend.classes.cache.SearchKey;
+import backend.classes.cache.SearchResultCache;
+import backend.classes.database.ConnectionPool;
 import backend.classes.database.Database;
+import backend.classes.database.InMemoryDatabase;
+import backend.classes.database.SchemaMigrator;
+import backend.classes.database.SeatInventory;
+import backend.classes.holds.SeatHold;
+import backend.classes.holds.SeatHoldManager;
+import backend.classes.imports.ChangeReport;
+import backend.classes.imports.ImportReport;
+import backend.classes.imports.ScheduleImporter;
+import backend.classes.imports.ScheduleRow;
+import backend.classes.metrics.InstrumentedRouteSearch;
+import backend.classes.metrics.SearchMetrics;
+import backend.classes.records.ChangeOutcome;
 import backend.classes.records.Flight;
+import backend.classes.records.FlightKey;
+import backend.classes.records.FlightPage;
+import backend.classes.records.FlightUpdate;
+import backend.classes.records.RoundTripPage;
+import backend.classes.search.BoundedRouteSearch;
+import backend.classes.search.ParallelRouteSearch;
+import backend.classes.search.SearchCursor;
 import backend.exceptions.NoSeatsAvailableException;
 import backend.interfaces.FlightInterface;
 import enums.AirlineTable;
 import backend.interfaces.DatabaseInterface;
+import backend.interfaces.RouteSearchEngine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @Service
 public class FlightService {
+    private static final Logger log = LoggerFactory.getLogger(FlightService.class);
+    private final SearchMetrics metrics;
     private DatabaseInterface database;
 
+    @Value("${database.mode:mysql}")
+    private String databaseMode;
     @Value("${database.url}")
     private String dbUrl;
     @Value("${database.user}")
     private String dbUser;
     @Value("${database.password}")
     private String dbPassword;
+    @Value("${database.pool.max-size:10}")
+    private int poolMaxSize;
+    @Value("${database.pool.acquire-timeout-ms:30000}")
+    private long poolAcquireTimeoutMs;
+    @Value("${database.pool.validation-timeout-seconds:5}")
+    private int poolValidationTimeoutSeconds;
+    @Value("${database.pool.leak-detection-threshold-ms:60000}")
+    private long poolLeakDetectionThresholdMs;
+    @Value("${database.pool.statement-cache-size:250}")
+    private int poolStatementCacheSize;
+    @Value("${database.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+    @Value("${seats.inventory.enabled:true}")
+    private boolean seatInventoryEnabled;
+    @Value("${seats.inventory.max-batch-size:256}")
+    private int seatInventoryMaxBatchSize;
+    @Value("${seats.inventory.max-delay-ms:2}")
+    private long seatInventoryMaxDelayMs;
+    @Value("${seats.holds.ttl-seconds:300}")
+    private long holdTtlSeconds;
+    @Value("${seats.holds.max-ttl-seconds:1800}")
+    private long holdMaxTtlSeconds;
+    @Value("${seats.holds.tick-ms:100}")
+    private long holdTickMs;
+    @Value("${seats.holds.wheel-size:512}")
+    private int holdWheelSize;
+    @Value("${import.chunk-size:500}")
+    private int importChunkSize;
+    @Value("${import.parallelism:4}")
+    private int importParallelism;
+    @Value("${import.max-errors:1000}")
+    private int importMaxErrors;
+    @Value("${search.route.max-expanded-nodes:200000}")
+    private int routeMaxExpandedNodes;
+    @Value("${search.route.max-millis:2000}")
+    private long routeMaxMillis;
+    @Value("${search.route.parallelism:1}")
+    private int routeParallelism;
+    @Value("${search.route.parallel-threshold:16}")
+    private int routeParallelThreshold;
+    @Value("${search.round-trip.min-stay-minutes:0}")
+    private int roundTripMinStayMinutes;
+    @Value("${import.changes.max-items:50000}")
+    private int changeMaxItems;
+    @Value("${search.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    @Value("${search.cache.max-bytes:67108864}")
+    private long cacheMaxBytes;
+    @Value("${search.coalesce.enabled:true}")
+    private boolean coalesceEnabled;
+    @Value("${search.coalesce.timeout-ms:30000}")
+    private long coalesceTimeoutMs;
+
+    private ConnectionPool pool;
+    private SearchResultCache searchCache;
+    private SearchCoalescer searchCoalescer;
+    private SeatHoldManager seatHolds;
+    private ScheduleImporter scheduleImporter;
+
+    public FlightService(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     @PostConstruct
     public void init() throws SQLException {
-        database = new Database(dbUrl, dbUser, dbPassword);
+        searchCache = new SearchResultCache(cacheMaxEntries, cacheMaxBytes);
+        searchCoalescer = new SearchCoalescer(coalesceTimeoutMs);
+        pool = new ConnectionPool(dbUrl, dbUser, dbPassword,
+                poolMaxSize, poolAcquireTimeoutMs,
+                poolValidationTimeoutSeconds, poolLeakDetectionThresholdMs, poolStatementCacheSize);
+        BoundedRouteSearch routeSearch = new BoundedRouteSearch(routeMaxExpandedNodes, routeMaxMillis);
+        RouteSearchEngine routeSearchEngine = new InstrumentedRouteSearch(routeParallelism > 1
+                ? new ParallelRouteSearch(routeSearch, routeParallelism, routeParallelThreshold)
+                : routeSearch, metrics);
+
+        switch (databaseMode.toLowerCase()) {
+            case "memory" -> {
+                // Snapshot the tables once; searches and writes are then served from memory only.
+                InMemoryDatabase db = new InMemoryDatabase();
+                db.setRouteSearchEngine(routeSearchEngine);
+                db.setMetrics(metrics);
+                db.loadFrom(pool);
+                pool.close();
+                database = db;
+            }
+            case "mysql" -> {
+                if (migrateOnStartup) {
+                    new SchemaMigrator(pool).migrate();
+                }
+                Database db = new Database(pool);
+                db.setRouteSearchEngine(routeSearchEngine);
+                db.setMetrics(metrics);
+                db.loadFlightGraph();
+                if (seatInventoryEnabled) {
+                    db.enableSeatInventory(seatInventoryMaxBatchSize, seatInventoryMaxDelayMs);
+                }
+                database = db;
+            }
+            default -> throw new IllegalArgumentException("Unknown database.mode: " + databaseMode);
+        }
+        seatHolds = new SeatHoldManager(database, holdTickMs, holdWheelSize, this::invalidateSeats);
+        seatHolds.recover();
+        scheduleImporter = new ScheduleImporter(database, importChunkSize, importParallelism, importMaxErrors);
+        registerGauges(metrics.getRegistry());
+    }
+
+    private void registerGauges(MeterRegistry registry) {
+        if (database instanceof Database db) {
+            ConnectionPool connections = db.getPool();
+            Gauge.builder("db.pool.active", connections, ConnectionPool::getActiveCount).register(registry);
+            Gauge.builder("db.pool.idle", connections, ConnectionPool::getIdleCount).register(registry);
+            Gauge.builder("db.pool.waiting", connections, ConnectionPool::getWaitingCount).register(registry);
+            Gauge.builder("db.pool.max", connections, ConnectionPool::getMaxSize).register(registry);
+            if (connections.isCachingStatements()) {
+                Gauge.builder("db.statements.cache.hit.rate", connections, ConnectionPool::getStatementCacheHitRate)
+                        .register(registry);
+                FunctionCounter.builder("db.statements.cache.hits", connections, ConnectionPool::getStatementCacheHits)
+                        .register(registry);
+                FunctionCounter.builder("db.statements.cache.misses", connections, ConnectionPool::getStatementCacheMisses)
+                        .register(registry);
+            }
+            Gauge.builder("db.query.templates", db, d -> d.getQueryTemplateStats().templates()).register(registry);
+            Gauge.builder("db.query.templates.hit.rate", db, d -> d.getQueryTemplateStats().hitRate()).register(registry);
+            if (db.getSeatInventory() != null) {
+                Gauge.builder("seats.inventory.queued", db.getSeatInventory(), SeatInventory::getQueuedReservations)
+                        .register(registry);
+            }
+        }
+        Gauge.builder("search.cache.entries", searchCache, c -> c.getStats().entries()).register(registry);
+        Gauge.builder("search.cache.bytes", searchCache, c -> c.getStats().bytes()).register(registry);
+        Gauge.builder("search.cache.hit.rate", searchCache, c -> c.getStats().hitRate()).register(registry);
+        FunctionCounter.builder("search.cache.hits", searchCache, c -> c.getStats().hits()).register(registry);
+        FunctionCounter.builder("search.cache.misses", searchCache, c -> c.getStats().misses()).register(registry);
+        FunctionCounter.builder("search.cache.evictions", searchCache, c -> c.getStats().evictions()).register(registry);
+        Gauge.builder("search.coalesce.in.flight", searchCoalescer, c -> c.getStats().inFlight()).register(registry);
+        Gauge.builder("search.coalesce.hit.rate", searchCoalescer, c -> c.getStats().hitRate()).register(registry);
+        FunctionCounter.builder("search.coalesce.started", searchCoalescer, c -> c.getStats().started()).register(registry);
+        FunctionCounter.builder("search.coalesce.joined", searchCoalescer, c -> c.getStats().joined()).register(registry);
+        FunctionCounter.builder("search.coalesce.timeouts", searchCoalescer, c -> c.getStats().timeouts()).register(registry);
+        FunctionCounter.builder("search.coalesce.cancelled", searchCoalescer, c -> c.getStats().cancelled())
+                .register(registry);
+        Gauge.builder("seats.holds.active", seatHolds, SeatHoldManager::activeHolds).register(registry);
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public CacheStats getCacheStats() {
+        return searchCache.getStats();
+    }
+
+    public SearchCoalescer.Stats getCoalescerStats() {
+        return searchCoalescer.getStats();
+    }
+
+    private static String pagePosition(String cursor, int page) {
+        return cursor == null || cursor.isEmpty() ? "page:" + page : cursor;
+    }
+
+    // A search shared by identical concurrent requests: the first window results from position,
+    // computed against one cache generation so a write in between starts a fresh search
+    private record SharedSearch(SearchKey search, String position, int window, long generation) {
+    }
+
+    private <V> V coalesce(SharedSearch key, SearchCoalescer.Search<V> search) throws SQLException {
+        return coalesceEnabled ? searchCoalescer.join(key, search) : search.run();
+    }
+
+    private int window(int rows) {
+        return coalesceEnabled ? SearchCoalescer.window(rows) : rows;
     }
 
     @PreDestroy
     public void close() throws SQLException {
+        if (scheduleImporter != null) {
+            scheduleImporter.close();
+        }
+        if (seatHolds != null) {
+            seatHolds.close();
+        }
+        if (searchCoalescer != null) {
+            searchCoalescer.close();
+        }
         if (database != null) {
             database.close();
         }
@@ -51,62 +266,91 @@ public class FlightService {
             String airline,
             String returnDateStart,
             String returnDateEnd,
+            Integer minStayMinutes,
             String sortBy,
             int page,
-            int pageSize
+            int pageSize,
+            String cursor
     ) throws SQLException {
 
-        System.out.println(startTimeStr);
-        List<AirlineTable> tables = new ArrayList<>();
-        tables.add(AirlineTable.DELTAS);
-        tables.add(AirlineTable.SOUTHWESTS);
-
-        DateTimeFormatter isoFormatter = DateTimeFormatter.ISO_DATE_TIME;
-        LocalDateTime startLocal = startTimeStr.isEmpty()
-                ? database.getFlightWithEarliestDeparture(tables).getDepartureTime().toLocalDateTime()
-                : LocalDateTime.parse(startTimeStr, isoFormatter);
-        LocalDateTime endLocal = endTimeStr.isEmpty()
-                ? database.getFlightWithLatestDeparture(tables).getDepartureTime().toLocalDateTime()
-                : LocalDateTime.parse(endTimeStr,   isoFormatter);
-
-        LocalDateTime returnDateStartLocal = returnDateStart.isEmpty()
-                ? database.getFlightWithEarliestDeparture(tables).getDepartureTime().toLocalDateTime()
-                : LocalDateTime.parse(returnDateStart, isoFormatter);
-        LocalDateTime returnDateEndLocal = returnDateEnd.isEmpty()
-                ? database.getFlightWithLatestDeparture(tables).getDepartureTime().toLocalDateTime()
-                : LocalDateTime.parse(returnDateEnd,   isoFormatter);
-
-        Timestamp startTime       = Timestamp.valueOf(startLocal);
-        Timestamp endTime         = Timestamp.valueOf(endLocal);
-        Timestamp returnDateStartTime = Timestamp.valueOf(returnDateStartLocal);
-        Timestamp returnDateEndTime = Timestamp.valueOf(returnDateEndLocal);
-
-        List<Object> params = List.of(
-                departureAirport,
-                arriveAirport,
-                startTime,
-                endTime,
-                maxStops,
-                airline,
-                returnDateStartTime,
-                returnDateEndTime
-        );
-
-        List<FlightInterface> flights = database.selectRoundTrip(tables, sortBy, params);
-
-        int total = flights.size();
-        int fromIndex = (page - 1) * pageSize;
-        int toIndex = Math.min(fromIndex + pageSize, total);
-        List<FlightInterface> paginatedFlights = fromIndex < total ? flights.subList(fromIndex, toIndex) : new ArrayList<>();
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+        }
+        int minStay = minStayMinutes == null ? roundTripMinStayMinutes : minStayMinutes;
+        if (minStay < 0) {
+            throw new IllegalArgumentException("minStayMinutes must not be negative: " + minStay);
+        }
+        SearchKey key = SearchKey.roundTrip(departureAirport, arriveAirport, startTimeStr, endTimeStr,
+                maxStops, airline, returnDateStart, returnDateEnd, sortBy, minStay);
+        String position = pagePosition(cursor, page);
+        Map<String, Object> cached = searchCache.get(key, position, pageSize);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = searchCache.generation();
+
+        SearchCursor after = SearchCursor.decode(cursor);
+        int fromIndex = after != null ? after.offset() : (page - 1) * pageSize;
+        // Round trips are ranked in memory from the start, so requests for any page up to the
+        // window share one search and each slices its own page out of it
+        int window = window(fromIndex + pageSize + 1);
+        RoundTripPage roundTrips = coalesce(new SharedSearch(key, null, window, generation), () -> {
+            List<AirlineTable> tables = new ArrayList<>();
+            tables.add(AirlineTable.DELTAS);
+            tables.add(AirlineTable.SOUTHWESTS);
+
+            DateTimeFormatter isoFormatter = DateTimeFormatter.ISO_DATE_TIME;
+            LocalDateTime startLocal = startTimeStr.isEmpty()
+                    ? database.getEarliestDepartureTime(tables).toLocalDateTime()
+                    : LocalDateTime.parse(startTimeStr, isoFormatter);
+            LocalDateTime endLocal = endTimeStr.isEmpty()
+                    ? database.getLatestDepartureTime(tables).toLocalDateTime()
+                    : LocalDateTime.parse(endTimeStr,   isoFormatter);
+
+            LocalDateTime returnDateStartLocal = returnDateStart.isEmpty()
+                    ? database.getEarliestDepartureTime(tables).toLocalDateTime()
+                    : LocalDateTime.parse(returnDateStart, isoFormatter);
+            LocalDateTime returnDateEndLocal = returnDateEnd.isEmpty()
+                    ? database.getLatestDepartureTime(tables).toLocalDateTime()
+                    : LocalDateTime.parse(returnDateEnd,   isoFormatter);
+
+            Timestamp startTime       = Timestamp.valueOf(startLocal);
+            Timestamp endTime         = Timestamp.valueOf(endLocal);
+            Timestamp returnDateStartTime = Timestamp.valueOf(returnDateStartLocal);
+            Timestamp returnDateEndTime = Timestamp.valueOf(returnDateEndLocal);
+
+            List<Object> params = List.of(
+                    departureAirport,
+                    arriveAirport,
+                    startTime,
+                    endTime,
+                    maxStops,
+                    airline,
+                    returnDateStartTime,
+                    returnDateEndTime,
+                    minStay
+            );
+
+            return database.selectRoundTripPage(tables, sortBy, params, window);
+        });
+
+        long start = System.nanoTime();
+        List<FlightInterface> flights = roundTrips.roundTrips();
+        int total = roundTrips.total();
+        int toIndex = Math.min(fromIndex + pageSize, flights.size());
+        List<FlightInterface> paginatedFlights = fromIndex < toIndex ? flights.subList(fromIndex, toIndex) : new ArrayList<>();
 
         boolean hasMore = toIndex < total;
-        System.out.println("Total Flights: " + total);
-        System.out.println("Returning Flights: " + paginatedFlights.size());
-        System.out.println("Has More Pages: " + hasMore);
+        log.debug("Round trip page: total={}{}, returning={}, hasMore={}", total,
+                roundTrips.totalExact() ? "" : " (at least)", paginatedFlights.size(), hasMore);
         Map<String, Object> response = new HashMap<>();
         response.put("flights", paginatedFlights);
         response.put("hasMore", hasMore);
         response.put("total", total);
+        response.put("totalExact", roundTrips.totalExact());
+        response.put("nextCursor", hasMore ? SearchCursor.offset(toIndex).encode() : null);
+        metrics.record(SearchMetrics.Stage.PAGINATION, start);
+        searchCache.put(key, position, pageSize, response, generation);
         return response;
     }
 
@@ -121,138 +365,378 @@ public class FlightService {
             String airline,
             String sortBy,
             int page,
-            int pageSize
+            int pageSize,
+            String cursor
     ) throws SQLException {
-        System.out.println("Search Flights in Service");
-        System.out.printf("departureAirport = '%s'%n", departureAirport);
-        System.out.printf("arriveAirport    = '%s'%n", arriveAirport);
-        System.out.printf("startTimeStr     = '%s'%n", startTimeStr);
-        System.out.printf("endTimeStr       = '%s'%n", endTimeStr);
-        System.out.printf("maxStops         = '%d'%n", maxStops);
-        System.out.printf("airline          = '%s'%n", airline);
-        System.out.printf("sortBy           = '%s'%n", sortBy);
-        System.out.printf("page             = '%d'%n", page);
-        System.out.printf("pageSize         = '%d'%n", pageSize);
-
-        List<AirlineTable> tables = new ArrayList<>();
-        tables.add(AirlineTable.DELTAS);
-        tables.add(AirlineTable.SOUTHWESTS);
-
-        LocalDateTime startLocalDateTime;
-        LocalDateTime endLocalDateTime;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+        }
+        SearchKey key = SearchKey.oneWay(departureAirport, arriveAirport, startTimeStr, endTimeStr,
+                maxStops, airline, sortBy);
+        String position = pagePosition(cursor, page);
+        Map<String, Object> cached = searchCache.get(key, position, pageSize);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = searchCache.generation();
 
-        DateTimeFormatter isoFormatter = DateTimeFormatter.ISO_DATE_TIME;
-        if (startTimeStr.isEmpty()) {
-            System.out.println("Getting earliest departure time");
-            FlightInterface earliestFlight = database.getFlightWithEarliestDeparture(tables);
-            startLocalDateTime = earliestFlight.getDepartureTime().toLocalDateTime();
-            System.out.println("Earliest departure time: " + startLocalDateTime);
-        } else {
-            startLocalDateTime = LocalDateTime.parse(startTimeStr, isoFormatter);
+        if ((cursor == null || cursor.isEmpty()) && page > 1) {
+            cursor = SearchCursor.offset((page - 1) * pageSize).encode();
         }
+        // Requests from the same position share one search of window results; each takes the
+        // first pageSize of them, and the page's per-result cursors give it the right next cursor
+        String from = cursor;
+        int window = window(pageSize);
+        FlightPage shared = coalesce(new SharedSearch(key, pagePosition(from, 1), window, generation), () -> {
+            List<AirlineTable> tables = new ArrayList<>();
+            tables.add(AirlineTable.DELTAS);
+            tables.add(AirlineTable.SOUTHWESTS);
+
+            List<Object> params = oneWayParams(tables, departureAirport, arriveAirport,
+                    startTimeStr, endTimeStr, maxStops, airline);
+
+            log.debug("One-way search: params={}, sortBy={}, cursor={}, window={}", params, sortBy, from, window);
+            return database.selectFlightPage(tables, sortBy, params, from, window);
+        });
+
+        List<FlightInterface> flights = shared.flights();
+        int count = Math.min(pageSize, flights.size());
+        boolean hasMore = count < flights.size() || shared.hasMore();
+        // Connecting itineraries are only searched up to the shared window, so their total is how
+        // many were found and totalExact says whether that is all of them
+        int total = shared.total();
+        log.debug("One-way page: total={}{}, returning={}, hasMore={}", total,
+                shared.totalExact() ? "" : " (at least)", count, hasMore);
+        Map<String, Object> response = new HashMap<>();
+        response.put("flights", new ArrayList<>(flights.subList(0, count)));
+        response.put("hasMore", hasMore);
+        response.put("total", total);
+        response.put("totalExact", shared.totalExact());
+        response.put("nextCursor", hasMore ? shared.cursors().get(count - 1) : null);
+        searchCache.put(key, position, pageSize, response, generation);
+        return response;
+    }
 
-        if (endTimeStr.isEmpty()) {
-            System.out.println("Getting latest departure time");
-            FlightInterface latestFlight = database.getFlightWithLatestDeparture(tables);
-            endLocalDateTime = latestFlight.getDepartureTime().toLocalDateTime();
-            System.out.println("Latest departure time: " + endLocalDateTime);
-        } else {
-            endLocalDateTime = LocalDateTime.parse(endTimeStr, isoFormatter);
+    // Stream one-way results to sink as they are found, in the same order as searchFlights;
+    // sink returns false to stop the search
+    public void streamFlights(
+            String departureAirport,
+            String arriveAirport,
+            String startTimeStr,
+            String endTimeStr,
+            Integer maxStops,
+            String airline,
+            String sortBy,
+            int limit,
+            Predicate<FlightInterface> sink
+    ) throws SQLException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1: " + limit);
         }
+        List<AirlineTable> tables = List.of(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS);
+        List<Object> params = oneWayParams(tables, departureAirport, arriveAirport,
+                startTimeStr, endTimeStr, maxStops, airline);
+        log.debug("Streaming one-way search: params={}, sortBy={}, limit={}", params, sortBy, limit);
+        database.streamFlights(tables, sortBy, params, limit, sink);
+    }
 
-        Timestamp startTime = Timestamp.valueOf(startLocalDateTime);
-        Timestamp endTime = Timestamp.valueOf(endLocalDateTime);
+    // [departureAirport, arriveAirport, start, end, maxStops, airline]; an empty time means the
+    // earliest or latest departure on record
+    private List<Object> oneWayParams(List<AirlineTable> tables, String departureAirport, String arriveAirport,
+                                      String startTimeStr, String endTimeStr, Integer maxStops, String airline)
+            throws SQLException {
+        DateTimeFormatter isoFormatter = DateTimeFormatter.ISO_DATE_TIME;
+        LocalDateTime startLocalDateTime = startTimeStr.isEmpty()
+                ? database.getEarliestDepartureTime(tables).toLocalDateTime()
+                : LocalDateTime.parse(startTimeStr, isoFormatter);
+        LocalDateTime endLocalDateTime = endTimeStr.isEmpty()
+                ? database.getLatestDepartureTime(tables).toLocalDateTime()
+                : LocalDateTime.parse(endTimeStr, isoFormatter);
 
-        List<Object> params = List.of(
+        return List.of(
                 departureAirport,
                 arriveAirport,
-                startTime,
-                endTime,
+                Timestamp.valueOf(startLocalDateTime),
+                Timestamp.valueOf(endLocalDateTime),
                 maxStops,
                 airline
         );
+    }
 
-        System.out.println("Params are " + params);
-
-        List<FlightInterface> flights = database.selectFlights(tables, sortBy, params);
-
-        int total = flights.size();
-        int fromIndex = (page - 1) * pageSize;
-        int toIndex = Math.min(fromIndex + pageSize, total);
-        List<FlightInterface> paginatedFlights = fromIndex < total ? flights.subList(fromIndex, toIndex) : new ArrayList<>();
+    // Add flight to the airline's table
+    public int addFlight(ScheduleRow row) throws SQLException {
+        Map<AirlineTable, List<Integer>> ids = database.insertFlights(Map.of(row.table(), List.of(row.params())));
+        searchCache.invalidate(row.departureAirport(), row.arrivalAirport(), row.departureTime());
+        return ids.get(row.table()).get(0);
+    }
 
-        boolean hasMore = toIndex < total;
-        System.out.println("Total Flights: " + total);
-        System.out.println("Returning Flights: " + paginatedFlights.size());
-        System.out.println("Has More Pages: " + hasMore);
-        Map<String, Object> response = new HashMap<>();
-        response.put("flights", paginatedFlights);
-        response.put("hasMore", hasMore);
-        response.put("total", total);
-        return response;
+    // Bulk import a CSV or NDJSON schedule
+    public ImportReport importSchedule(InputStream in, ScheduleImporter.Format format) throws IOException {
+        ImportReport report = scheduleImporter.importFrom(in, format);
+        if (report.rowsImported() > 0) {
+            searchCache.invalidateAll();
+        }
+        return report;
     }
 
-    // Add flight
-    public int addFlight(Flight flight, AirlineTable table) throws SQLException {
-        List<Object> params = Arrays.asList(
-                flight.getDepartureTime(),
-                flight.getArrivalTime(),
-                flight.getDepartureAirport(),
-                flight.getArrivalAirport()
-        );
-        return database.insertFlight(table, params);
+    // Pick up flights inserted behind the server's back, e.g. by the ImportSchedule CLI
+    public int loadNewFlights() throws SQLException {
+        if (!(database instanceof Database db)) {
+            throw new IllegalArgumentException("database.mode=memory serves the snapshot taken at startup");
+        }
+        int added = db.loadNewFlights();
+        if (added > 0) {
+            searchCache.invalidateAll();
+        }
+        return added;
     }
 
-    // Update flight
-    public boolean updateFlight(int id, Flight flight) throws SQLException {
-        // [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, id]
+    // Update flight; airline picks the table when both airlines use the id
+    public boolean updateFlight(int id, String airline, Flight flight) throws SQLException {
+        FlightKey key = locate(id, airline);
+        if (key == null) return false;
+
+        // [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber]
         List<Object> params = Arrays.asList(
                 flight.getDepartureTime(),
                 flight.getArrivalTime(),
                 flight.getDepartureAirport(),
                 flight.getArrivalAirport(),
-                flight.getFlightNumber(),
-                id
+                flight.getFlightNumber()
         );
-        List<AirlineTable> tables = Arrays.asList(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS);
-        List<Integer> updatedIds = database.updateTables(tables, params);
-        return !updatedIds.isEmpty();
+        FlightInterface previous = database.selectFlight(key);
+        boolean updated = database.updateFlight(key, params);
+        searchCache.invalidate(previous);
+        searchCache.invalidate(flight);
+        return updated;
     }
 
     // Delete flight by id
-    public boolean deleteFlight(int id) throws SQLException {
-        List<Object> params = Collections.singletonList(id);
-        List<AirlineTable> tables = Arrays.asList(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS);
-        List<Integer> deletedIds = database.updateTables(tables, params);
-        return !deletedIds.isEmpty();
+    public boolean deleteFlight(int id, String airline) throws SQLException {
+        FlightKey key = locate(id, airline);
+        if (key == null) return false;
+
+        FlightInterface previous = database.selectFlight(key);
+        boolean deleted = database.deleteFlight(key);
+        searchCache.invalidate(previous);
+        return deleted;
     }
 
     // Select flight by id
-    public FlightInterface getFlightById(int id) throws SQLException {
-        List<AirlineTable> tables = List.of(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS);
-        FlightInterface flight = database.selectFlightById(tables, id);
+    public FlightInterface getFlightById(int id, String airline) throws SQLException {
+        FlightKey key = locate(id, airline);
+        FlightInterface flight = key == null ? null : database.selectFlight(key);
         if (flight == null) {
             throw new NoSuchElementException("Flight not found: " + id);
         }
         return flight;
     }
 
-    public FlightInterface decreaseSeatsAvailable(int id) throws SQLException {
-        System.out.println("Reached decreaseSeatsAvailable in FlightService");
-        String airline = this.getFlightById(id).getAirline().toLowerCase() + "s";
-        AirlineTable table = switch (airline) {
-            case "deltas" -> AirlineTable.DELTAS;
-            case "southwests" -> AirlineTable.SOUTHWESTS;
-            default -> throw new IllegalArgumentException("Invalid airline: " + airline);
-        };
-        if (!database.decreaseSeatsAvailable(table, id)) {
-            System.out.println("No seats available for flight: " + id);
-            throw new NoSeatsAvailableException(id);
+    public FlightInterface decreaseSeatsAvailable(int id, String airline) throws SQLException {
+        FlightKey key = locate(id, airline);
+        if (key == null) {
+            throw new NoSuchElementException("Flight not found: " + id);
         }
-        FlightInterface flight = database.selectFlightById(List.of(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS), id);
+        FlightInterface flight = database.reserveSeat(key);
         if (flight == null) {
-            throw new NoSuchElementException("Flight not found: " + id);
+            log.debug("No seats available for flight {}", id);
+            throw new NoSeatsAvailableException(id);
         }
+        searchCache.invalidate(flight);
         return flight;
     }
+
+    // Apply a batch of schedule updates and deletes in one transaction, with an outcome per item.
+    // Items are maps of flight fields plus "id"; "airline" is optional, as for a single update.
+    public ChangeReport applyChanges(List<Map<String, Object>> updates, List<Map<String, Object>> deletes)
+            throws SQLException {
+        long started = System.nanoTime();
+        updates = updates == null ? List.of() : updates;
+        deletes = deletes == null ? List.of() : deletes;
+        if (updates.size() + deletes.size() > changeMaxItems) {
+            throw new IllegalArgumentException("At most " + changeMaxItems + " changes per batch: "
+                    + (updates.size() + deletes.size()));
+        }
+
+        ChangeOutcome[] updateResults = new ChangeOutcome[updates.size()];
+        ChangeOutcome[] deleteResults = new ChangeOutcome[deletes.size()];
+        List<FlightUpdate> validUpdates = new ArrayList<>();
+        List<Integer> updateItems = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            Map<String, String> fields = changeFields(updates.get(i));
+            FlightKey key = null;
+            try {
+                key = changeKey(fields);
+                if (key == null) {
+                    updateResults[i] = notFound(fields);
+                    continue;
+                }
+                fields.put("airline", key.table().getTableName());
+                ScheduleRow row = ScheduleRow.parse(fields);
+                validUpdates.add(new FlightUpdate(key, row.params().subList(0, 5)));
+                updateItems.add(i);
+            } catch (IllegalArgumentException e) {
+                updateResults[i] = key != null
+                        ? ChangeOutcome.of(key, ChangeOutcome.Status.REJECTED, e.getMessage())
+                        : rejected(fields, e);
+            }
+        }
+        List<FlightKey> validDeletes = new ArrayList<>();
+        List<Integer> deleteItems = new ArrayList<>();
+        for (int i = 0; i < deletes.size(); i++) {
+            Map<String, String> fields = changeFields(deletes.get(i));
+            try {
+                FlightKey key = changeKey(fields);
+                if (key == null) {
+                    deleteResults[i] = notFound(fields);
+                    continue;
+                }
+                validDeletes.add(key);
+                deleteItems.add(i);
+            } catch (IllegalArgumentException e) {
+                deleteResults[i] = rejected(fields, e);
+            }
+        }
+
+        try {
+            List<ChangeOutcome> applied = database.applyChanges(validUpdates, validDeletes);
+            for (int i = 0; i < updateItems.size(); i++) {
+                updateResults[updateItems.get(i)] = applied.get(i);
+            }
+            for (int i = 0; i < deleteItems.size(); i++) {
+                deleteResults[deleteItems.get(i)] = applied.get(updateItems.size() + i);
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Schedule change batch of {} items rolled back: {}",
+                    validUpdates.size() + validDeletes.size(), e.getMessage());
+            String message = "Batch rolled back: " + e.getMessage();
+            for (int i = 0; i < updateItems.size(); i++) {
+                updateResults[updateItems.get(i)] = ChangeOutcome.of(validUpdates.get(i).key(),
+                        ChangeOutcome.Status.ROLLED_BACK, message);
+            }
+            for (int i = 0; i < deleteItems.size(); i++) {
+                deleteResults[deleteItems.get(i)] = ChangeOutcome.of(validDeletes.get(i),
+                        ChangeOutcome.Status.ROLLED_BACK, message);
+            }
+        }
+
+        Map<ChangeOutcome.Status, Integer> counts = new EnumMap<>(ChangeOutcome.Status.class);
+        for (ChangeOutcome outcome : updateResults) counts.merge(outcome.status(), 1, Integer::sum);
+        for (ChangeOutcome outcome : deleteResults) counts.merge(outcome.status(), 1, Integer::sum);
+        int updated = counts.getOrDefault(ChangeOutcome.Status.UPDATED, 0);
+        int deleted = counts.getOrDefault(ChangeOutcome.Status.DELETED, 0);
+        if (updated + deleted > 0) {
+            searchCache.invalidateAll();
+        }
+        return new ChangeReport(updated, deleted,
+                counts.getOrDefault(ChangeOutcome.Status.NOT_FOUND, 0),
+                counts.getOrDefault(ChangeOutcome.Status.REJECTED, 0),
+                counts.getOrDefault(ChangeOutcome.Status.ROLLED_BACK, 0),
+                Arrays.asList(updateResults), Arrays.asList(deleteResults),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static Map<String, String> changeFields(Map<String, Object> item) {
+        Map<String, String> fields = new HashMap<>();
+        if (item != null) {
+            item.forEach((k, v) -> {
+                if (v != null) fields.put(ScheduleRow.field(k), v.toString());
+            });
+        }
+        return fields;
+    }
+
+    private FlightKey changeKey(Map<String, String> fields) throws SQLException {
+        String id = fields.get("id");
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Missing id");
+        }
+        try {
+            return locate(Integer.parseInt(id.trim()), fields.get("airline"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("id is not a number: " + id);
+        }
+    }
+
+    private static ChangeOutcome notFound(Map<String, String> fields) {
+        return new ChangeOutcome(Integer.valueOf(fields.get("id").trim()), fields.get("airline"),
+                ChangeOutcome.Status.NOT_FOUND, "Flight not found");
+    }
+
+    private static ChangeOutcome rejected(Map<String, String> fields, IllegalArgumentException e) {
+        Integer id = null;
+        try {
+            id = Integer.valueOf(fields.getOrDefault("id", "").trim());
+        } catch (NumberFormatException ignored) {
+            // reported through the message
+        }
+        return new ChangeOutcome(id, fields.get("airline"), ChangeOutcome.Status.REJECTED, e.getMessage());
+    }
+
+    // The named airline's table, or the one the id directory finds; null if no table has the id
+    private FlightKey locate(int id, String airline) throws SQLException {
+        if (airline != null && !airline.isBlank()) {
+            return FlightKey.of(airline, id);
+        }
+        return database.locateFlight(id);
+    }
+
+    // Reserve one seat on every leg of an itinerary, or on none of them
+    public List<FlightInterface> reserveItinerary(List<FlightKey> legs) throws SQLException {
+        List<FlightKey> resolved = resolveLegs(legs);
+        database.reserveItinerary(resolved);
+
+        List<FlightInterface> reserved = new ArrayList<>();
+        for (FlightKey leg : resolved) {
+            FlightInterface flight = database.selectFlight(leg);
+            searchCache.invalidate(flight);
+            reserved.add(flight);
+        }
+        return reserved;
+    }
+
+    private List<FlightKey> resolveLegs(List<FlightKey> legs) throws SQLException {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("Itinerary has no legs");
+        }
+        List<FlightKey> resolved = new ArrayList<>();
+        for (FlightKey leg : legs) {
+            FlightKey key = leg.table() != null ? leg : database.locateFlight(leg.id());
+            if (key == null) {
+                throw new NoSuchElementException("Flight not found: " + leg.id());
+            }
+            resolved.add(key);
+        }
+        return resolved;
+    }
+
+    // Hold one seat on every leg until the hold is confirmed, released or expires
+    public SeatHold createHold(List<FlightKey> legs, Long ttlSeconds) throws SQLException {
+        long ttl = ttlSeconds == null ? holdTtlSeconds : ttlSeconds;
+        if (ttl < 1 || ttl > holdMaxTtlSeconds) {
+            throw new IllegalArgumentException("ttlSeconds must be between 1 and " + holdMaxTtlSeconds + ": " + ttl);
+        }
+        SeatHold hold = seatHolds.create(resolveLegs(legs), Duration.ofSeconds(ttl));
+        invalidateSeats(hold.legs());
+        return hold;
+    }
+
+    public SeatHold confirmHold(String holdId) throws SQLException {
+        return seatHolds.confirm(holdId);
+    }
+
+    public SeatHold releaseHold(String holdId) throws SQLException {
+        return seatHolds.release(holdId);
+    }
+
+    private void invalidateSeats(List<FlightKey> legs) {
+        for (FlightKey leg : legs) {
+            try {
+                searchCache.invalidate(database.selectFlight(leg));
+            } catch (SQLException e) {
+                log.warn("Failed to look up flight {}: {}", leg.id(), e.getMessage());
+                searchCache.invalidateAll();
+            }
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package backend.config;
+
+import backend.classes.metrics.SearchMetrics;
+import backend.classes.metrics.TimedJsonMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public SearchMetrics searchMetrics(MeterRegistry registry) {
+        return new SearchMetrics(registry);
+    }
+
+    // Replaces Boot's default JSON converter so response serialization is timed
+    @Bean
+    public TimedJsonMessageConverter timedJsonMessageConverter(ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+        return new TimedJsonMessageConverter(objectMapper, searchMetrics);
+    }
+}
@@ -0,0 +1,16 @@
+package backend.config;
+
+import backend.classes.metrics.SearchMetrics;
+import backend.classes.serialization.SearchResponseConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SerializationConfig {
+    // Search pages are written with a JsonGenerator rather than by Jackson's bean serializer
+    @Bean
+    public SearchResponseConverter searchResponseConverter(ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+        return new SearchResponseConverter(objectMapper, searchMetrics);
+    }
+}
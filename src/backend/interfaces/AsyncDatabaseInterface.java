@@ -0,0 +1,27 @@
+package backend.interfaces;
+
+import backend.classes.records.RoundTripPage;
+import enums.AirlineTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Searches that return at once and complete later. Results and their order are the same as the
+ * matching DatabaseInterface methods; failures complete the future with the SQLException or the
+ * runtime exception the blocking call would have thrown.
+ */
+public interface AsyncDatabaseInterface {
+
+    CompletableFuture<ArrayList<FlightInterface>> selectFlightsAsync(List<AirlineTable> tables,
+                                                                     String sortBy,
+                                                                     List<Object> params,
+                                                                     int limit);
+
+    // The outbound and return legs are searched at the same time.
+    CompletableFuture<RoundTripPage> selectRoundTripAsync(List<AirlineTable> tables,
+                                                          String sortBy,
+                                                          List<Object> params,
+                                                          int limit);
+}
@@ -1,10 +1,19 @@
 package backend.interfaces;
 
+import backend.classes.holds.SeatHold;
+import backend.classes.records.ChangeOutcome;
+import backend.classes.records.FlightKey;
+import backend.classes.records.FlightPage;
+import backend.classes.records.FlightUpdate;
+import backend.classes.records.RoundTripPage;
 import enums.AirlineTable;
 
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 public interface DatabaseInterface extends AutoCloseable {
 
@@ -12,10 +21,72 @@ public interface DatabaseInterface extends AutoCloseable {
                                              String sortBy,
                                              List<Object> params) throws SQLException;
 
+    ArrayList<FlightInterface> selectFlights(List<AirlineTable> tables,
+                                             String sortBy,
+                                             List<Object> params,
+                                             int limit) throws SQLException;
+
+    FlightPage selectFlightPage(List<AirlineTable> tables,
+                                String sortBy,
+                                List<Object> params,
+                                String cursor,
+                                int pageSize) throws SQLException;
+
+    // Same results and order as selectFlights, handed to sink one at a time as the search finds
+    // them; stops once sink returns false or limit flights have been sent.
+    void streamFlights(List<AirlineTable> tables,
+                       String sortBy,
+                       List<Object> params,
+                       int limit,
+                       Predicate<FlightInterface> sink) throws SQLException;
+
     int insertFlight(AirlineTable table, List<Object> params) throws SQLException;
 
+    // Rows are [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, SeatsAvailable],
+    // SeatsAvailable null for the column default. All tables are written in one transaction;
+    // returns the new ids per table in row order.
+    Map<AirlineTable, List<Integer>> insertFlights(Map<AirlineTable, List<List<Object>>> rowsByTable) throws SQLException;
+
     ArrayList<Integer> updateTables(List<AirlineTable> tables, List<Object> params) throws SQLException;
+
+    // Table that holds flight id, null if none does. Ids are only unique per table; when several
+    // tables use the id, the first in AirlineTable order wins.
+    FlightKey locateFlight(int id) throws SQLException;
+
+    // Lookups, updates and deletes by key touch only the key's table; null or false if the row is gone.
+    FlightInterface selectFlight(FlightKey key) throws SQLException;
+
+    // params are [DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber]
+    boolean updateFlight(FlightKey key, List<Object> params) throws SQLException;
+
+    boolean deleteFlight(FlightKey key) throws SQLException;
+
+    // Applies every update, then every delete, grouped by table with JDBC batching in one
+    // transaction. Returns an outcome per update then per delete, in the order given; a missing
+    // row is NOT_FOUND, while a SQL error rolls everything back and is thrown.
+    List<ChangeOutcome> applyChanges(List<FlightUpdate> updates, List<FlightKey> deletes) throws SQLException;
+
     boolean decreaseSeatsAvailable(AirlineTable table, int flightId) throws SQLException;
+    boolean increaseSeatsAvailable(AirlineTable table, int flightId, int seats) throws SQLException;
+
+    // Takes one seat like decreaseSeatsAvailable and returns the flight as it stands after,
+    // or null if it had none left.
+    FlightInterface reserveSeat(FlightKey key) throws SQLException;
+
+    // Takes one seat on every leg or none: NoSeatsAvailableException if a leg is full,
+    // NoSuchElementException if one does not exist.
+    void reserveItinerary(List<FlightKey> legs) throws SQLException;
+
+    // Like reserveItinerary, and records the hold in the same transaction so it outlives a restart.
+    void holdItinerary(SeatHold hold) throws SQLException;
+
+    // Each removes the hold and returns it, or null if it was already confirmed or released;
+    // confirming keeps the seats, releasing gives them back in the same transaction.
+    SeatHold confirmHold(String holdId) throws SQLException;
+    SeatHold releaseHold(String holdId) throws SQLException;
+
+    // Every hold not yet confirmed or released, expired or not.
+    List<SeatHold> selectHolds() throws SQLException;
 
         @Override
     void close() throws SQLException;
@@ -24,8 +95,18 @@ public interface DatabaseInterface extends AutoCloseable {
 
     FlightInterface getFlightWithLatestDeparture(List<AirlineTable> tables) throws SQLException;
 
+    Timestamp getEarliestDepartureTime(List<AirlineTable> tables) throws SQLException;
+
+    Timestamp getLatestDepartureTime(List<AirlineTable> tables) throws SQLException;
+
     FlightInterface selectFlightById(List<AirlineTable> tables, int id) throws SQLException;
 
     ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params) throws SQLException;
 
+    ArrayList<FlightInterface> selectRoundTrip(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) throws SQLException;
+
+    // The best limit round trips and how many were found. Connecting legs are searched only as far
+    // as the page needs, so the total is exact only when totalExact says so.
+    RoundTripPage selectRoundTripPage(List<AirlineTable> tables, String sortBy, List<Object> params, int limit) throws SQLException;
+
 }
@@ -12,6 +12,7 @@ public interface FlightInterface {
     String getAirline();
     int getSeatsFree();
     void reserved();
+    void released();
     FlightInterface getNextFlight();
     FlightInterface getReturnTrip();
 }
@@ -0,0 +1,24 @@
+package backend.interfaces;
+
+import backend.classes.database.FlightGraph;
+import backend.classes.search.RouteQuery;
+import backend.classes.search.RouteSearchResult;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+public interface RouteSearchEngine {
+    RouteSearchResult search(FlightGraph graph, RouteQuery query);
+
+    /**
+     * Hands each itinerary to {@code sink} in sort order; the search stops as soon as the sink
+     * returns false. Engines that can only rank a finished result set fall back to replaying it.
+     */
+    default RouteSearchResult search(FlightGraph graph, RouteQuery query, Predicate<List<FlightInterface>> sink) {
+        RouteSearchResult result = search(graph, query);
+        for (List<FlightInterface> legs : result.itineraries()) {
+            if (!sink.test(legs)) break;
+        }
+        return result;
+    }
+}
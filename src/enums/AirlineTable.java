@@ -13,5 +13,18 @@ public enum AirlineTable {
     public String getTableName() {
         return this.tableName;
     }
+
+    /** Table for an airline as written in requests: the display name ("Delta"), table name or constant. */
+    public static AirlineTable fromAirline(String airline) {
+        if (airline != null) {
+            String name = airline.trim().toLowerCase();
+            for (AirlineTable table : values()) {
+                if (table.tableName.equals(name) || table.tableName.equals(name + "s")) {
+                    return table;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid airline: " + airline);
+    }
 }
 
@@ -0,0 +1,80 @@
+package main;
+
+import backend.classes.database.ConnectionPool;
+import backend.classes.database.Database;
+import backend.classes.imports.ImportReport;
+import backend.classes.imports.RowError;
+import backend.classes.imports.ScheduleImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Bulk loads a schedule file straight into the database, without starting the server.
+ *
+ * Usage: ImportSchedule file [--format csv|ndjson] [--chunk-size n] [--parallelism n]
+ *
+ * The format defaults to the file extension. Connection settings come from application.properties
+ * and can be overridden with -Ddatabase.url=..., -Ddatabase.user=..., -Ddatabase.password=...
+ * Rows are only written, never read back; a running server sees them after POST /flights/reload.
+ */
+public class ImportSchedule {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: ImportSchedule file [--format csv|ndjson] [--chunk-size n] [--parallelism n]");
+            System.exit(2);
+        }
+
+        Properties settings = loadSettings();
+        Path file = Path.of(args[0]);
+        String format = file.getFileName().toString().endsWith(".csv") ? "csv" : "ndjson";
+        int chunkSize = Integer.parseInt(settings.getProperty("import.chunk-size", "500"));
+        int parallelism = Integer.parseInt(settings.getProperty("import.parallelism", "4"));
+        int maxErrors = Integer.parseInt(settings.getProperty("import.max-errors", "1000"));
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format" -> format = args[++i];
+                case "--chunk-size" -> chunkSize = Integer.parseInt(args[++i]);
+                case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ConnectionPool pool = new ConnectionPool(
+                settings.getProperty("database.url"),
+                settings.getProperty("database.user"),
+                settings.getProperty("database.password"));
+        try (Database database = new Database(pool);
+             ScheduleImporter importer = new ScheduleImporter(database, chunkSize, parallelism, maxErrors);
+             InputStream in = Files.newInputStream(file)) {
+            ImportReport report = importer.importFrom(in, ScheduleImporter.Format.of(format));
+            for (RowError error : report.errors()) {
+                System.out.println("line " + error.line() + ": " + error.message());
+            }
+            if (report.errorsTruncated()) {
+                System.out.println("... more errors not shown");
+            }
+            System.out.printf("Read %d rows, imported %d, rejected %d in %d ms (%.0f rows/s)%n",
+                    report.rowsRead(), report.rowsImported(), report.rowsRejected(),
+                    report.elapsedMillis(), report.rowsPerSecond());
+        }
+    }
+
+    private static Properties loadSettings() throws IOException {
+        Properties settings = new Properties();
+        try (InputStream in = ImportSchedule.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                settings.load(in);
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("database.") || name.startsWith("import.")) {
+                settings.setProperty(name, System.getProperty(name));
+            }
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,196 @@
+package backend.classes.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCoalescerTest {
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+    private SearchCoalescer coalescer;
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        callers.shutdownNow();
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    private record Key(String search, int window, long generation) {
+    }
+
+    /** A search that holds until released (or interrupted) and then returns rows 0 to window - 1. */
+    private SearchCoalescer.Search<List<Integer>> blockedSearch(int window) {
+        return () -> {
+            runs.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw new SQLException("search interrupted", e);
+            }
+            return IntStream.range(0, window).boxed().toList();
+        };
+    }
+
+    private Future<List<Integer>> join(Key key, int rows) {
+        return callers.submit(() -> coalescer.join(key, blockedSearch(key.window())).subList(0, rows));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void identicalSearchesShareOneRunAndLeaveNothingBehind() throws Exception {
+        coalescer = new SearchCoalescer(0);
+        Key key = new Key("BOS-DEN", 8, 0);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(join(key, 8));
+        }
+        await(() -> coalescer.getStats().joined() == 4);
+        release.countDown();
+
+        for (Future<List<Integer>> result : results) {
+            assertEquals(IntStream.range(0, 8).boxed().toList(), result.get());
+        }
+        assertEquals(1, runs.get());
+        SearchCoalescer.Stats stats = coalescer.getStats();
+        assertEquals(1, stats.started());
+        assertEquals(0.8, stats.hitRate(), 1e-9);
+        await(() -> coalescer.getStats().inFlight() == 0);
+
+        // Finished searches are not kept: the next caller runs again
+        assertEquals(List.of(0), coalescer.join(key, blockedSearch(1)));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void searchIsCancelledOnlyOnceItsLastCallerLeaves() throws Exception {
+        coalescer = new SearchCoalescer(0);
+        Key key = new Key("BOS-DEN", 4, 0);
+        Thread[] threads = new Thread[2];
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    coalescer.join(key, blockedSearch(4));
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        await(() -> coalescer.getStats().joined() == 1);
+
+        threads[0].interrupt();
+        threads[0].join(5_000);
+        assertEquals(0, coalescer.getStats().cancelled());
+        assertEquals(0, interrupted.get());
+        assertEquals(1, coalescer.getStats().inFlight());
+
+        threads[1].interrupt();
+        threads[1].join(5_000);
+        await(() -> interrupted.get() == 1);
+        assertEquals(1, coalescer.getStats().cancelled());
+        assertEquals(2, failures.size());
+        await(() -> coalescer.getStats().inFlight() == 0);
+
+        // A cancelled search is never joined; the next caller starts afresh
+        release.countDown();
+        assertEquals(List.of(0, 1, 2, 3), coalescer.join(key, blockedSearch(4)));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void eachCallerTimesOutOnItsOwnWhileTheSearchGoesOn() throws Exception {
+        coalescer = new SearchCoalescer(400);
+        Key key = new Key("BOS-DEN", 2, 0);
+        Future<List<Integer>> early = join(key, 2);
+        await(() -> runs.get() == 1);
+        Thread.sleep(200);
+        Future<List<Integer>> late = join(key, 2);
+        await(() -> coalescer.getStats().joined() == 1);
+
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> early.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLTimeoutException.class, timedOut.getCause());
+        assertEquals(1, coalescer.getStats().timeouts());
+        assertFalse(late.isDone());
+
+        release.countDown();
+        assertEquals(List.of(0, 1), late.get(5, TimeUnit.SECONDS));
+        assertEquals(0, coalescer.getStats().cancelled());
+        assertEquals(0, interrupted.get());
+    }
+
+    @Test
+    void aNewGenerationStartsItsOwnSearch() throws Exception {
+        coalescer = new SearchCoalescer(0);
+        Future<List<Integer>> stale = join(new Key("BOS-DEN", 2, 0), 2);
+        await(() -> runs.get() == 1);
+        // A write between the two requests moved the cache generation on
+        Future<List<Integer>> fresh = join(new Key("BOS-DEN", 2, 1), 2);
+        await(() -> runs.get() == 2);
+        assertEquals(0, coalescer.getStats().joined());
+        assertEquals(2, coalescer.getStats().inFlight());
+
+        release.countDown();
+        assertEquals(List.of(0, 1), stale.get());
+        assertEquals(List.of(0, 1), fresh.get());
+    }
+
+    @Test
+    void windowsRoundUpToPowersOfTwo() {
+        assertEquals(1, SearchCoalescer.window(0));
+        assertEquals(1, SearchCoalescer.window(1));
+        assertEquals(2, SearchCoalescer.window(2));
+        assertEquals(4, SearchCoalescer.window(3));
+        assertEquals(8, SearchCoalescer.window(5));
+        assertEquals(8, SearchCoalescer.window(8));
+        assertEquals(16, SearchCoalescer.window(9));
+        assertEquals(1 << 30, SearchCoalescer.window((1 << 30) - 1));
+        // No power of two above it fits in an int
+        assertEquals(Integer.MAX_VALUE, SearchCoalescer.window(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void pageSizesInOneWindowShareASearchAndSliceTheirOwnPage() throws Exception {
+        coalescer = new SearchCoalescer(0);
+        int window = SearchCoalescer.window(5);
+        assertEquals(window, SearchCoalescer.window(7));
+        Future<List<Integer>> five = join(new Key("BOS-DEN", window, 0), 5);
+        Future<List<Integer>> seven = join(new Key("BOS-DEN", SearchCoalescer.window(7), 0), 7);
+        await(() -> coalescer.getStats().joined() == 1);
+        release.countDown();
+
+        assertEquals(List.of(0, 1, 2, 3, 4), five.get());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), seven.get());
+        assertEquals(1, runs.get());
+    }
+}
@@ -0,0 +1,62 @@
+package backend.classes.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchKeyTest {
+    private static final LocalDate JAN_1 = LocalDate.of(2023, 1, 1);
+    private static final LocalDate JAN_5 = LocalDate.of(2023, 1, 5);
+    private static final LocalDate JAN_9 = LocalDate.of(2023, 1, 9);
+
+    private static SearchKey oneWay(String from, String to) {
+        return SearchKey.oneWay(from, to, "2023-01-01T00:00:00", "2023-01-02T23:59:59", 0, "", "departdatetime");
+    }
+
+    private static SearchKey roundTrip() {
+        return SearchKey.roundTrip("BOS", "DEN", "2023-01-01T00:00:00", "2023-01-02T23:59:59", 1, "",
+                "2023-01-05T00:00:00", "2023-01-06T23:59:59", "departdatetime", 0);
+    }
+
+    @Test
+    void airportsMatchAsCaseInsensitiveSubstrings() {
+        assertTrue(oneWay("BOS", "DEN").covers("Boston (BOS)", "Denver (DEN)", JAN_1, false));
+        assertTrue(oneWay(" boston ", "denver").covers("Boston (BOS)", "Denver (DEN)", JAN_1, false));
+        assertTrue(oneWay("", "DEN").covers("Austin (AUS)", "Denver (DEN)", JAN_1, false));
+        assertFalse(oneWay("BOS", "DEN").covers("Boston (BOS)", "Seattle (SEA)", JAN_1, false));
+        assertFalse(oneWay("BOS", "DEN").covers("Denver (DEN)", "Boston (BOS)", JAN_1, false));
+    }
+
+    @Test
+    void onlyDatesInsideTheWindowAreCovered() {
+        SearchKey key = oneWay("BOS", "DEN");
+        assertTrue(key.covers("Boston (BOS)", "Denver (DEN)", JAN_1.plusDays(1), false));
+        assertFalse(key.covers("Boston (BOS)", "Denver (DEN)", JAN_1.minusDays(1), false));
+        assertFalse(key.covers("Boston (BOS)", "Denver (DEN)", JAN_1.plusDays(2), false));
+
+        SearchKey openEnded = SearchKey.oneWay("BOS", "DEN", "", "", 0, null, null);
+        assertTrue(openEnded.covers("Boston (BOS)", "Denver (DEN)", JAN_9, false));
+    }
+
+    @Test
+    void returnLegsAreCoveredReversedInTheReturnWindow() {
+        SearchKey key = roundTrip();
+        assertTrue(key.covers("Boston (BOS)", "Denver (DEN)", JAN_1, false));
+        assertTrue(key.covers("Denver (DEN)", "Boston (BOS)", JAN_5, false));
+        // Each direction only in its own window
+        assertFalse(key.covers("Boston (BOS)", "Denver (DEN)", JAN_5, false));
+        assertFalse(key.covers("Denver (DEN)", "Boston (BOS)", JAN_9, false));
+        assertFalse(key.covers("Denver (DEN)", "Boston (BOS)", JAN_1.plusDays(2), false));
+    }
+
+    @Test
+    void connectingResultsAreCoveredByDateAlone() {
+        SearchKey key = roundTrip();
+        assertTrue(key.covers("Chicago (ORD)", "Miami (MIA)", JAN_1, true));
+        assertTrue(key.covers("Chicago (ORD)", "Miami (MIA)", JAN_5, true));
+        assertFalse(key.covers("Chicago (ORD)", "Miami (MIA)", JAN_9, true));
+        assertFalse(oneWay("BOS", "DEN").covers("Chicago (ORD)", "Miami (MIA)", JAN_5, true));
+    }
+}
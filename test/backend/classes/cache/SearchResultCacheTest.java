@@ -0,0 +1,136 @@
+package backend.classes.cache;
+
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+    private static final SearchKey BOS_DEN = SearchKey.oneWay("BOS", "DEN",
+            "2023-01-01T00:00:00", "2023-01-01T23:59:59", 1, "", "departdatetime");
+    private static final SearchKey BOS_SEA = SearchKey.oneWay("BOS", "SEA",
+            "2023-01-01T00:00:00", "2023-01-01T23:59:59", 1, "", "departdatetime");
+    private static final SearchKey DEN_BOS_RETURN = SearchKey.roundTrip("DEN", "BOS",
+            "2023-01-01T00:00:00", "2023-01-01T23:59:59", 0, "",
+            "2023-01-05T00:00:00", "2023-01-05T23:59:59", "departdatetime", 0);
+
+    private static Flight leg(int id, String from, String to, String day) {
+        return new Flight(id, "DL" + id, from, to, Timestamp.valueOf(day + " 06:00:00"),
+                Timestamp.valueOf(day + " 08:00:00"), AirlineTable.DELTAS.getTableName(), 10);
+    }
+
+    private static Map<String, Object> page(FlightInterface... flights) {
+        return Map.of("flights", new ArrayList<>(List.of(flights)), "hasMore", false, "total", flights.length);
+    }
+
+    private static Map<String, Object> direct() {
+        return page(leg(1, "Boston (BOS)", "Denver (DEN)", "2023-01-01"));
+    }
+
+    private static Map<String, Object> connecting() {
+        return page(new Flight(leg(2, "Boston (BOS)", "Denver (DEN)", "2023-01-01"),
+                leg(3, "Denver (DEN)", "Seattle (SEA)", "2023-01-01")));
+    }
+
+    private static Map<String, Object> roundTrip() {
+        return page(new Flight(leg(4, "Denver (DEN)", "Boston (BOS)", "2023-01-01"), null,
+                leg(5, "Boston (BOS)", "Denver (DEN)", "2023-01-05")));
+    }
+
+    private static SearchResultCache filled() {
+        SearchResultCache cache = new SearchResultCache(100, Long.MAX_VALUE);
+        cache.put(BOS_DEN, "page:1", 10, direct(), cache.generation());
+        cache.put(BOS_SEA, "page:1", 10, connecting(), cache.generation());
+        cache.put(DEN_BOS_RETURN, "page:1", 10, roundTrip(), cache.generation());
+        return cache;
+    }
+
+    private static boolean cached(SearchResultCache cache, SearchKey key) {
+        return cache.get(key, "page:1", 10) != null;
+    }
+
+    @Test
+    void writesDropOnlyTheSearchesTheyCouldChange() {
+        SearchResultCache cache = filled();
+        cache.invalidate("Boston (BOS)", "Austin (AUS)", Timestamp.valueOf("2023-01-01 09:00:00"));
+        // Only the connecting search could now route through Austin
+        assertTrue(cached(cache, BOS_DEN));
+        assertFalse(cached(cache, BOS_SEA));
+        assertTrue(cached(cache, DEN_BOS_RETURN));
+        assertEquals(1, cache.getStats().invalidations());
+
+        cache.invalidate("Boston (BOS)", "Denver (DEN)", Timestamp.valueOf("2023-01-03 09:00:00"));
+        assertEquals(2, cache.getStats().entries());
+    }
+
+    @Test
+    void returnLegWritesMatchTheReversedAirports() {
+        SearchResultCache cache = filled();
+        // A BOS-DEN flight in the return window is a return leg of DEN-BOS, not an outbound BOS-DEN
+        cache.invalidate("boston (bos)", "denver (den)", Timestamp.valueOf("2023-01-05 12:00:00"));
+        assertTrue(cached(cache, BOS_DEN));
+        assertTrue(cached(cache, BOS_SEA));
+        assertFalse(cached(cache, DEN_BOS_RETURN));
+    }
+
+    @Test
+    void connectingResultsAreDroppedByDateAlone() {
+        SearchResultCache cache = filled();
+        cache.invalidate("Chicago (ORD)", "Miami (MIA)", Timestamp.valueOf("2023-01-02 09:00:00"));
+        assertEquals(3, cache.getStats().entries());
+
+        cache.invalidate("Chicago (ORD)", "Miami (MIA)", Timestamp.valueOf("2023-01-01 23:00:00"));
+        assertTrue(cached(cache, BOS_DEN));
+        assertFalse(cached(cache, BOS_SEA));
+        assertTrue(cached(cache, DEN_BOS_RETURN));
+
+        // No departure time to match on, so everything goes
+        cache.invalidate("Chicago (ORD)", "Miami (MIA)", null);
+        assertEquals(0, cache.getStats().entries());
+        assertEquals(0, cache.getStats().bytes());
+    }
+
+    @Test
+    void resultsComputedBeforeAWriteAreNotCached() {
+        SearchResultCache cache = new SearchResultCache(100, Long.MAX_VALUE);
+        long generation = cache.generation();
+        cache.invalidate("Chicago (ORD)", "Miami (MIA)", Timestamp.valueOf("2023-03-01 09:00:00"));
+        cache.put(BOS_DEN, "page:1", 10, direct(), generation);
+        assertFalse(cached(cache, BOS_DEN));
+    }
+
+    @Test
+    void leastRecentlyUsedPagesAreEvictedPastEitherBound() {
+        SearchResultCache byCount = new SearchResultCache(2, Long.MAX_VALUE);
+        byCount.put(BOS_DEN, "page:1", 10, direct(), 0);
+        byCount.put(BOS_SEA, "page:1", 10, connecting(), 0);
+        assertTrue(cached(byCount, BOS_DEN));
+        byCount.put(DEN_BOS_RETURN, "page:1", 10, roundTrip(), 0);
+        assertTrue(cached(byCount, BOS_DEN));
+        assertFalse(cached(byCount, BOS_SEA));
+        assertEquals(1, byCount.getStats().evictions());
+
+        long directBytes = SearchResultCache.ENTRY_OVERHEAD_BYTES + SearchResultCache.LEG_BYTES;
+        long twoLegBytes = SearchResultCache.ENTRY_OVERHEAD_BYTES + 2 * SearchResultCache.LEG_BYTES;
+        SearchResultCache bySize = new SearchResultCache(100, 2 * twoLegBytes);
+        bySize.put(BOS_DEN, "page:1", 10, direct(), 0);
+        bySize.put(BOS_SEA, "page:1", 10, connecting(), 0);
+        assertEquals(directBytes + twoLegBytes, bySize.getStats().bytes());
+        bySize.put(DEN_BOS_RETURN, "page:1", 10, roundTrip(), 0);
+        assertFalse(cached(bySize, BOS_DEN));
+        assertTrue(cached(bySize, BOS_SEA));
+        assertEquals(2 * twoLegBytes, bySize.getStats().bytes());
+
+        // A page bigger than the whole cache is not kept at all
+        SearchResultCache tiny = new SearchResultCache(100, directBytes - 1);
+        tiny.put(BOS_DEN, "page:1", 10, direct(), 0);
+        assertEquals(0, tiny.getStats().entries());
+    }
+}
@@ -0,0 +1,38 @@
+package backend.classes.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    @Test
+    void statementCacheIsOnlyCountedWhereTheDriverHasOne() throws SQLException {
+        String url = H2Databases.newUrl();
+        try (ConnectionPool h2 = H2Databases.newPool(url)) {
+            assertFalse(h2.isCachingStatements());
+            for (int i = 0; i < 3; i++) {
+                try (Connection connection = h2.getConnection();
+                     PreparedStatement stmt = connection.prepareStatement("SELECT id FROM deltas")) {
+                    stmt.executeQuery().close();
+                }
+            }
+            assertEquals(0, h2.getStatementCacheHits());
+            assertEquals(0, h2.getStatementCacheMisses());
+        } finally {
+            H2Databases.drop(url);
+        }
+
+        try (ConnectionPool mysql = new ConnectionPool("jdbc:mysql://localhost/none", "u", "p")) {
+            assertTrue(mysql.isCachingStatements());
+        }
+        try (ConnectionPool uncached = new ConnectionPool("jdbc:mysql://localhost/none", "u", "p",
+                1, 1_000, 1, 0, 0)) {
+            assertFalse(uncached.isCachingStatements());
+        }
+    }
+}
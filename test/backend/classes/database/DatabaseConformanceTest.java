@@ -0,0 +1,544 @@
+package backend.classes.database;
+
+import backend.classes.holds.SeatHold;
+import backend.classes.records.ChangeOutcome;
+import backend.classes.records.FlightKey;
+import backend.classes.records.FlightPage;
+import backend.classes.records.FlightUpdate;
+import backend.classes.records.RoundTripPage;
+import backend.classes.search.SearchCursor;
+import backend.exceptions.NoSeatsAvailableException;
+import backend.interfaces.DatabaseInterface;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link DatabaseInterface} must share, so FlightService gets the same answers
+ * whichever backs it. Each subclass supplies an empty database; the tests seed it through the
+ * interface itself.
+ */
+abstract class DatabaseConformanceTest {
+    static final List<AirlineTable> ALL = List.of(AirlineTable.DELTAS, AirlineTable.SOUTHWESTS);
+    static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    protected DatabaseInterface db;
+
+    /** A new database with empty flight tables. */
+    abstract DatabaseInterface newDatabase() throws SQLException;
+
+    @BeforeEach
+    void open() throws SQLException {
+        db = newDatabase();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        db.close();
+    }
+
+    /** Seeded flight, as the test expects to find it. */
+    record Seeded(AirlineTable table, int id, LocalDateTime depart, LocalDateTime arrive) {
+        long travelMinutes() {
+            return Duration.between(depart, arrive).toMinutes();
+        }
+    }
+
+    static Timestamp at(int hour, int minute) {
+        return Timestamp.valueOf(DAY.plusHours(hour).plusMinutes(minute));
+    }
+
+    static List<Object> row(Timestamp depart, Timestamp arrive, String from, String to, String number, Integer seats) {
+        return Arrays.asList(depart, arrive, from, to, number, seats);
+    }
+
+    static List<Object> search(String from, String to, int maxStops) {
+        return List.of(from, to, Timestamp.valueOf(DAY), Timestamp.valueOf(DAY.plusDays(1).minusSeconds(1)), maxStops, "any");
+    }
+
+    /** Inserts rows into both tables and returns what was stored, in insertion order. */
+    List<Seeded> seed(Map<AirlineTable, List<List<Object>>> rows) throws SQLException {
+        Map<AirlineTable, List<Integer>> ids = db.insertFlights(rows);
+        List<Seeded> seeded = new ArrayList<>();
+        for (Map.Entry<AirlineTable, List<List<Object>>> e : rows.entrySet()) {
+            List<Integer> tableIds = ids.get(e.getKey());
+            assertEquals(e.getValue().size(), tableIds.size());
+            for (int i = 0; i < tableIds.size(); i++) {
+                List<Object> r = e.getValue().get(i);
+                seeded.add(new Seeded(e.getKey(), tableIds.get(i),
+                        ((Timestamp) r.get(0)).toLocalDateTime(), ((Timestamp) r.get(1)).toLocalDateTime()));
+            }
+        }
+        return seeded;
+    }
+
+    /** Twelve direct BOS-DEN flights over both tables, with ties on departure and on travel time. */
+    List<Seeded> seedDirect() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(
+                row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", null),
+                row(at(7, 0), at(10, 30), "Boston (BOS)", "Denver (DEN)", "DL2", null),
+                row(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "DL3", null),
+                row(at(9, 15), at(11, 0), "Boston (BOS)", "Denver (DEN)", "DL4", null),
+                row(at(12, 0), at(15, 0), "Boston (BOS)", "Denver (DEN)", "DL5", null),
+                row(at(18, 0), at(20, 0), "Boston (BOS)", "Denver (DEN)", "DL6", null),
+                row(at(21, 0), at(23, 59), "Boston (BOS)", "Denver (DEN)", "DL7", null)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(
+                row(at(6, 0), at(7, 45), "Boston (BOS)", "Denver (DEN)", "WN1", null),
+                row(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "WN2", null),
+                row(at(10, 0), at(12, 0), "Boston (BOS)", "Denver (DEN)", "WN3", null),
+                row(at(13, 0), at(17, 0), "Boston (BOS)", "Denver (DEN)", "WN4", null),
+                row(at(19, 0), at(21, 0), "Boston (BOS)", "Denver (DEN)", "WN5", null)));
+        return seed(rows);
+    }
+
+    static Comparator<Seeded> order(String sortBy) {
+        Comparator<Seeded> bySort = switch (sortBy) {
+            case "traveltime" -> Comparator.comparingLong(Seeded::travelMinutes);
+            case "arrivedatetime" -> Comparator.comparing(Seeded::arrive);
+            default -> Comparator.comparing(Seeded::depart);
+        };
+        return bySort.thenComparing(s -> s.table().getTableName()).thenComparingInt(Seeded::id);
+    }
+
+    static List<String> keys(List<? extends FlightInterface> flights) {
+        List<String> keys = new ArrayList<>();
+        for (FlightInterface f : flights) {
+            keys.add(AirlineTable.fromAirline(f.getAirline()) + ":" + f.getId());
+        }
+        return keys;
+    }
+
+    static List<String> seededKeys(List<Seeded> seeded) {
+        List<String> keys = new ArrayList<>();
+        for (Seeded s : seeded) {
+            keys.add(s.table() + ":" + s.id());
+        }
+        return keys;
+    }
+
+    /** Every page from the first, following nextCursor until hasMore is false. */
+    List<FlightPage> walk(String sortBy, List<Object> params, int pageSize) throws SQLException {
+        List<FlightPage> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            FlightPage page = db.selectFlightPage(ALL, sortBy, params, cursor, pageSize);
+            pages.add(page);
+            assertEquals(page.hasMore(), page.nextCursor() != null);
+            assertEquals(page.flights().size(), page.cursors().size());
+            if (page.hasMore()) {
+                assertEquals(pageSize, page.flights().size());
+                assertEquals(page.cursors().get(pageSize - 1), page.nextCursor());
+            }
+            cursor = page.nextCursor();
+            assertTrue(pages.size() <= 100, "pagination does not terminate");
+        } while (cursor != null);
+        return pages;
+    }
+
+    static List<FlightInterface> flatten(List<FlightPage> pages) {
+        List<FlightInterface> flights = new ArrayList<>();
+        for (FlightPage page : pages) {
+            flights.addAll(page.flights());
+        }
+        return flights;
+    }
+
+    @Test
+    void directPagesFollowSortOrderAcrossTables() throws SQLException {
+        List<Seeded> seeded = seedDirect();
+        for (String sortBy : List.of("departdatetime", "arrivedatetime", "traveltime")) {
+            List<Seeded> expected = new ArrayList<>(seeded);
+            expected.sort(order(sortBy));
+
+            List<FlightPage> pages = walk(sortBy, search("BOS", "DEN", 0), 5);
+            assertEquals(3, pages.size(), sortBy);
+            for (FlightPage page : pages) {
+                assertEquals(seeded.size(), page.total(), sortBy);
+                assertTrue(page.totalExact(), sortBy);
+            }
+            assertEquals(seededKeys(expected), keys(flatten(pages)), sortBy);
+            assertEquals(seededKeys(expected), keys(db.selectFlights(ALL, sortBy, search("BOS", "DEN", 0))), sortBy);
+        }
+    }
+
+    @Test
+    void everyPerResultCursorResumesRightAfterItsFlight() throws SQLException {
+        List<Seeded> seeded = seedDirect();
+        seeded.sort(order("traveltime"));
+        List<String> expected = seededKeys(seeded);
+
+        FlightPage first = db.selectFlightPage(ALL, "traveltime", search("BOS", "DEN", 0), null, seeded.size());
+        for (int i = 0; i < first.cursors().size(); i++) {
+            FlightPage rest = db.selectFlightPage(ALL, "traveltime", search("BOS", "DEN", 0), first.cursors().get(i), 3);
+            List<String> got = keys(rest.flights());
+            assertEquals(expected.subList(i + 1, Math.min(expected.size(), i + 4)), got, "after row " + i);
+        }
+    }
+
+    @Test
+    void offsetCursorMatchesKeysetPage() throws SQLException {
+        seedDirect();
+        List<Object> params = search("BOS", "DEN", 0);
+        FlightPage first = db.selectFlightPage(ALL, "departdatetime", params, null, 4);
+        FlightPage byKeyset = db.selectFlightPage(ALL, "departdatetime", params, first.nextCursor(), 4);
+        FlightPage byOffset = db.selectFlightPage(ALL, "departdatetime", params,
+                SearchCursor.offset(4).encode(), 4);
+        assertEquals(keys(byKeyset.flights()), keys(byOffset.flights()));
+        assertEquals(byKeyset.hasMore(), byOffset.hasMore());
+    }
+
+    @Test
+    void airlineFilterAndEmptySearches() throws SQLException {
+        List<Seeded> seeded = seedDirect();
+        List<Object> deltasOnly = List.of("BOS", "DEN", Timestamp.valueOf(DAY),
+                Timestamp.valueOf(DAY.plusDays(1).minusSeconds(1)), 0, "deltas");
+        FlightPage page = db.selectFlightPage(ALL, "departdatetime", deltasOnly, null, 50);
+        assertEquals(seeded.stream().filter(s -> s.table() == AirlineTable.DELTAS).count(), page.total());
+
+        FlightPage none = db.selectFlightPage(ALL, "departdatetime", search("BOS", "XYZ", 0), null, 5);
+        assertEquals(0, none.total());
+        assertTrue(none.flights().isEmpty());
+        assertFalse(none.hasMore());
+        assertNull(none.nextCursor());
+    }
+
+    @Test
+    void connectingPagesAreValidAndDisjoint() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(
+                row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", null),
+                row(at(8, 0), at(10, 0), "Boston (BOS)", "Denver (DEN)", "DL2", null),
+                row(at(11, 0), at(13, 0), "Boston (BOS)", "Denver (DEN)", "DL3", null)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(
+                row(at(9, 0), at(11, 0), "Denver (DEN)", "Seattle (SEA)", "WN1", null),
+                row(at(13, 30), at(15, 30), "Denver (DEN)", "Seattle (SEA)", "WN2", null),
+                row(at(15, 30), at(17, 30), "Denver (DEN)", "Seattle (SEA)", "WN3", null)));
+        seed(rows);
+
+        List<Object> params = search("BOS", "SEA", 1);
+        List<FlightInterface> all = db.selectFlights(ALL, "departdatetime", params);
+        List<FlightInterface> paged = flatten(walk("departdatetime", params, 2));
+        assertEquals(itineraries(all), itineraries(paged));
+        assertEquals(new HashSet<>(itineraries(all)).size(), all.size(), "duplicate itineraries");
+
+        for (FlightInterface itinerary : all) {
+            FlightInterface second = itinerary.getNextFlight();
+            assertNotNull(second);
+            assertTrue(itinerary.getArrivalTime().getTime() <= second.getDepartureTime().getTime());
+            assertTrue(itinerary.getDepartureAirport().contains("BOS"));
+            assertTrue(second.getArrivalAirport().contains("SEA"));
+        }
+        // within the connection window: DL1 makes WN1 and WN2, DL2 and DL3 make WN2 and WN3
+        assertEquals(6, all.size());
+
+        // Searched only to the end of the page and one more
+        FlightPage first = db.selectFlightPage(ALL, "departdatetime", params, null, 2);
+        assertEquals(3, first.total());
+        assertFalse(first.totalExact());
+        FlightPage last = db.selectFlightPage(ALL, "departdatetime", params, SearchCursor.offset(4).encode(), 2);
+        assertEquals(6, last.total());
+        assertTrue(last.totalExact());
+        assertEquals(0, db.selectFlights(ALL, "departdatetime", search("BOS", "SEA", 0)).size());
+    }
+
+    @Test
+    void connectionsStartFromEveryAirportTheOriginMatches() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(
+                row(at(6, 0), at(8, 0), "New York (JFK)", "Denver (DEN)", "DL1", null),
+                row(at(7, 0), at(9, 0), "New York (LGA)", "Denver (DEN)", "DL2", null)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(
+                row(at(10, 0), at(12, 0), "Denver (DEN)", "Seattle (SEA)", "WN1", null),
+                row(at(11, 0), at(13, 0), "Denver (DEN)", "Tacoma (TIW)", "WN2", null)));
+        seed(rows);
+
+        assertEquals(List.of("DL1>WN1>", "DL2>WN1>"),
+                itineraries(db.selectFlights(ALL, "departdatetime", search("new york", "SEA", 1))));
+        assertEquals(List.of("DL2>WN1>", "DL2>WN2>"),
+                itineraries(db.selectFlights(ALL, "departdatetime", search("LGA", "a", 1))));
+    }
+
+    static List<String> roundTrips(List<FlightInterface> roundTrips) {
+        List<String> keys = new ArrayList<>();
+        for (FlightInterface rt : roundTrips) {
+            keys.add(itineraries(List.of(rt)).get(0) + "|" + itineraries(List.of(rt.getReturnTrip())).get(0));
+        }
+        return keys;
+    }
+
+    static List<String> itineraries(List<FlightInterface> flights) {
+        List<String> keys = new ArrayList<>();
+        for (FlightInterface f : flights) {
+            StringBuilder sb = new StringBuilder();
+            for (FlightInterface leg = f; leg != null; leg = leg.getNextFlight()) {
+                sb.append(leg.getFlightNumber()).append('>');
+            }
+            keys.add(sb.toString());
+        }
+        return keys;
+    }
+
+    @Test
+    void insertedFlightIsFoundByIdAndSearch() throws SQLException {
+        int id = db.insertFlight(AirlineTable.SOUTHWESTS,
+                List.of(at(9, 0), at(11, 30), "Boston (BOS)", "Austin (AUS)", "WN99"));
+        assertTrue(id > 0);
+
+        assertEquals(new FlightKey(AirlineTable.SOUTHWESTS, id), db.locateFlight(id));
+        FlightInterface flight = db.selectFlight(new FlightKey(AirlineTable.SOUTHWESTS, id));
+        assertNotNull(flight);
+        assertEquals("WN99", flight.getFlightNumber());
+        assertEquals("Boston (BOS)", flight.getDepartureAirport());
+        assertEquals("Austin (AUS)", flight.getArrivalAirport());
+        assertEquals(at(9, 0).getTime(), flight.getDepartureTime().getTime());
+        assertEquals(at(11, 30).getTime(), flight.getArrivalTime().getTime());
+        assertEquals(100, flight.getSeatsFree());
+        assertEquals(AirlineTable.SOUTHWESTS, AirlineTable.fromAirline(flight.getAirline()));
+
+        assertEquals(List.of("SOUTHWESTS:" + id), keys(db.selectFlights(ALL, "departdatetime", search("BOS", "AUS", 0))));
+        assertNull(db.selectFlight(new FlightKey(AirlineTable.DELTAS, id)));
+    }
+
+    @Test
+    void updateRewritesTheRowAndKeepsSeats() throws SQLException {
+        int id = db.insertFlight(AirlineTable.DELTAS, List.of(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1"));
+        FlightKey key = new FlightKey(AirlineTable.DELTAS, id);
+        assertTrue(db.decreaseSeatsAvailable(AirlineTable.DELTAS, id));
+
+        assertTrue(db.updateFlight(key, List.of(at(10, 0), at(13, 0), "Boston (BOS)", "Seattle (SEA)", "DL1A")));
+        FlightInterface updated = db.selectFlight(key);
+        assertEquals("DL1A", updated.getFlightNumber());
+        assertEquals("Seattle (SEA)", updated.getArrivalAirport());
+        assertEquals(at(10, 0).getTime(), updated.getDepartureTime().getTime());
+        assertEquals(99, updated.getSeatsFree());
+
+        assertTrue(db.selectFlights(ALL, "departdatetime", search("BOS", "DEN", 0)).isEmpty());
+        assertEquals(List.of("DELTAS:" + id), keys(db.selectFlights(ALL, "departdatetime", search("BOS", "SEA", 0))));
+
+        assertFalse(db.updateFlight(new FlightKey(AirlineTable.DELTAS, id + 1000),
+                List.of(at(10, 0), at(13, 0), "Boston (BOS)", "Seattle (SEA)", "DL2")));
+        assertFalse(db.updateFlight(new FlightKey(AirlineTable.SOUTHWESTS, id),
+                List.of(at(10, 0), at(13, 0), "Boston (BOS)", "Seattle (SEA)", "DL2")));
+    }
+
+    @Test
+    void deleteRemovesTheRowOnce() throws SQLException {
+        int id = db.insertFlight(AirlineTable.DELTAS, List.of(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1"));
+        int other = db.insertFlight(AirlineTable.SOUTHWESTS, List.of(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "WN1"));
+        FlightKey key = new FlightKey(AirlineTable.DELTAS, id);
+
+        assertTrue(db.deleteFlight(key));
+        assertNull(db.selectFlight(key));
+        assertFalse(db.deleteFlight(key));
+        assertEquals(List.of("SOUTHWESTS:" + other), keys(db.selectFlights(ALL, "departdatetime", search("BOS", "DEN", 0))));
+        assertEquals(id == other ? new FlightKey(AirlineTable.SOUTHWESTS, other) : null, db.locateFlight(id));
+    }
+
+    @Test
+    void applyChangesReportsEveryItem() throws SQLException {
+        int a = db.insertFlight(AirlineTable.DELTAS, List.of(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1"));
+        int b = db.insertFlight(AirlineTable.DELTAS, List.of(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "DL2"));
+
+        List<ChangeOutcome> outcomes = db.applyChanges(
+                List.of(new FlightUpdate(new FlightKey(AirlineTable.DELTAS, a),
+                                List.of(at(6, 30), at(8, 30), "Boston (BOS)", "Denver (DEN)", "DL1")),
+                        new FlightUpdate(new FlightKey(AirlineTable.DELTAS, 9999),
+                                List.of(at(6, 30), at(8, 30), "Boston (BOS)", "Denver (DEN)", "DL9"))),
+                List.of(new FlightKey(AirlineTable.DELTAS, b), new FlightKey(AirlineTable.SOUTHWESTS, 9999)));
+
+        assertEquals(List.of(ChangeOutcome.Status.UPDATED, ChangeOutcome.Status.NOT_FOUND,
+                        ChangeOutcome.Status.DELETED, ChangeOutcome.Status.NOT_FOUND),
+                outcomes.stream().map(ChangeOutcome::status).toList());
+        assertEquals(at(6, 30).getTime(), db.selectFlight(new FlightKey(AirlineTable.DELTAS, a)).getDepartureTime().getTime());
+        assertNull(db.selectFlight(new FlightKey(AirlineTable.DELTAS, b)));
+    }
+
+    @Test
+    void seatsNeverGoBelowZero() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", 1)));
+        int id = seed(rows).get(0).id();
+        FlightKey key = new FlightKey(AirlineTable.DELTAS, id);
+
+        assertTrue(db.decreaseSeatsAvailable(AirlineTable.DELTAS, id));
+        assertFalse(db.decreaseSeatsAvailable(AirlineTable.DELTAS, id));
+        assertEquals(0, db.selectFlight(key).getSeatsFree());
+        assertThrows(NoSeatsAvailableException.class, () -> db.reserveItinerary(List.of(key)));
+
+        assertTrue(db.increaseSeatsAvailable(AirlineTable.DELTAS, id, 1));
+        assertEquals(1, db.selectFlight(key).getSeatsFree());
+        // Both seats on the same leg or none
+        assertThrows(NoSeatsAvailableException.class, () -> db.reserveItinerary(List.of(key, key)));
+        assertEquals(1, db.selectFlight(key).getSeatsFree());
+
+        db.reserveItinerary(List.of(key));
+        assertEquals(0, db.selectFlight(key).getSeatsFree());
+        assertEquals(0, db.selectFlights(ALL, "departdatetime", search("BOS", "DEN", 0)).get(0).getSeatsFree());
+    }
+
+    @Test
+    void reservingASeatAnswersWithTheFlightAfterIt() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", 2)));
+        FlightKey key = new FlightKey(AirlineTable.DELTAS, seed(rows).get(0).id());
+
+        FlightInterface reserved = db.reserveSeat(key);
+        assertEquals(key.id(), reserved.getId());
+        assertEquals("DL1", reserved.getFlightNumber());
+        assertEquals("Denver (DEN)", reserved.getArrivalAirport());
+        assertEquals(AirlineTable.DELTAS, AirlineTable.fromAirline(reserved.getAirline()));
+        assertEquals(1, reserved.getSeatsFree());
+        // A snapshot: later reservations do not change what was answered
+        assertEquals(0, db.reserveSeat(key).getSeatsFree());
+        assertEquals(1, reserved.getSeatsFree());
+        assertNull(db.reserveSeat(key));
+        assertEquals(0, db.selectFlight(key).getSeatsFree());
+    }
+
+    @Test
+    void itineraryIsAllOrNothing() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", 5)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(row(at(9, 0), at(11, 0), "Denver (DEN)", "Seattle (SEA)", "WN1", 0)));
+        List<Seeded> seeded = seed(rows);
+        FlightKey first = new FlightKey(AirlineTable.DELTAS, seeded.get(0).id());
+        FlightKey full = new FlightKey(AirlineTable.SOUTHWESTS, seeded.get(1).id());
+
+        assertThrows(NoSeatsAvailableException.class, () -> db.reserveItinerary(List.of(first, full)));
+        assertEquals(5, db.selectFlight(first).getSeatsFree());
+        assertThrows(NoSuchElementException.class,
+                () -> db.reserveItinerary(List.of(first, new FlightKey(AirlineTable.SOUTHWESTS, 9999))));
+        assertEquals(5, db.selectFlight(first).getSeatsFree());
+        assertFalse(db.decreaseSeatsAvailable(AirlineTable.DELTAS, 9999));
+        assertFalse(db.increaseSeatsAvailable(AirlineTable.DELTAS, 9999, 1));
+    }
+
+    @Test
+    void departureBoundsFollowWrites() throws SQLException {
+        List<Seeded> seeded = seedDirect();
+        assertEquals(at(6, 0).getTime(), db.getEarliestDepartureTime(ALL).getTime());
+        assertEquals(at(21, 0).getTime(), db.getLatestDepartureTime(ALL).getTime());
+
+        Seeded latest = seeded.stream().max(Comparator.comparing(Seeded::depart)).orElseThrow();
+        assertTrue(db.deleteFlight(new FlightKey(latest.table(), latest.id())));
+        assertEquals(at(19, 0).getTime(), db.getLatestDepartureTime(ALL).getTime());
+    }
+
+    @Test
+    void holdsKeepTheirSeatsUntilConfirmedOrReleased() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", 2)));
+        FlightKey key = new FlightKey(AirlineTable.DELTAS, seed(rows).get(0).id());
+        Instant expiresAt = Instant.parse("2023-01-01T12:00:00Z");
+
+        db.holdItinerary(new SeatHold("kept", List.of(key), expiresAt));
+        db.holdItinerary(new SeatHold("returned", List.of(key), expiresAt));
+        assertEquals(0, db.selectFlight(key).getSeatsFree());
+        assertThrows(NoSeatsAvailableException.class,
+                () -> db.holdItinerary(new SeatHold("refused", List.of(key), expiresAt)));
+        assertEquals(List.of("kept", "returned"), db.selectHolds().stream().map(SeatHold::id).sorted().toList());
+        assertEquals(expiresAt, db.selectHolds().get(0).expiresAt());
+        assertEquals(List.of(key), db.selectHolds().get(0).legs());
+
+        assertEquals("kept", db.confirmHold("kept").id());
+        assertNull(db.confirmHold("kept"));
+        assertNull(db.releaseHold("kept"));
+        assertEquals(0, db.selectFlight(key).getSeatsFree());
+
+        assertEquals("returned", db.releaseHold("returned").id());
+        assertNull(db.releaseHold("returned"));
+        assertNull(db.confirmHold("returned"));
+        assertEquals(1, db.selectFlight(key).getSeatsFree());
+        assertTrue(db.selectHolds().isEmpty());
+    }
+
+    @Test
+    void roundTripsLookPastPairsRuledOutByTheMinimumStay() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(
+                row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", null),
+                row(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "DL2", null),
+                row(at(8, 0), at(10, 0), "Boston (BOS)", "Denver (DEN)", "DL3", null)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(
+                row(at(9, 0), at(11, 0), "Denver (DEN)", "Boston (BOS)", "WN1", null),
+                row(at(10, 0), at(12, 0), "Denver (DEN)", "Boston (BOS)", "WN2", null),
+                row(at(20, 0), at(22, 0), "Denver (DEN)", "Boston (BOS)", "WN3", null)));
+        seed(rows);
+        List<Object> params = new ArrayList<>(search("BOS", "DEN", 0));
+        params.add(Timestamp.valueOf(DAY));
+        params.add(Timestamp.valueOf(DAY.plusDays(1).minusSeconds(1)));
+        params.add(600);
+
+        // Ten hours on the ground leaves only WN3 home, the last of the returns
+        List<FlightInterface> all = db.selectRoundTripPage(ALL, "departdatetime", params, Integer.MAX_VALUE).roundTrips();
+        assertEquals(List.of("DL1>|WN3>", "DL2>|WN3>", "DL3>|WN3>"), roundTrips(all).stream().sorted().toList());
+        for (int limit = 1; limit <= 4; limit++) {
+            RoundTripPage page = db.selectRoundTripPage(ALL, "departdatetime", params, limit);
+            assertEquals(3, page.total(), "limit " + limit);
+            assertTrue(page.totalExact(), "limit " + limit);
+            assertEquals(roundTrips(all.subList(0, Math.min(limit, 3))), roundTrips(page.roundTrips()), "limit " + limit);
+        }
+        params.set(8, 0);
+        assertEquals(8, db.selectRoundTripPage(ALL, "departdatetime", params, 1).total());
+    }
+
+    @Test
+    void connectingRoundTripsSearchOnlyAsFarAsThePageNeeds() throws SQLException {
+        Map<AirlineTable, List<List<Object>>> rows = new EnumMap<>(AirlineTable.class);
+        rows.put(AirlineTable.DELTAS, List.of(
+                row(at(6, 0), at(8, 0), "Boston (BOS)", "Denver (DEN)", "DL1", null),
+                row(at(7, 0), at(9, 0), "Boston (BOS)", "Denver (DEN)", "DL2", null),
+                row(at(9, 0), at(11, 0), "Denver (DEN)", "Seattle (SEA)", "DL3", null),
+                row(at(10, 0), at(12, 30), "Denver (DEN)", "Seattle (SEA)", "DL4", null),
+                row(at(11, 0), at(13, 0), "Denver (DEN)", "Seattle (SEA)", "DL5", null)));
+        rows.put(AirlineTable.SOUTHWESTS, List.of(
+                row(at(13, 0), at(15, 0), "Seattle (SEA)", "Denver (DEN)", "WN1", null),
+                row(at(16, 0), at(18, 0), "Seattle (SEA)", "Denver (DEN)", "WN2", null),
+                row(at(19, 0), at(20, 0), "Denver (DEN)", "Boston (BOS)", "WN3", null),
+                row(at(21, 0), at(23, 0), "Denver (DEN)", "Boston (BOS)", "WN4", null)));
+        seed(rows);
+        List<Object> params = new ArrayList<>(search("BOS", "SEA", 1));
+        params.add(Timestamp.valueOf(DAY));
+        params.add(Timestamp.valueOf(DAY.plusDays(1).minusSeconds(1)));
+        params.add(120);
+
+        for (String sortBy : List.of("departdatetime", "arrivedatetime", "traveltime")) {
+            RoundTripPage complete = db.selectRoundTripPage(ALL, sortBy, params, Integer.MAX_VALUE);
+            assertTrue(complete.totalExact(), sortBy);
+            assertEquals(complete.roundTrips().size(), complete.total(), sortBy);
+            assertTrue(complete.total() > 4, sortBy + ": " + complete.total());
+
+            for (int limit = 1; limit <= complete.total() + 1; limit++) {
+                RoundTripPage page = db.selectRoundTripPage(ALL, sortBy, params, limit);
+                String what = sortBy + ", limit " + limit;
+                assertEquals(roundTrips(complete.roundTrips().subList(0, Math.min(limit, complete.total()))),
+                        roundTrips(page.roundTrips()), what);
+                assertTrue(page.total() >= page.roundTrips().size(), what);
+                assertTrue(page.total() <= complete.total(), what);
+                if (page.totalExact()) {
+                    assertEquals(complete.total(), page.total(), what);
+                }
+            }
+        }
+        assertFalse(db.selectRoundTripPage(ALL, "departdatetime", params, 1).totalExact());
+    }
+}
@@ -0,0 +1,92 @@
+package backend.classes.database;
+
+import backend.classes.records.FlightKey;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Rows written after load by someone other than the Database under test, e.g. the import CLI. */
+class DatabaseDirectoryTest {
+    private static final List<AirlineTable> ALL = List.of(AirlineTable.values());
+
+    private String url;
+    private Database db;
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = H2Databases.newUrl();
+        db = H2Databases.newDatabase(url, false);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        db.close();
+        H2Databases.drop(url);
+    }
+
+    private void insertElsewhere(AirlineTable table, int id, String flightNumber) throws SQLException {
+        insertElsewhere(table, id, flightNumber, "Boston (BOS)", "Denver (DEN)");
+    }
+
+    private void insertElsewhere(AirlineTable table, int id, String flightNumber, String from, String to)
+            throws SQLException {
+        H2Databases.execute(url, "INSERT INTO " + table.getTableName()
+                + " (Id, DepartDateTime, ArriveDateTime, DepartAirport, ArriveAirport, FlightNumber, DepartCode, ArriveCode)"
+                + " VALUES (" + id + ", '2023-01-01 06:00:00', '2023-01-01 08:00:00', '" + from + "', '" + to + "', '"
+                + flightNumber + "', '" + FlightGraph.airportCode(from) + "', '" + FlightGraph.airportCode(to) + "')");
+    }
+
+    private static List<Object> search(String from, String to) {
+        return List.of(from, to, Timestamp.valueOf("2023-01-01 00:00:00"),
+                Timestamp.valueOf("2023-01-01 23:59:59"), 0, "any");
+    }
+
+    @Test
+    void lookupsFindRowsTheDirectoryHasNotSeen() throws SQLException {
+        insertElsewhere(AirlineTable.SOUTHWESTS, 42, "WN42");
+
+        assertEquals(new FlightKey(AirlineTable.SOUTHWESTS, 42), db.locateFlight(42));
+        FlightInterface flight = db.selectFlightById(ALL, 42);
+        assertNotNull(flight);
+        assertEquals("WN42", flight.getFlightNumber());
+        assertNull(db.selectFlightById(List.of(AirlineTable.DELTAS), 42));
+        assertNull(db.locateFlight(43));
+
+        // Now known, so searches see it too
+        assertEquals(1, db.selectFlights(ALL, "departdatetime", search("BOS", "DEN")).size());
+    }
+
+    @Test
+    void searchesFindAirportsOnlyWrittenElsewhere() throws SQLException {
+        insertElsewhere(AirlineTable.DELTAS, 11, "DL11", "Austin (AUS)", "Reno (RNO)");
+        insertElsewhere(AirlineTable.SOUTHWESTS, 12, "WN12", "Austin (AUS)", "Reno_Tahoe (RTX)");
+
+        assertEquals("DL11", db.selectFlights(ALL, "departdatetime", search("AUS", "RNO")).get(0).getFlightNumber());
+        assertEquals(2, db.selectFlightPage(ALL, "departdatetime", search("austin", "reno"), null, 10).total());
+        // Wildcards in the input are matched literally
+        assertEquals("WN12", db.selectFlights(ALL, "departdatetime", search("AUS", "o_t")).get(0).getFlightNumber());
+        assertTrue(db.selectFlights(ALL, "departdatetime", search("AUS", "%")).isEmpty());
+    }
+
+    @Test
+    void updatesAndDeletesReachRowsTheDirectoryHasNotSeen() throws SQLException {
+        insertElsewhere(AirlineTable.DELTAS, 7, "DL7");
+        List<Object> update = List.of(Timestamp.valueOf("2023-01-01 09:00:00"), Timestamp.valueOf("2023-01-01 11:00:00"),
+                "Boston (BOS)", "Seattle (SEA)", "DL7X", 7);
+        assertEquals(List.of(7), db.updateTables(ALL, update));
+        assertEquals("DL7X", db.selectFlight(new FlightKey(AirlineTable.DELTAS, 7)).getFlightNumber());
+
+        insertElsewhere(AirlineTable.SOUTHWESTS, 8, "WN8");
+        assertEquals(List.of(8), db.updateTables(ALL, List.of(8)));
+        assertNull(db.selectFlightById(ALL, 8));
+        assertEquals(List.of(), db.updateTables(ALL, List.of(9)));
+    }
+}
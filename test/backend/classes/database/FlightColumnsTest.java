@@ -0,0 +1,118 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightColumnsTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final String[] AIRPORTS = {"Boston (BOS)", "Denver (DEN)", "Seattle (SEA)", "Austin (AUS)"};
+
+    private record Expected(int id, long depart, String from) {
+    }
+
+    private static Timestamp at(int minute) {
+        return Timestamp.valueOf(DAY.plusMinutes(minute));
+    }
+
+    /** Checks both indexes of a fresh snapshot against the flights that should be live. */
+    private static void assertIndexed(FlightColumns columns, Map<Integer, Expected> live) {
+        Comparator<Expected> order = Comparator.comparingLong(Expected::depart).thenComparingInt(Expected::id);
+        FlightColumns.Snapshot s = columns.snapshot();
+
+        List<Integer> expected = live.values().stream().sorted(order).map(Expected::id).toList();
+        List<Integer> actual = new ArrayList<>();
+        for (int row : s.byDeparture()) {
+            actual.add(s.id(row));
+            assertEquals(live.get(s.id(row)).depart(), s.depart(row));
+        }
+        assertEquals(expected, actual);
+
+        for (String airport : AIRPORTS) {
+            String code = FlightGraph.airportCode(airport);
+            List<Integer> from = live.values().stream().filter(e -> e.from().equals(airport))
+                    .sorted(order).map(Expected::id).toList();
+            List<Integer> indexed = new ArrayList<>();
+            for (int row : s.departingFrom(code)) {
+                indexed.add(s.id(row));
+            }
+            assertEquals(from, indexed, code);
+        }
+    }
+
+    @Test
+    void indexesFollowEveryKindOfWrite() {
+        FlightColumns columns = new FlightColumns(AirlineTable.DELTAS);
+        Map<Integer, Expected> live = new TreeMap<>();
+        Random random = new Random(7);
+
+        for (int step = 0; step < 5_000; step++) {
+            int minute = random.nextInt(24 * 60);
+            String from = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            String to = AIRPORTS[(List.of(AIRPORTS).indexOf(from) + 1) % AIRPORTS.length];
+            int choice = random.nextInt(10);
+            if (choice < 4 || live.isEmpty()) {
+                int id = columns.insert(at(minute), at(minute + 90), from, to, "DL" + step, 10);
+                live.put(id, new Expected(id, at(minute).getTime(), from));
+            } else {
+                List<Integer> ids = new ArrayList<>(live.keySet());
+                int id = ids.get(random.nextInt(ids.size()));
+                if (choice < 8) {
+                    assertTrue(columns.update(id, at(minute), at(minute + 90), from, to, "DL" + step));
+                    live.put(id, new Expected(id, at(minute).getTime(), from));
+                } else {
+                    assertTrue(columns.delete(id));
+                    live.remove(id);
+                }
+            }
+            // Read after some writes but not all, so changes are merged in batches of every size
+            if (random.nextInt(5) == 0) {
+                assertIndexed(columns, live);
+            }
+        }
+        assertIndexed(columns, live);
+        assertTrue(columns.storedRows() <= 2 * live.size() + FlightColumns.MIN_RETIRED_ROWS + 1,
+                "stored rows: " + columns.storedRows());
+    }
+
+    @Test
+    void compactionKeepsSeatsAndOlderSnapshots() {
+        FlightColumns columns = new FlightColumns(AirlineTable.DELTAS);
+        int id = columns.insert(at(60), at(120), "Boston (BOS)", "Denver (DEN)", "DL1", 5);
+        int other = columns.insert(at(30), at(90), "Boston (BOS)", "Denver (DEN)", "DL2", 5);
+        assertTrue(columns.takeSeats(id, 2));
+        FlightColumns.Snapshot before = columns.snapshot();
+
+        for (int i = 0; i < 3 * FlightColumns.MIN_RETIRED_ROWS; i++) {
+            columns.update(other, at(30 + i % 60), at(90 + i % 60), "Boston (BOS)", "Denver (DEN)", "DL2");
+        }
+        assertTrue(columns.storedRows() < FlightColumns.MIN_RETIRED_ROWS + 4, "stored rows: " + columns.storedRows());
+
+        assertEquals(3, columns.flight(id).getSeatsFree());
+        assertTrue(columns.takeSeats(id, 3));
+        assertFalse(columns.takeSeats(id, 1));
+        assertTrue(columns.returnSeats(id, 1));
+        assertEquals(1, columns.flight(id).getSeatsFree());
+
+        // Taken before any of it, and still whole
+        assertEquals(2, before.size());
+        assertEquals(other, before.id(before.byDeparture()[0]));
+        assertEquals(at(30).getTime(), before.depart(before.byDeparture()[0]));
+        assertEquals(1, before.seats(before.byDeparture()[1]));
+
+        assertTrue(columns.delete(id));
+        assertFalse(columns.takeSeats(id, 1));
+        assertFalse(columns.returnSeats(id, 1));
+        assertEquals(1, columns.snapshot().size());
+    }
+}
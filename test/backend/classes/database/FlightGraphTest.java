@@ -0,0 +1,88 @@
+package backend.classes.database;
+
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightGraphTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private static Flight flight(int id, int departHour, int seats) {
+        return new Flight(id, "DL" + id, "Boston (BOS)", "Denver (DEN)",
+                Timestamp.valueOf(DAY.plusHours(departHour)), Timestamp.valueOf(DAY.plusHours(departHour + 2)),
+                AirlineTable.DELTAS.getTableName(), seats);
+    }
+
+    @Test
+    void concurrentSeatChangesAreNotLost() throws Exception {
+        FlightGraph graph = new FlightGraph();
+        graph.load(Map.of(AirlineTable.DELTAS, List.of(flight(1, 6, 100_000))));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        graph.reserveSeat(AirlineTable.DELTAS, 1);
+                        // Updates to other flights force compactions while seats change
+                        if (i % 4 == 0) {
+                            graph.put(AirlineTable.DELTAS, flight(2, 7 + i % 10, 5));
+                        }
+                    }
+                    for (int i = 0; i < 2_000; i++) {
+                        graph.releaseSeat(AirlineTable.DELTAS, 1);
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(100_000 - 8 * 8_000, graph.get(AirlineTable.DELTAS, 1).getSeatsFree());
+    }
+
+    @Test
+    void updatesDoNotGrowTheStoreWithoutBound() {
+        FlightGraph graph = new FlightGraph();
+        List<FlightInterface> flights = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            flights.add(flight(id, id % 20, 50));
+        }
+        graph.load(Map.of(AirlineTable.DELTAS, flights));
+        graph.reserveSeat(AirlineTable.DELTAS, 7);
+
+        for (int round = 0; round < 200; round++) {
+            for (int id = 1; id <= 100; id++) {
+                if (id == 7) continue;
+                graph.put(AirlineTable.DELTAS, flight(id, (id + round) % 20, 50));
+            }
+        }
+
+        assertEquals(100, graph.size());
+        assertTrue(graph.storedRows() <= 2 * 100 + 4096, "stored rows: " + graph.storedRows());
+        assertEquals(49, graph.get(AirlineTable.DELTAS, 7).getSeatsFree());
+        FlightGraph.Departures bos = graph.departuresFrom("BOS");
+        assertEquals(100, bos.size());
+        for (int i = 0; i < bos.size(); i++) {
+            FlightInterface f = bos.flight(i);
+            assertSame(graph.get(AirlineTable.DELTAS, f.getId()), f);
+            assertEquals(FlightGraph.toEpochMinute(f.getDepartureTime()), bos.departMinute(i));
+            if (i > 0) assertTrue(bos.departMinute(i - 1) <= bos.departMinute(i));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package backend.classes.database;
+
+import enums.AirlineTable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throwaway H2 databases in MySQL mode with the production flight tables, for tests that need the
+ * SQL-backed {@link Database}. Each call gets its own named in-memory database.
+ */
+public final class H2Databases {
+    private static final AtomicInteger NEXT = new AtomicInteger();
+    private static final String FLIGHT_COLUMNS = "Id INT AUTO_INCREMENT PRIMARY KEY, DepartDateTime TIMESTAMP, "
+            + "ArriveDateTime TIMESTAMP, DepartAirport VARCHAR(100), ArriveAirport VARCHAR(100), "
+            + "FlightNumber VARCHAR(20), SeatsAvailable INT DEFAULT 100";
+
+    private H2Databases() {
+    }
+
+    /** URL of a new, empty database holding the deltas and southwests tables. */
+    public static String newUrl() throws SQLException {
+        String url = "jdbc:h2:mem:flights" + NEXT.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE deltas (" + FLIGHT_COLUMNS + ")");
+            stmt.executeUpdate("CREATE TABLE southwests (" + FLIGHT_COLUMNS + ")");
+        }
+        return url;
+    }
+
+    public static ConnectionPool newPool(String url) {
+        return new ConnectionPool(url, "sa", "");
+    }
+
+    /** A migrated, loaded Database over a new empty schema. */
+    public static Database newDatabase(boolean seatInventory) throws SQLException {
+        return newDatabase(newUrl(), seatInventory);
+    }
+
+    public static Database newDatabase(String url, boolean seatInventory) throws SQLException {
+        ConnectionPool pool = newPool(url);
+        new SchemaMigrator(pool).migrate();
+        Database database = new Database(pool);
+        database.loadFlightGraph();
+        if (seatInventory) {
+            database.enableSeatInventory(64, 1);
+        }
+        return database;
+    }
+
+    /** Runs {@code sql} on its own connection, outside anything the Database under test tracks. */
+    public static int execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            return stmt.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Inserts a bare flight into {@code table} the way another writer would, bypassing the
+     * Database under test; returns its id.
+     */
+    public static int insertElsewhere(String url, AirlineTable table, int seatsAvailable) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("INSERT INTO " + table.getTableName() + " (FlightNumber, SeatsAvailable) VALUES ('XX1', "
+                    + seatsAvailable + ")", Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    public static void drop(String url) throws SQLException {
+        execute(url, "DROP ALL OBJECTS");
+    }
+}
@@ -0,0 +1,11 @@
+package backend.classes.database;
+
+import backend.interfaces.DatabaseInterface;
+
+class InMemoryDatabaseConformanceTest extends DatabaseConformanceTest {
+
+    @Override
+    DatabaseInterface newDatabase() {
+        return new InMemoryDatabase();
+    }
+}
@@ -0,0 +1,14 @@
+package backend.classes.database;
+
+import backend.interfaces.DatabaseInterface;
+
+import java.sql.SQLException;
+
+/** The conformance suite against Database with reservations going through the SeatInventory. */
+class SeatInventoryDatabaseConformanceTest extends DatabaseConformanceTest {
+
+    @Override
+    DatabaseInterface newDatabase() throws SQLException {
+        return H2Databases.newDatabase(true);
+    }
+}
@@ -0,0 +1,82 @@
+package backend.classes.database;
+
+import backend.classes.records.FlightKey;
+import backend.exceptions.NoSeatsAvailableException;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatInventoryTest {
+    private String url;
+    private SeatInventory inventory;
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = H2Databases.newUrl();
+        inventory = new SeatInventory(H2Databases.newPool(url), 8, 1);
+        inventory.load();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        inventory.close();
+        H2Databases.drop(url);
+    }
+
+    @Test
+    void reserveReadsTheCounterOfAFlightWrittenAfterLoad() throws SQLException {
+        int id = H2Databases.insertElsewhere(url, AirlineTable.DELTAS, 1);
+        assertEquals(-1, inventory.available(AirlineTable.DELTAS, id));
+
+        assertTrue(inventory.reserve(AirlineTable.DELTAS, id, 1).join());
+        assertEquals(0, inventory.available(AirlineTable.DELTAS, id));
+        assertFalse(inventory.reserve(AirlineTable.DELTAS, id, 1).join());
+    }
+
+    @Test
+    void takeReadsTheCounterOfAFlightWrittenAfterLoad() throws SQLException {
+        int id = H2Databases.insertElsewhere(url, AirlineTable.DELTAS, 1);
+
+        assertTrue(inventory.take(AirlineTable.DELTAS, id, 1));
+        assertEquals(0, inventory.available(AirlineTable.DELTAS, id));
+        assertFalse(inventory.take(AirlineTable.DELTAS, id, 1));
+        inventory.restore(AirlineTable.DELTAS, id, 1);
+        assertEquals(1, inventory.available(AirlineTable.DELTAS, id));
+    }
+
+    @Test
+    void flightMissingFromTheTable() {
+        assertFalse(inventory.reserve(AirlineTable.SOUTHWESTS, 42, 1).join());
+        // Left to the caller's own guarded write
+        assertTrue(inventory.take(AirlineTable.SOUTHWESTS, 42, 1));
+        assertEquals(-1, inventory.available(AirlineTable.SOUTHWESTS, 42));
+    }
+
+    @Test
+    void singleSeatAndItineraryAgreeOnAFlightWrittenAfterLoad() throws SQLException {
+        String dbUrl = H2Databases.newUrl();
+        Database database = H2Databases.newDatabase(dbUrl, true);
+        try {
+            int single = H2Databases.insertElsewhere(dbUrl, AirlineTable.DELTAS, 1);
+            int itinerary = H2Databases.insertElsewhere(dbUrl, AirlineTable.DELTAS, 1);
+
+            assertTrue(database.decreaseSeatsAvailable(AirlineTable.DELTAS, single));
+            assertFalse(database.decreaseSeatsAvailable(AirlineTable.DELTAS, single));
+            // Not in the graph yet, so the answer comes from the table
+            int other = H2Databases.insertElsewhere(dbUrl, AirlineTable.DELTAS, 2);
+            assertEquals(1, database.reserveSeat(new FlightKey(AirlineTable.DELTAS, other)).getSeatsFree());
+            database.reserveItinerary(List.of(new FlightKey(AirlineTable.DELTAS, itinerary)));
+            assertThrows(NoSeatsAvailableException.class,
+                    () -> database.reserveItinerary(List.of(new FlightKey(AirlineTable.DELTAS, itinerary))));
+        } finally {
+            database.close();
+            H2Databases.drop(dbUrl);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package backend.classes.database;
+
+import backend.interfaces.DatabaseInterface;
+
+import java.sql.SQLException;
+
+/** The conformance suite against Database on H2 in MySQL mode, seats written straight to the tables. */
+class SqlDatabaseConformanceTest extends DatabaseConformanceTest {
+
+    @Override
+    DatabaseInterface newDatabase() throws SQLException {
+        return H2Databases.newDatabase(false);
+    }
+}
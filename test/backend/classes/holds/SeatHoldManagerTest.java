@@ -0,0 +1,92 @@
+package backend.classes.holds;
+
+import backend.classes.database.Database;
+import backend.classes.database.H2Databases;
+import backend.classes.records.FlightKey;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatHoldManagerTest {
+    private String url;
+    private Database database;
+    private FlightKey flight;
+    private final List<FlightKey> changed = new ArrayList<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = H2Databases.newUrl();
+        database = H2Databases.newDatabase(url, false);
+        flight = new FlightKey(AirlineTable.DELTAS, H2Databases.insertElsewhere(url, AirlineTable.DELTAS, 3));
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        database.close();
+        H2Databases.drop(url);
+    }
+
+    private SeatHoldManager newManager() {
+        return new SeatHoldManager(database, 10, 64, changed::addAll);
+    }
+
+    private int seatsFree() throws SQLException {
+        return database.selectFlight(flight).getSeatsFree();
+    }
+
+    @Test
+    void holdsOutliveTheManagerAndOverdueOnesAreReleasedOnRecovery() throws Exception {
+        SeatHoldManager before = newManager();
+        SeatHold overdue = before.create(List.of(flight), Duration.ofMillis(50));
+        SeatHold pending = before.create(List.of(flight), Duration.ofHours(1));
+        // Stopping, like a crash, leaves both holds and their seats in the database.
+        before.close();
+        Thread.sleep(100);
+        assertEquals(1, seatsFree());
+        assertEquals(2, database.selectHolds().size());
+
+        SeatHoldManager after = newManager();
+        try {
+            assertEquals(1, after.recover());
+            assertEquals(2, seatsFree());
+            assertEquals(List.of(flight), changed);
+            assertThrows(NoSuchElementException.class, () -> after.confirm(overdue.id()));
+
+            assertEquals(1, after.activeHolds());
+            assertEquals(pending.id(), after.confirm(pending.id()).id());
+            assertEquals(0, after.activeHolds());
+            assertEquals(2, seatsFree());
+            assertTrue(database.selectHolds().isEmpty());
+        } finally {
+            after.close();
+        }
+    }
+
+    @Test
+    void expiryGivesTheSeatsBackOnce() throws Exception {
+        SeatHoldManager manager = newManager();
+        try {
+            SeatHold hold = manager.create(List.of(flight), Duration.ofMillis(20));
+            assertEquals(2, seatsFree());
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (seatsFree() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, seatsFree());
+            assertThrows(NoSuchElementException.class, () -> manager.release(hold.id()));
+            assertEquals(3, seatsFree());
+            assertEquals(0, manager.activeHolds());
+        } finally {
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package backend.classes.imports;
+
+import backend.classes.database.Database;
+import backend.classes.database.H2Databases;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleImporterTest {
+    private static final String HEADER = "airline,flightNumber,departureAirport,arrivalAirport,departureTime,arrivalTime,seatsFree";
+
+    private String url;
+    private Database database;
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = H2Databases.newUrl();
+        database = H2Databases.newDatabase(url, false);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        database.close();
+        H2Databases.drop(url);
+    }
+
+    private ImportReport importCsv(int chunkSize, int maxErrors, String... lines) throws IOException {
+        String csv = HEADER + "\n" + String.join("\n", lines) + "\n";
+        try (ScheduleImporter importer = new ScheduleImporter(database, chunkSize, 2, maxErrors)) {
+            return importer.importFrom(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                    ScheduleImporter.Format.CSV);
+        }
+    }
+
+    private static String row(String number, int hour) {
+        return "Delta," + number + ",\"Boston (BOS)\",\"Denver (DEN)\",2023-01-01T"
+                + String.format("%02d", hour) + ":00:00,2023-01-01T" + String.format("%02d", hour + 2) + ":00:00,";
+    }
+
+    private int countBosDen() throws SQLException {
+        List<Object> params = List.of("BOS", "DEN", Timestamp.valueOf("2023-01-01 00:00:00"),
+                Timestamp.valueOf("2023-01-01 23:59:59"), 0, "any");
+        return database.selectFlightPage(List.of(AirlineTable.values()), "departdatetime", params, null, 100).total();
+    }
+
+    @Test
+    void splitsQuotedCsvFields() {
+        assertEquals(List.of("a", "b", ""), ScheduleImporter.splitCsv("a,b,"));
+        assertEquals(List.of("Boston, MA (BOS)", "say \"hi\"", ""), ScheduleImporter.splitCsv("\"Boston, MA (BOS)\",\"say \"\"hi\"\"\","));
+        assertEquals(List.of(""), ScheduleImporter.splitCsv(""));
+        assertThrows(IllegalArgumentException.class, () -> ScheduleImporter.splitCsv("\"open,ended"));
+    }
+
+    @Test
+    void badRowsAreReportedByLineAndTheRestImported() throws Exception {
+        ImportReport report = importCsv(2, 10,
+                row("DL1", 6),
+                "Delta,DL2,\"Boston (BOS)\",\"Denver (DEN)\",not-a-time,2023-01-01T09:00:00,",
+                "",
+                row("DL3", 8),
+                "Delta,DL4,\"Boston (BOS)\",\"Denver (DEN)\",2023-01-01T10:00:00,2023-01-01T09:00:00,,extra");
+
+        assertEquals(4, report.rowsRead());
+        assertEquals(2, report.rowsImported());
+        assertEquals(2, report.rowsRejected());
+        assertEquals(List.of(3L, 6L), report.errors().stream().map(RowError::line).toList());
+        assertTrue(report.errors().get(0).message().contains("departureTime"));
+        assertTrue(report.errors().get(1).message().contains("columns"));
+        assertFalse(report.errorsTruncated());
+        assertEquals(2, countBosDen());
+    }
+
+    @Test
+    void aChunkTheDatabaseRefusesIsRolledBackAndReportedRowByRow() throws Exception {
+        // The third row's flight number is too long for the column, failing the second chunk
+        ImportReport report = importCsv(2, 10,
+                row("DL1", 6), row("DL2", 7), row("DL3", 8), row("DL" + "4".repeat(40), 9), row("DL5", 10));
+
+        assertEquals(5, report.rowsRead());
+        assertEquals(3, report.rowsImported());
+        assertEquals(2, report.rowsRejected());
+        assertEquals(List.of(4L, 5L), report.errors().stream().map(RowError::line).toList());
+        for (RowError error : report.errors()) {
+            assertTrue(error.message().startsWith("Chunk rolled back"), error.message());
+        }
+        assertEquals(3, countBosDen());
+    }
+
+    @Test
+    void errorsAreCappedButAllCounted() throws Exception {
+        String bad = "Delta,DLX,\"Boston (BOS)\",\"Denver (DEN)\",,,";
+        ImportReport report = importCsv(3, 2, bad, bad, row("DL1", 6), bad, bad, bad);
+
+        assertEquals(6, report.rowsRead());
+        assertEquals(1, report.rowsImported());
+        assertEquals(5, report.rowsRejected());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(RowError::line).toList());
+        assertTrue(report.errorsTruncated());
+    }
+
+    @Test
+    void ndjsonRowsUseTheSameFields() throws Exception {
+        String ndjson = """
+                {"airline": "Southwest", "flightNumber": "WN1", "departAirport": "Boston (BOS)", "arriveAirport": "Denver (DEN)", "departDateTime": "2023-01-01T06:00:00", "arriveDateTime": "2023-01-01T08:00:00", "seatsAvailable": 3}
+                [1, 2]
+                {"airline": "Southwest", "flightNumber": "WN2"
+                """;
+        ImportReport report;
+        try (ScheduleImporter importer = new ScheduleImporter(database, 10, 1, 10)) {
+            report = importer.importFrom(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                    ScheduleImporter.Format.NDJSON);
+        }
+        assertEquals(1, report.rowsImported());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(RowError::line).toList());
+        assertTrue(report.errors().get(1).message().startsWith("Malformed JSON"));
+        assertEquals(1, countBosDen());
+    }
+}
@@ -0,0 +1,151 @@
+package backend.classes.search;
+
+import backend.classes.database.FlightGraph;
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedRouteSearchTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private static Timestamp at(int hour, int minute) {
+        return Timestamp.valueOf(DAY.withHour(hour).withMinute(minute));
+    }
+
+    private static Flight flight(int id, String from, String to, Timestamp depart, Timestamp arrive) {
+        return new Flight(id, "DL" + id, from, to, depart, arrive, AirlineTable.DELTAS.getTableName(), 10);
+    }
+
+    private static RouteQuery query(int limit) {
+        return new RouteQuery("AAA", "CCC", FlightGraph.toEpochMinute(at(0, 0)),
+                FlightGraph.toEpochMinute(at(23, 59)), EnumSet.of(AirlineTable.DELTAS), 1, "departdatetime", limit);
+    }
+
+    /**
+     * Only the later AAA->BBB arrival makes the BBB->CCC connection window, yet it is the more
+     * expensive label at BBB when sorting by departure.
+     */
+    @Test
+    void laterArrivalIsNotPrunedByAnEarlierOneThatMissesTheConnection() {
+        FlightGraph graph = new FlightGraph();
+        graph.load(Map.of(AirlineTable.DELTAS, List.of(
+                flight(1, "Alpha (AAA)", "Beta (BBB)", at(6, 0), at(7, 0)),
+                flight(2, "Alpha (AAA)", "Beta (BBB)", at(8, 0), at(9, 0)),
+                flight(3, "Beta (BBB)", "Gamma (CCC)", at(14, 0), at(15, 0)))));
+        BoundedRouteSearch search = new BoundedRouteSearch();
+
+        for (int limit = 1; limit <= 2; limit++) {
+            List<List<FlightInterface>> itineraries = search.search(graph, query(limit)).itineraries();
+            assertEquals(1, itineraries.size(), "limit " + limit);
+            assertEquals(List.of(2, 3), itineraries.get(0).stream().map(FlightInterface::getId).toList());
+        }
+    }
+
+    private static final int AIRPORTS = 8;
+
+    private static String code(int airport) {
+        return "A" + airport + "X";
+    }
+
+    /**
+     * Every airport to every other, every hour of the day, with durations of one to two hours; the
+     * last airport is only served from the one before it, in the evening, so most labels lead nowhere.
+     */
+    private static List<FlightInterface> denseNetwork() {
+        int destination = AIRPORTS - 1;
+        List<FlightInterface> flights = new ArrayList<>();
+        int id = 1;
+        for (int from = 0; from < AIRPORTS; from++) {
+            for (int to = 0; to < AIRPORTS; to++) {
+                if (from == to || from == destination) continue;
+                for (int hour = 0; hour < 22; hour++) {
+                    if (to == destination && (from != destination - 1 || hour < 16)) continue;
+                    LocalDateTime depart = DAY.plusHours(hour).plusMinutes((from * 7 + to * 11) % 60);
+                    int minutes = 60 + ((from * 7 + to * 3 + hour) % 5) * 15;
+                    flights.add(new Flight(id++, "DL" + id, "Airport (" + code(from) + ")", "Airport (" + code(to) + ")",
+                            Timestamp.valueOf(depart), Timestamp.valueOf(depart.plusMinutes(minutes)),
+                            AirlineTable.DELTAS.getTableName(), 10));
+                }
+            }
+        }
+        return flights;
+    }
+
+    /** Every itinerary of up to {@code maxLegs} legs the search rules allow, and every prefix visited on the way. */
+    private static int enumerate(FlightGraph graph, RouteQuery query, List<FlightInterface> prefix,
+                                 List<String> visited, List<List<FlightInterface>> out) {
+        int prefixes = 0;
+        String at = visited.get(visited.size() - 1);
+        FlightGraph.Departures next = graph.departuresFrom(at);
+        for (int i = 0; i < next.size(); i++) {
+            long depart = next.departMinute(i);
+            if (prefix.isEmpty()) {
+                if (depart < query.windowStart() || depart > query.windowEnd()) continue;
+            } else {
+                long arrived = FlightGraph.toEpochMinute(prefix.get(prefix.size() - 1).getArrivalTime());
+                if (depart < arrived + BoundedRouteSearch.MIN_CONNECTION_MINUTES
+                        || depart > Math.min(arrived + BoundedRouteSearch.MAX_CONNECTION_MINUTES, query.windowEnd())) {
+                    continue;
+                }
+            }
+            String code = next.arriveCode(i);
+            if (visited.contains(code)) continue;
+
+            List<FlightInterface> legs = new ArrayList<>(prefix);
+            legs.add(next.flight(i));
+            prefixes++;
+            if (query.destinations().contains(code)) {
+                out.add(legs);
+            } else if (legs.size() <= query.maxStops()) {
+                visited.add(code);
+                prefixes += enumerate(graph, query, legs, visited, out);
+                visited.remove(visited.size() - 1);
+            }
+        }
+        return prefixes;
+    }
+
+    @Test
+    void denseNetworkFindsTheExactTopKWhileExpandingFewLabels() {
+        FlightGraph graph = new FlightGraph();
+        graph.load(Map.of(AirlineTable.DELTAS, denseNetwork()));
+        BoundedRouteSearch search = new BoundedRouteSearch(Integer.MAX_VALUE, 60_000);
+
+        for (String sortBy : List.of("departdatetime", "arrivedatetime", "traveltime")) {
+            for (int maxStops = 1; maxStops <= 3; maxStops++) {
+                RouteQuery query = new RouteQuery(code(0), code(AIRPORTS - 1), FlightGraph.toEpochMinute(at(3, 0)),
+                        FlightGraph.toEpochMinute(at(23, 59)), EnumSet.of(AirlineTable.DELTAS), maxStops, sortBy, 10);
+
+                List<List<FlightInterface>> all = new ArrayList<>();
+                List<String> visited = new ArrayList<>(List.of(code(0)));
+                int prefixes = enumerate(graph, query, new ArrayList<>(), visited, all);
+                Comparator<List<FlightInterface>> order = BoundedRouteSearch.itineraryOrder(sortBy);
+                all.sort(order);
+
+                RouteSearchResult result = search.search(graph, query);
+                String what = sortBy + ", " + maxStops + " stops";
+                assertFalse(result.truncated(), what);
+                assertEquals(10, result.itineraries().size(), what);
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(0, order.compare(all.get(i), result.itineraries().get(i)), what + ", itinerary " + i);
+                }
+                // Exact-state pruning expanded up to 70% of them here
+                assertTrue(result.expandedNodes() * 10 < prefixes,
+                        what + ": expanded " + result.expandedNodes() + " of " + prefixes);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package backend.classes.search;
+
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundTripPairingTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    /** Direct flights on a coarse grid, so departures, arrivals and travel times all tie often. */
+    private static List<FlightInterface> flights(Random random, int n, int firstId, int dayOffset) {
+        List<FlightInterface> flights = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            LocalDateTime depart = DAY.plusDays(dayOffset).plusHours(random.nextInt(12)).plusMinutes(30L * random.nextInt(2));
+            LocalDateTime arrive = depart.plusMinutes(60L + 30L * random.nextInt(3));
+            flights.add(new Flight(firstId + i, "DL" + (firstId + i), "Boston (BOS)", "Denver (DEN)",
+                    Timestamp.valueOf(depart), Timestamp.valueOf(arrive), AirlineTable.DELTAS.getTableName(), 10));
+        }
+        return flights;
+    }
+
+    /** The order a one-way search returns them in; equal keys stay in id order, like (table, id). */
+    private static List<FlightInterface> searchOrder(List<FlightInterface> flights, String sortBy) {
+        Comparator<FlightInterface> byKey = switch (sortBy) {
+            case "traveltime" -> Comparator.comparingLong(f -> f.getArrivalTime().getTime() - f.getDepartureTime().getTime());
+            case "arrivedatetime" -> Comparator.comparingLong(f -> f.getArrivalTime().getTime());
+            default -> Comparator.comparingLong(f -> f.getDepartureTime().getTime());
+        };
+        List<FlightInterface> sorted = new ArrayList<>(flights);
+        sorted.sort(byKey);
+        return sorted;
+    }
+
+    private static List<String> keys(List<FlightInterface> roundTrips) {
+        return roundTrips.stream().map(rt -> rt.getId() + "|" + rt.getReturnTrip().getId()).toList();
+    }
+
+    /** Whatever prefix of either list a page is decided from, it is the page the complete lists give. */
+    @Test
+    void pagesDecidedFromFirstResultsMatchTheCompleteLists() {
+        Random random = new Random(509);
+        for (String sortBy : List.of("departdatetime", "arrivedatetime", "traveltime")) {
+            RoundTripOrder order = RoundTripOrder.of(sortBy);
+            for (int round = 0; round < 40; round++) {
+                List<FlightInterface> to = searchOrder(flights(random, 1 + random.nextInt(12), 1, 0), sortBy);
+                List<FlightInterface> back = searchOrder(flights(random, 1 + random.nextInt(12), 100, round % 2), sortBy);
+                Duration minStay = Duration.ofMinutes(60L * random.nextInt(14));
+                List<String> all = keys(new RoundTripPairing(to, back, order, minStay).take(Integer.MAX_VALUE));
+
+                for (int limit = 1; limit <= 6; limit++) {
+                    for (int a = 1; a <= to.size(); a++) {
+                        for (int b = 1; b <= back.size(); b++) {
+                            RoundTripPairing pairing = new RoundTripPairing(to.subList(0, a), a == to.size(),
+                                    back.subList(0, b), b == back.size(), order, minStay);
+                            List<String> page = keys(pairing.take(limit));
+                            String what = sortBy + " round " + round + ", limit " + limit + ", " + a + "x" + b;
+                            assertEquals(all.subList(0, page.size()), page, what);
+                            if (page.size() < limit && !pairing.needsMore()) {
+                                assertEquals(all.size(), page.size(), what);
+                            }
+                        }
+                    }
+                    RoundTripPairing complete = new RoundTripPairing(to, true, back, true, order, minStay);
+                    complete.take(limit);
+                    assertFalse(complete.needsMore());
+                }
+            }
+        }
+    }
+
+    @Test
+    void firstResultsCountOnlyTheirOwnPairs() {
+        Random random = new Random(7);
+        List<FlightInterface> to = searchOrder(flights(random, 8, 1, 0), "departdatetime");
+        List<FlightInterface> back = searchOrder(flights(random, 8, 100, 1), "departdatetime");
+        RoundTripOrder order = RoundTripOrder.DEPARTURE;
+
+        assertEquals(64, new RoundTripPairing(to, back, order, Duration.ZERO).count());
+        RoundTripPairing first = new RoundTripPairing(to.subList(0, 3), false, back.subList(0, 2), false, order, Duration.ZERO);
+        assertEquals(6, first.count());
+        // Earliest outbound first, with every return of its own before the next outbound
+        assertEquals(2, first.take(10).size());
+        assertTrue(first.needsMore());
+    }
+}
@@ -0,0 +1,47 @@
+package backend.classes.serialization;
+
+import backend.classes.database.FlightGraph;
+import backend.classes.records.Flight;
+import backend.interfaces.FlightInterface;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import enums.AirlineTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchResponseWriterTest {
+    // Spring Boot's default: ISO dates rather than epoch numbers
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .setDateFormat(new StdDateFormat().withColonInTimeZone(true));
+
+    private String written(FlightInterface flight) throws Exception {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            SearchResponseWriter.writeFlight(gen, flight);
+        }
+        return out.toString();
+    }
+
+    /** Graph flights serialize by reflection exactly as the writer writes them, with no internal getters. */
+    @Test
+    void compactFlightHasTheFlightShape() throws Exception {
+        Flight flight = new Flight(7, "DL7", "Boston (BOS)", "Denver (DEN)",
+                Timestamp.valueOf("2023-01-01 06:00:00"), Timestamp.valueOf("2023-01-01 08:00:00"),
+                AirlineTable.DELTAS.getTableName(), 12);
+        FlightGraph graph = new FlightGraph();
+        graph.load(Map.of(AirlineTable.DELTAS, List.of(flight)));
+        FlightInterface compact = graph.get(AirlineTable.DELTAS, 7);
+
+        assertEquals(mapper.readTree(written(compact)), mapper.readTree(mapper.writeValueAsString(compact)));
+        assertEquals(mapper.readTree(written(flight)), mapper.readTree(written(compact)));
+    }
+}
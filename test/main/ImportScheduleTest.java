@@ -0,0 +1,91 @@
+package main;
+
+import backend.classes.database.Database;
+import backend.classes.database.H2Databases;
+import backend.interfaces.FlightInterface;
+import enums.AirlineTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportScheduleTest {
+    private static final List<AirlineTable> ALL = List.of(AirlineTable.values());
+
+    private String url;
+    private Database server;
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = H2Databases.newUrl();
+        server = H2Databases.newDatabase(url, true);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        System.clearProperty("database.url");
+        System.clearProperty("database.user");
+        System.clearProperty("database.password");
+        server.close();
+        H2Databases.drop(url);
+    }
+
+    private static List<Object> search(String from, String to, int maxStops) {
+        return List.of(from, to, Timestamp.valueOf("2023-01-01 00:00:00"),
+                Timestamp.valueOf("2023-01-01 23:59:59"), maxStops, "any");
+    }
+
+    @Test
+    void runningServerSeesTheImportAfterReload(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("schedule.csv");
+        Files.writeString(csv, """
+                airline,flightNumber,departureAirport,arrivalAirport,departureTime,arrivalTime,seatsFree
+                Delta,DL1,Austin (AUS),Reno (RNO),2023-01-01T06:00:00,2023-01-01T08:00:00,2
+                Southwest,WN1,Reno (RNO),Tacoma (TIW),2023-01-01T09:00:00,2023-01-01T11:00:00,
+                """);
+        System.setProperty("database.url", url);
+        System.setProperty("database.user", "sa");
+        System.setProperty("database.password", "");
+
+        ImportSchedule.main(new String[]{csv.toString(), "--chunk-size", "1"});
+
+        // Direct searches go to SQL, but the connecting search runs on the server's graph
+        assertEquals(1, server.selectFlights(ALL, "departdatetime", search("AUS", "RNO", 0)).size());
+        assertTrue(server.selectFlights(ALL, "departdatetime", search("AUS", "TIW", 1)).isEmpty());
+
+        assertEquals(2, server.loadNewFlights());
+        assertEquals(0, server.loadNewFlights());
+        List<FlightInterface> connecting = server.selectFlights(ALL, "departdatetime", search("AUS", "TIW", 1));
+        assertEquals(1, connecting.size());
+        assertEquals("WN1", connecting.get(0).getNextFlight().getFlightNumber());
+        assertEquals(2, server.getFlightGraph().size());
+
+        int dl1 = server.locateFlight(connecting.get(0).getId()).id();
+        assertTrue(server.decreaseSeatsAvailable(AirlineTable.DELTAS, dl1));
+        assertTrue(server.decreaseSeatsAvailable(AirlineTable.DELTAS, dl1));
+        assertFalse(server.decreaseSeatsAvailable(AirlineTable.DELTAS, dl1));
+    }
+
+    @Test
+    void writesBeforeTheGraphIsLoadedAreNotReadBack() throws SQLException {
+        try (Database cli = new Database(H2Databases.newPool(url))) {
+            cli.insertFlights(Map.of(AirlineTable.DELTAS, List.of(Arrays.asList(
+                    Timestamp.valueOf("2023-01-01 06:00:00"), Timestamp.valueOf("2023-01-01 08:00:00"),
+                    "Boston (BOS)", "Denver (DEN)", "DL1", null))));
+            assertEquals(0, cli.getFlightGraph().size());
+            // The first search loads the graph, rows included
+            assertEquals(1, cli.selectFlights(ALL, "departdatetime", search("BOS", "DEN", 0)).size());
+            assertEquals(1, cli.getFlightGraph().size());
+        }
+    }
+}